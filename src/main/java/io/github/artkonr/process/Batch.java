@@ -0,0 +1,400 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Err;
+import io.github.artkonr.result.Ok;
+import io.github.artkonr.result.Result;
+import io.github.artkonr.result.TakeFrom;
+import lombok.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Invocation of a single {@link Cmd command} over a large list
+ *  of arguments, much like {@code xargs}: the arguments are
+ *  appended to the command in batches that fit the OS limit on
+ *  the size of the command line and environment ({@code ARG_MAX}),
+ *  and optionally a max argument count.
+ * <p>Batches may run in parallel; their outputs are aggregated
+ *  in the order of the arguments regardless. Batches are always
+ *  spawned, as their stream data are joined before being trimmed.
+ */
+public class Batch {
+
+    /**
+     * Size of the command line left unused, as recommended
+     *  by POSIX for {@code xargs}.
+     */
+    static final long HEADROOM = 2048;
+
+    /**
+     * Size of a pointer in {@code argv}/{@code envp}, which
+     *  counts towards {@code ARG_MAX} on Linux.
+     */
+    static final long POINTER = 8;
+
+    /**
+     * {@code ARG_MAX} to assume if it cannot be queried.
+     */
+    static final long FALLBACK_ARG_MAX = 131072;
+
+    /**
+     * Max size of a single argument on Linux ({@code MAX_ARG_STRLEN}),
+     *  including its terminating zero.
+     */
+    static final long MAX_ARG_STRLEN = 131072;
+
+    private final Cmd command;
+    private final List<String> arguments;
+    private int maxArgs = Integer.MAX_VALUE;
+    private long maxBytes;
+    private int parallelism = 1;
+
+    /**
+     * Factory method. Creates a new {@link Batch}.
+     * @param command command to append the arguments to
+     * @param arguments arguments to append, in order
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided or any argument is {@code null}
+     */
+    static Batch from(@NonNull Cmd command, @NonNull Collection<String> arguments) {
+        if (arguments.stream().anyMatch(arg -> arg == null)) {
+            throw new IllegalArgumentException("arguments must not be null");
+        }
+        return new Batch(command, List.copyOf(arguments));
+    }
+
+    /**
+     * Limits the amount of arguments per batch.
+     * @param count max arguments per batch
+     * @return this instance
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public Batch maxArgs(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("argument count must be positive");
+        }
+        this.maxArgs = count;
+        return this;
+    }
+
+    /**
+     * Limits the size of the command line and environment of a
+     *  batch, counted the way the OS does: every string along with
+     *  its terminating zero and pointer. Defaults to {@code ARG_MAX}
+     *  less {@value HEADROOM} bytes of headroom.
+     * @param bytes max size, bytes
+     * @return this instance
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public Batch maxBytes(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        this.maxBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the amount of batches running at once.
+     * @param batches max batches running at once
+     * @return this instance
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public Batch parallel(int batches) {
+        if (batches <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = batches;
+        return this;
+    }
+
+    /**
+     * Invokes every batch, draining the program streams
+     *  on the {@link Reactor#shared() shared} reactor.
+     * @return invocation {@link Result}
+     */
+    public Result<io.github.artkonr.process.Output, CmdException> invoke() {
+        return invoke(Reactor.shared());
+    }
+
+    /**
+     * Invokes every batch. If there are no arguments, the command
+     *  is invoked once as is. All batches are invoked even if some
+     *  of them fail.
+     * @param reactor reactor to drain the streams on
+     * @return invocation {@link Result}; the error of the first
+     *  failed batch if any, in the order of the arguments
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Result<io.github.artkonr.process.Output, CmdException> invoke(@NonNull Reactor reactor) {
+        Result<List<List<String>>, CmdException> split = split();
+        if (split.isErr()) {
+            return new Err<>(split.err());
+        }
+
+        List<Cmd> batches = split.value().stream().map(command::append).toList();
+        if (parallelism == 1 || batches.size() == 1) {
+            return collect(batches.stream().map(batch -> run(batch, reactor)).toList());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, batches.size()), runnable -> {
+            Thread thread = new Thread(runnable, "process-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<Run>> pending = batches.stream()
+                    .map(batch -> CompletableFuture.supplyAsync(() -> run(batch, reactor), pool))
+                    .toList();
+            return collect(pending.stream().map(CompletableFuture::join).toList());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Splits the arguments into batches.
+     * @return {@link Result} bearing the argument batches; an error
+     *  if an argument does not fit the size limit on its own
+     */
+    Result<List<List<String>>, CmdException> split() {
+        long limit = maxBytes > 0 ? maxBytes : Limit.ARG_MAX - HEADROOM;
+        long budget = limit - cost(command.handle.command()) - cost(command.handle.environment());
+
+        List<List<String>> batches = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        long used = 0;
+        for (String argument : arguments) {
+            long size = cost(argument);
+            if (size > budget || size - POINTER > MAX_ARG_STRLEN) {
+                return new Err<>(new CmdException(
+                        "argument does not fit the command line: size=%d available=%d".formatted(size, budget)
+                ));
+            }
+            if (current.size() == maxArgs || used + size > budget) {
+                batches.add(current);
+                current = new ArrayList<>();
+                used = 0;
+            }
+            current.add(argument);
+            used += size;
+        }
+        batches.add(current);
+        return new Ok<>(batches);
+    }
+
+    /**
+     * Queries {@code ARG_MAX} of the OS.
+     * @return {@code ARG_MAX}, or {@value FALLBACK_ARG_MAX} if it cannot be queried
+     */
+    static long argMax() {
+        Result<Long, Exception> queried = Cmd.from("getconf", "ARG_MAX")
+                .invoke()
+                .upcast()
+                .then(output -> Result.wrap(() -> Long.parseLong(output.stdout().encode().orElseThrow())));
+        return queried.isOk() && queried.value() > 0 ? queried.value() : FALLBACK_ARG_MAX;
+    }
+
+    /**
+     * Aggregated {@link io.github.artkonr.process.Output Output} of
+     *  a {@link Batch}. Stream data of all batches are joined in
+     *  order, while the status covers every batch.
+     */
+    public static class Output implements io.github.artkonr.process.Output {
+
+        private final String cmd;
+        private final List<io.github.artkonr.process.Output> batches;
+        private final Data stdout;
+        private final Data stderr;
+
+        /**
+         * PID of the first batch.
+         * @return PID
+         */
+        @Override
+        public long pid() {
+            return batches.get(0).pid();
+        }
+
+        /**
+         * Renders the invocation, e.g. {@code xargs rm -f}.
+         * @return invoked command
+         */
+        @Override
+        public String command() {
+            return "xargs " + cmd;
+        }
+
+        /**
+         * Returns the exitcode of the first failed batch, if any.
+         * @return exitcode
+         */
+        @Override
+        public int exitcode() {
+            return error().map(io.github.artkonr.process.Output::exitcode).orElse(0);
+        }
+
+        /**
+         * {@inheritDoc}
+         * @return new output with no stdout or stderr
+         */
+        @Override
+        public Output devnull() {
+            return new Output(
+                    cmd,
+                    batches.stream().map(io.github.artkonr.process.Output::devnull).toList(),
+                    new Data(null),
+                    new Data(null)
+            );
+        }
+
+        /**
+         * Stdout of every batch, concatenated in order as
+         *  read, and trimmed only at the end.
+         * @return stdout
+         */
+        @Override
+        public Data stdout() {
+            return stdout;
+        }
+
+        /**
+         * Stderr of every batch, concatenated the same
+         *  way as {@link Output#stdout()}.
+         * @return stderr
+         */
+        @Override
+        public Data stderr() {
+            return stderr;
+        }
+
+        /**
+         * Checks if stderr was merged into stdout.
+         * @return {@code true} if stderr was merged into stdout;
+         *  {@code false} otherwise
+         */
+        @Override
+        public boolean merged() {
+            return batches.get(0).merged();
+        }
+
+        /**
+         * Returns the first batch that did not exit normally.
+         * @return optional {@link io.github.artkonr.process.Output error}
+         */
+        @Override
+        public Optional<io.github.artkonr.process.Output> error() {
+            return batches.stream()
+                    .filter(batch -> !batch.exitedNormally())
+                    .findFirst();
+        }
+
+        /**
+         * Checks if every batch has exited normally.
+         * @return {@code true} if all batches returned exitcode 0;
+         *  {@code false} if otherwise
+         */
+        @Override
+        public boolean exitedNormally() {
+            return error().isEmpty();
+        }
+
+        /**
+         * Outputs of every batch, in order.
+         * @return batch outputs
+         */
+        public List<io.github.artkonr.process.Output> batches() {
+            return batches;
+        }
+
+        private static Data join(List<byte[]> data) {
+            // only the joined data are trimmed, so that the batches are not run together
+            List<Data> parts = new ArrayList<>();
+            int last = data.size() - 1;
+            while (last >= 0) {
+                byte[] tail = Util.readByteArray(data.get(last));
+                if (tail.length > 0) {
+                    parts.add(new Data(tail));
+                    break;
+                }
+                last--;
+            }
+            if (parts.isEmpty()) {
+                return new Data(null);
+            }
+            for (int i = last - 1; i >= 0; i--) {
+                if (data.get(i).length > 0) {
+                    parts.add(0, new Data(data.get(i)));
+                }
+            }
+            return Data.concat(parts);
+        }
+
+        private Output(String cmd, List<io.github.artkonr.process.Output> batches, Data stdout, Data stderr) {
+            this.cmd = cmd;
+            this.batches = List.copyOf(batches);
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+    }
+
+    /**
+     * Invocation of a single batch, along with its stream data as read.
+     * @param result invocation {@link Result}
+     * @param stdout untrimmed stdout
+     * @param stderr untrimmed stderr
+     */
+    private record Run(Result<io.github.artkonr.process.Output, CmdException> result, byte[] stdout, byte[] stderr) { }
+
+    private static Run run(Cmd batch, Reactor reactor) {
+        List<Reactor.Streams> attached = new ArrayList<>();
+        var result = batch.invoke(reactor, attached);
+        return attached.isEmpty()
+                ? new Run(result, new byte[0], new byte[0])
+                : new Run(result, attached.get(0).stdout().snapshot(), attached.get(0).stderr().snapshot());
+    }
+
+    private Result<io.github.artkonr.process.Output, CmdException> collect(List<Run> runs) {
+        return Result.join(runs.stream().map(Run::result).toList(), TakeFrom.HEAD)
+                .map(outputs -> new Output(
+                        Util.getCmd(command.handle),
+                        outputs,
+                        Output.join(runs.stream().map(Run::stdout).toList()),
+                        Output.join(runs.stream().map(Run::stderr).toList())
+                ));
+    }
+
+    private static long cost(List<String> strings) {
+        return strings.stream().mapToLong(Batch::cost).sum();
+    }
+
+    private static long cost(Map<String, String> environment) {
+        return environment.entrySet().stream()
+                .mapToLong(entry -> cost(entry.getKey() + "=" + entry.getValue()))
+                .sum();
+    }
+
+    private static long cost(String string) {
+        return string.getBytes(StandardCharsets.UTF_8).length + 1 + POINTER;
+    }
+
+    private Batch(Cmd command, List<String> arguments) {
+        this.command = command;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Lazily queried {@code ARG_MAX}.
+     */
+    private static class Limit {
+        private static final long ARG_MAX = argMax();
+    }
+}
@@ -0,0 +1,556 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Err;
+import io.github.artkonr.result.Ok;
+import io.github.artkonr.result.Result;
+import io.github.artkonr.result.TakeFrom;
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Opt-in registry of programs that are emulated in the JVM
+ *  instead of being spawned, for trivial invocations like
+ *  {@code echo}, {@code cat <file>} or {@code tr -d}.
+ * <p>A builtin only takes over invocations it fully understands
+ *  and produces the same output and exitcode as its GNU coreutils
+ *  counterpart; anything else, e.g. an unknown option, falls back
+ *  to a real process. A pipeline is emulated only if all of its
+ *  programs are builtins.
+ * <p>Programs are never emulated if they are {@link Limits limited},
+ *  {@link Placement placed} or {@link Cmd#account() accounted}, have
+ *  streams redirected to files or the JVM, or if {@code POSIXLY_CORRECT}
+ *  is set. Emulated outputs bear the PID of the JVM.
+ */
+public final class Builtins {
+
+    /**
+     * Default amount of lines printed by {@code head}.
+     */
+    static final int HEAD_LINES = 10;
+
+    private static final Builtins STANDARD = new Builtins(standardRegistry());
+
+    private final Map<String, Builtin> registry;
+
+    /**
+     * Factory method. Returns the registry of all supported builtins:
+     *  {@code echo}, {@code printf}, {@code cat}, {@code head},
+     *  {@code tr -d}, {@code true}, {@code false} and {@code pwd}.
+     * @return registry
+     */
+    public static Builtins standard() {
+        return STANDARD;
+    }
+
+    /**
+     * Derives a registry that does not emulate some programs.
+     * @param names program names
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Builtins without(@NonNull String... names) {
+        Map<String, Builtin> registry = new LinkedHashMap<>(this.registry);
+        for (String name : names) {
+            registry.remove(name);
+        }
+        return new Builtins(registry);
+    }
+
+    /**
+     * Names of the emulated programs.
+     * @return program names
+     */
+    public Set<String> names() {
+        return registry.keySet();
+    }
+
+    /**
+     * Emulates a command, if possible.
+     * @param command command
+     * @return invocation {@link Result}; empty if the command has to
+     *  be invoked as a process
+     */
+    Optional<Result<io.github.artkonr.process.Output, CmdException>> invoke(Cmd command) {
+        if (command.account || !command.limits.isEmpty() || !command.placement.isEmpty()) {
+            return Optional.empty();
+        }
+        return plan(List.of(command.handle))
+                .map(stages -> run(stages, command.stackless).then(results -> results.get(0)));
+    }
+
+    /**
+     * Emulates a pipeline, if possible.
+     * @param chain pipeline
+     * @return invocation {@link Result}; empty if the pipeline has to
+     *  be invoked as processes
+     */
+    Optional<Result<io.github.artkonr.process.Output, CmdException>> invoke(Chain chain) {
+        if (chain.account || !chain.limits.isEmpty() || !chain.placement.isEmpty()) {
+            return Optional.empty();
+        }
+        return plan(chain.pipeline).map(stages -> run(stages, chain.stackless).then(results -> results
+                .get(results.size() - 1)
+                .fuse(Result.join(results.subList(0, results.size() - 1), TakeFrom.HEAD), TakeFrom.TAIL)
+                .map(fuse -> Chain.Output.from(fuse.left(), fuse.right()))
+        ));
+    }
+
+    /**
+     * Emulated program with parsed arguments.
+     * @param stdin whether the program reads stdin
+     * @param body program logic
+     */
+    record Program(boolean stdin, Body body) { }
+
+    /**
+     * Parses the arguments of an emulated program.
+     */
+    @FunctionalInterface
+    interface Builtin {
+
+        /**
+         * Parses the arguments.
+         * @param arguments program arguments
+         * @return program; {@code null} if the arguments are not understood
+         */
+        Program parse(List<String> arguments);
+    }
+
+    /**
+     * Logic of an emulated program.
+     */
+    @FunctionalInterface
+    interface Body {
+
+        /**
+         * Runs the program.
+         * @param io program environment and streams
+         * @return exitcode
+         */
+        int run(Io io);
+    }
+
+    /**
+     * Environment and streams of an emulated program.
+     * @param stdin stdin
+     * @param directory working directory
+     * @param stdout stdout
+     * @param stderr stderr; same as stdout if merged
+     */
+    record Io(byte[] stdin, Path directory, ByteArrayOutputStream stdout, ByteArrayOutputStream stderr) {
+
+        /**
+         * Writes text into stdout.
+         * @param text text
+         */
+        void out(String text) {
+            stdout.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Writes a line into stderr.
+         * @param line line, with no trailing newline
+         */
+        void err(String line) {
+            stderr.writeBytes((line + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Plans the emulation of a pipeline.
+     * @param pipeline programs
+     * @return programs to emulate; empty if any of them cannot be emulated
+     */
+    Optional<List<Stage>> plan(List<ProcessBuilder> pipeline) {
+        List<Stage> stages = new ArrayList<>();
+        for (int i = 0; i < pipeline.size(); i++) {
+            ProcessBuilder pb = pipeline.get(i);
+            Builtin builtin = registry.get(pb.command().get(0));
+            if (builtin == null
+                    || pb.environment().containsKey("POSIXLY_CORRECT")
+                    || pb.directory() != null && !pb.directory().isDirectory()
+                    || !emulated(pb.redirectOutput())
+                    || i < pipeline.size() - 1 && pb.redirectOutput().type() != ProcessBuilder.Redirect.Type.PIPE
+                    || !pb.redirectErrorStream() && !emulated(pb.redirectError())) {
+                return Optional.empty();
+            }
+
+            ProcessBuilder.Redirect.Type input = pb.redirectInput().type();
+            if (i > 0 && input != ProcessBuilder.Redirect.Type.PIPE
+                    || input != ProcessBuilder.Redirect.Type.PIPE && input != ProcessBuilder.Redirect.Type.READ) {
+                return Optional.empty();
+            }
+
+            Program program = builtin.parse(List.copyOf(pb.command().subList(1, pb.command().size())));
+            // stdin of the first program is never written, so a real program would wait for it forever
+            if (program == null || i == 0 && program.stdin() && input == ProcessBuilder.Redirect.Type.PIPE) {
+                return Optional.empty();
+            }
+            stages.add(new Stage(pb, program));
+        }
+        return Optional.of(stages);
+    }
+
+    /**
+     * Program of a pipeline to emulate.
+     * @param pb emulated program
+     * @param program parsed builtin
+     */
+    record Stage(ProcessBuilder pb, Program program) { }
+
+    private Result<List<Result<io.github.artkonr.process.Output, CmdException>>, CmdException> run(List<Stage> stages,
+                                                                                                  boolean stackless) {
+        long pid = ProcessHandle.current().pid();
+        List<Result<io.github.artkonr.process.Output, CmdException>> results = new ArrayList<>();
+        byte[] input = new byte[0];
+        for (int i = 0; i < stages.size(); i++) {
+            ProcessBuilder pb = stages.get(i).pb();
+            if (pb.redirectInput().type() == ProcessBuilder.Redirect.Type.READ) {
+                try {
+                    input = Files.readAllBytes(pb.redirectInput().file().toPath());
+                } catch (IOException ex) {
+                    return new Err<>(new CmdException("command failed", ex));
+                }
+            }
+
+            boolean merged = pb.redirectErrorStream();
+            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            ByteArrayOutputStream stderr = merged ? stdout : new ByteArrayOutputStream();
+            Path directory = Path.of(pb.directory() == null ? "" : pb.directory().getPath()).toAbsolutePath();
+            int exitcode = stages.get(i).program().body().run(new Io(input, directory, stdout, stderr));
+            input = stdout.toByteArray();
+
+            boolean last = i == stages.size() - 1;
+            Cmd.Spec spec = Cmd.Spec.of(pb, stackless);
+            io.github.artkonr.process.Output output = Cmd.Output.from(
+                    pid,
+                    spec.cmd(),
+                    exitcode,
+                    last && spec.stdout() ? Util.readByteArray(stdout.toByteArray()) : null,
+                    spec.stderr() ? Util.readByteArray(stderr.toByteArray()) : null,
+                    merged
+            );
+            results.add(output.exitedNormally()
+                    ? new Ok<>(output)
+                    : new Err<>(CmdException.errorExitCode(0, output, stackless)));
+        }
+        return new Ok<>(results);
+    }
+
+    private static boolean emulated(ProcessBuilder.Redirect redirect) {
+        return redirect.type() == ProcessBuilder.Redirect.Type.PIPE || redirect.equals(ProcessBuilder.Redirect.DISCARD);
+    }
+
+    private static Map<String, Builtin> standardRegistry() {
+        Map<String, Builtin> registry = new LinkedHashMap<>();
+        registry.put("echo", Builtins::echo);
+        registry.put("printf", Builtins::printf);
+        registry.put("cat", Builtins::cat);
+        registry.put("head", Builtins::head);
+        registry.put("tr", Builtins::tr);
+        registry.put("true", arguments -> exit(arguments, 0));
+        registry.put("false", arguments -> exit(arguments, 1));
+        registry.put("pwd", Builtins::pwd);
+        return registry;
+    }
+
+    private static Program exit(List<String> arguments, int exitcode) {
+        if (arguments.stream().anyMatch(argument -> argument.startsWith("--"))) {
+            return null;
+        }
+        return new Program(false, io -> exitcode);
+    }
+
+    private static Program echo(List<String> arguments) {
+        int from = 0;
+        while (from < arguments.size() && arguments.get(from).equals("-n")) {
+            from++;
+        }
+        if (from < arguments.size() && arguments.get(from).matches("-[neE]+")
+                || arguments.size() == 1 && arguments.get(0).startsWith("--")) {
+            return null;
+        }
+
+        String text = String.join(" ", arguments.subList(from, arguments.size())) + (from == 0 ? "\n" : "");
+        return new Program(false, io -> {
+            io.out(text);
+            return 0;
+        });
+    }
+
+    private static Program printf(List<String> arguments) {
+        if (arguments.isEmpty() || arguments.get(0).startsWith("-")) {
+            return null;
+        }
+
+        // only %s, %d, %% and basic escapes are emulated
+        String format = arguments.get(0);
+        List<String> values = arguments.subList(1, arguments.size());
+        List<Object> pieces = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < format.length(); i++) {
+            char c = format.charAt(i);
+            if (c == '\\' && i + 1 < format.length()) {
+                char escaped = switch (format.charAt(++i)) {
+                    case 'n' -> '\n';
+                    case 't' -> '\t';
+                    case 'r' -> '\r';
+                    case '\\' -> '\\';
+                    case '"' -> '"';
+                    default -> 0;
+                };
+                if (escaped == 0) {
+                    return null;
+                }
+                literal.append(escaped);
+            } else if (c == '%' && i + 1 < format.length()) {
+                char directive = format.charAt(++i);
+                if (directive == '%') {
+                    literal.append('%');
+                } else if (directive == 's' || directive == 'd') {
+                    pieces.add(literal.toString());
+                    literal.setLength(0);
+                    pieces.add(directive);
+                } else {
+                    return null;
+                }
+            } else if (c == '\\' || c == '%') {
+                return null;
+            } else {
+                literal.append(c);
+            }
+        }
+        pieces.add(literal.toString());
+
+        long directives = pieces.stream().filter(piece -> piece instanceof Character).count();
+        if (directives == 0 && !values.isEmpty()) {
+            return null;
+        }
+        for (int i = 0; i < values.size(); i++) {
+            Object directive = pieces.get(2 * (int) (i % Math.max(directives, 1)) + 1);
+            if (directive.equals('d') && integer(values.get(i)) == null) {
+                return null;
+            }
+        }
+
+        return new Program(false, io -> {
+            int consumed = 0;
+            do {
+                for (Object piece : pieces) {
+                    if (piece instanceof String text) {
+                        io.out(text);
+                    } else if (consumed < values.size()) {
+                        String value = values.get(consumed++);
+                        io.out(piece.equals('d') ? String.valueOf(integer(value)) : value);
+                    } else {
+                        io.out(piece.equals('d') ? "0" : "");
+                    }
+                }
+            } while (consumed < values.size());
+            return 0;
+        });
+    }
+
+    private static Long integer(String value) {
+        // like printf, reads a leading zero as octal; anything else, e.g. 08 or 0x10, is left to the real printf
+        if (!value.matches("[+-]?[0-9]{1,18}")) {
+            return null;
+        }
+        String digits = value.charAt(0) == '+' || value.charAt(0) == '-' ? value.substring(1) : value;
+        int radix = digits.length() > 1 && digits.charAt(0) == '0' ? 8 : 10;
+        try {
+            long parsed = Long.parseLong(digits, radix);
+            return value.charAt(0) == '-' ? -parsed : parsed;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static Program cat(List<String> arguments) {
+        if (arguments.stream().anyMatch(argument -> argument.startsWith("-") && !argument.equals("-"))) {
+            return null;
+        }
+
+        List<String> files = arguments.isEmpty() ? List.of("-") : arguments;
+        return new Program(files.contains("-"), io -> {
+            int exitcode = 0;
+            boolean stdinRead = false;
+            for (String file : files) {
+                if (file.equals("-")) {
+                    if (!stdinRead) {
+                        io.stdout().writeBytes(io.stdin());
+                        stdinRead = true;
+                    }
+                    continue;
+                }
+                try {
+                    io.stdout().writeBytes(Files.readAllBytes(io.directory().resolve(file)));
+                } catch (IOException ex) {
+                    io.err("cat: " + file + ": " + reason(io.directory().resolve(file), ex));
+                    exitcode = 1;
+                }
+            }
+            return exitcode;
+        });
+    }
+
+    private static Program head(List<String> arguments) {
+        boolean bytes = false;
+        String count = String.valueOf(HEAD_LINES);
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < arguments.size(); i++) {
+            String argument = arguments.get(i);
+            if ((argument.equals("-n") || argument.equals("-c")) && i + 1 < arguments.size()) {
+                bytes = argument.equals("-c");
+                count = arguments.get(++i);
+            } else if (argument.matches("-[nc].+")) {
+                bytes = argument.charAt(1) == 'c';
+                count = argument.substring(2);
+            } else if (argument.matches("-[0-9]+") && i == 0) {
+                count = argument.substring(1);
+            } else if (argument.equals("-") || !argument.startsWith("-")) {
+                files.add(argument);
+            } else {
+                return null;
+            }
+        }
+        if (files.size() > 1 || !count.matches("[0-9]{1,18}")) {
+            return null;
+        }
+
+        boolean byteMode = bytes;
+        long limit = Long.parseLong(count);
+        String file = files.isEmpty() ? "-" : files.get(0);
+        return new Program(file.equals("-"), io -> {
+            byte[] data;
+            if (file.equals("-")) {
+                data = io.stdin();
+            } else {
+                Path path = io.directory().resolve(file);
+                if (Files.isDirectory(path)) {
+                    io.err("head: error reading '" + file + "': Is a directory");
+                    return 1;
+                }
+                try {
+                    data = Files.readAllBytes(path);
+                } catch (IOException ex) {
+                    io.err("head: cannot open '" + file + "' for reading: " + reason(path, ex));
+                    return 1;
+                }
+            }
+
+            int end = 0;
+            if (byteMode) {
+                end = (int) Math.min(limit, data.length);
+            } else {
+                long lines = 0;
+                while (end < data.length && lines < limit) {
+                    if (data[end++] == '\n') {
+                        lines++;
+                    }
+                }
+            }
+            io.stdout().write(data, 0, end);
+            return 0;
+        });
+    }
+
+    private static Program tr(List<String> arguments) {
+        if (arguments.size() != 2 || !arguments.get(0).equals("-d")) {
+            return null;
+        }
+
+        // only literal characters, ranges and basic escapes are emulated
+        String set = arguments.get(1);
+        boolean[] deleted = new boolean[128];
+        List<Character> chars = new ArrayList<>();
+        for (int i = 0; i < set.length(); i++) {
+            char c = set.charAt(i);
+            if (c == '\\' && i + 1 < set.length()) {
+                c = switch (set.charAt(++i)) {
+                    case 'n' -> '\n';
+                    case 't' -> '\t';
+                    case 'r' -> '\r';
+                    case '\\' -> '\\';
+                    default -> 0;
+                };
+                if (c == 0) {
+                    return null;
+                }
+            } else if (c == '[' || c == '\\' || c >= 128) {
+                return null;
+            }
+            chars.add(c);
+        }
+        for (int i = 0; i < chars.size(); i++) {
+            char c = chars.get(i);
+            if (c == '-' && i > 0 && i + 1 < chars.size()) {
+                char from = chars.get(i - 1);
+                char to = chars.get(++i);
+                if (to < from) {
+                    return null;
+                }
+                for (char range = from; range <= to; range++) {
+                    deleted[range] = true;
+                }
+            } else {
+                deleted[c] = true;
+            }
+        }
+
+        return new Program(true, io -> {
+            for (byte b : io.stdin()) {
+                if (b < 0 || !deleted[b]) {
+                    io.stdout().write(b);
+                }
+            }
+            return 0;
+        });
+    }
+
+    private static Program pwd(List<String> arguments) {
+        if (!arguments.isEmpty() && !arguments.equals(List.of("-P"))) {
+            return null;
+        }
+        return new Program(false, io -> {
+            try {
+                io.out(io.directory().toRealPath() + "\n");
+                return 0;
+            } catch (IOException ex) {
+                io.err("pwd: " + reason(io.directory(), ex));
+                return 1;
+            }
+        });
+    }
+
+    private static String reason(Path path, IOException ex) {
+        if (ex instanceof NoSuchFileException) {
+            return "No such file or directory";
+        }
+        if (ex instanceof AccessDeniedException) {
+            return "Permission denied";
+        }
+        if (Files.isDirectory(path)) {
+            return "Is a directory";
+        }
+        return ex.getMessage();
+    }
+
+    private Builtins(Map<String, Builtin> registry) {
+        this.registry = Collections.unmodifiableMap(registry);
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.artkonr.process;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Byte search utilities that scan eight bytes at a time
+ *  (SIMD within a register), so that large outputs are
+ *  scanned at close to memory bandwidth. Bytes that do not
+ *  fill a whole word are scanned one at a time.
+ */
+class Bytes {
+
+    private static final VarHandle WORD = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * Finds the first occurrence of a byte.
+     * @param data data
+     * @param from index to start at
+     * @param to index to stop at, exclusive
+     * @param target byte to find
+     * @return index of the byte; {@code -1} if not found
+     */
+    static int indexOf(byte[] data, int from, int to, byte target) {
+        long pattern = ONES * (target & 0xFF);
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = (long) WORD.get(data, i) ^ pattern;
+            // may flag bytes above a matching one, but never below it
+            long found = (word - ONES) & ~word & HIGHS;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (data[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first occurrence of a sequence of bytes.
+     * @param data data
+     * @param pattern bytes to find
+     * @return index of the sequence; {@code 0} if the sequence
+     *  is empty; {@code -1} if not found
+     */
+    static int indexOf(byte[] data, byte[] pattern) {
+        if (pattern.length == 0) {
+            return 0;
+        }
+        int last = data.length - pattern.length;
+        int at = 0;
+        while (at <= last) {
+            at = indexOf(data, at, last + 1, pattern[0]);
+            if (at < 0) {
+                return -1;
+            }
+            if (Arrays.equals(data, at + 1, at + pattern.length, pattern, 1, pattern.length)) {
+                return at;
+            }
+            at++;
+        }
+        return -1;
+    }
+
+    /**
+     * Counts the occurrences of a byte.
+     * @param data data
+     * @param target byte to count
+     * @return count
+     */
+    static long count(byte[] data, byte target) {
+        long pattern = ONES * (target & 0xFF);
+        long count = 0;
+        int i = 0;
+        for (; i + Long.BYTES <= data.length; i += Long.BYTES) {
+            long word = (long) WORD.get(data, i) ^ pattern;
+            // flags exactly the zero bytes, unlike the borrowing test of indexOf
+            long zeros = ~(((word & LOWS) + LOWS) | word | LOWS);
+            count += Long.bitCount(zeros);
+        }
+        for (; i < data.length; i++) {
+            if (data[i] == target) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Bytes() { }
+
+}
@@ -0,0 +1,38 @@
+package io.github.artkonr.process;
+
+/**
+ * Defines what happens to a stream of an invoked program.
+ */
+public enum Capture {
+
+    /**
+     * Stream is read and captured into {@link Data}.
+     */
+    PIPE(ProcessBuilder.Redirect.PIPE),
+
+    /**
+     * Stream is discarded by the OS and never read.
+     */
+    DISCARD(ProcessBuilder.Redirect.DISCARD),
+
+    /**
+     * Stream is written straight into the respective
+     *  stream of the current JVM and never read.
+     */
+    INHERIT(ProcessBuilder.Redirect.INHERIT);
+
+    private final ProcessBuilder.Redirect redirect;
+
+    /**
+     * Java {@link ProcessBuilder.Redirect redirect} that
+     *  implements the mode.
+     * @return redirect
+     */
+    public ProcessBuilder.Redirect redirect() {
+        return redirect;
+    }
+
+    Capture(ProcessBuilder.Redirect redirect) {
+        this.redirect = redirect;
+    }
+}
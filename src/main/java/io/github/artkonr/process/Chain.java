@@ -7,8 +7,13 @@ import lombok.NonNull;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -21,13 +26,49 @@ import static io.github.artkonr.process.Util.getCmd;
  * A {@link Shell} implementation that invokes
  *  a pipeline of commands.
  */
-public class Chain implements Shell {
+public non-sealed class Chain implements Shell {
 
     /**
      * Pipeline consisting of {@link ProcessBuilder} instances.
      */
     final List<ProcessBuilder> pipeline = new ArrayList<>();
 
+    /**
+     * Whether exitcode errors are created without a stack trace.
+     */
+    boolean stackless;
+
+    /**
+     * Whether resource {@link Usage usage} is accounted.
+     */
+    boolean account;
+
+    /**
+     * Resource {@link Limits limits} applied to every program on spawn.
+     */
+    Limits limits = Limits.none();
+
+    /**
+     * CPU {@link Placement placement} applied to every program on spawn.
+     */
+    Placement placement = Placement.any();
+
+    /**
+     * {@link Builtins Builtins} emulated instead of spawning, nullable.
+     */
+    Builtins builtins;
+
+    /**
+     * Whether the pipeline is aborted on the first failed program.
+     */
+    boolean failFast;
+
+    /**
+     * {@link Util#probe(ProcessBuilder) Probes} run by {@link Chain#status()},
+     *  prepared on its first call after the pipeline has changed.
+     */
+    private volatile List<ProcessBuilder> probes;
+
     /**
      * Factory method. Creates a new {@link Chain}.
      * @param pb java {@link ProcessBuilder}
@@ -59,6 +100,18 @@ public class Chain implements Shell {
         return from(command.handle);
     }
 
+    /**
+     * Factory method. Creates a new {@link Merge fan-in} invocation
+     *  that merges stdout of several programs or pipelines into
+     *  a single {@link Merge#into(Shell) consumer}.
+     * @param producers programs or pipelines to merge
+     * @return new instance
+     * @throws IllegalArgumentException if no producers provided
+     */
+    public static Merge merge(@NonNull Shell... producers) {
+        return Merge.from(producers);
+    }
+
     /**
      * {@inheritDoc}
      * @param pb program
@@ -68,6 +121,7 @@ public class Chain implements Shell {
     @Override
     public Chain pipeTo(@NonNull ProcessBuilder pb) {
         pipeline.add(pb);
+        probes = null;
         return this;
     }
 
@@ -94,27 +148,215 @@ public class Chain implements Shell {
         return pipeTo(command.handle);
     }
 
+    /**
+     * {@inheritDoc}
+     * @param branches programs or pipelines to feed
+     * @return new fan-out invocation
+     * @throws IllegalArgumentException if no branches provided
+     */
+    @Override
+    public Tee teeTo(@NonNull Shell... branches) {
+        return Tee.from(this, branches);
+    }
+
+    /**
+     * Makes {@link CmdException exitcode errors} of every program
+     *  in the pipeline stackless.
+     * @return this instance
+     * @see Cmd#stackless()
+     */
+    public Chain stackless() {
+        this.stackless = true;
+        return this;
+    }
+
+    /**
+     * Enables resource {@link Usage accounting} for every program
+     *  in the pipeline.
+     * @return this instance
+     * @see Cmd#account()
+     */
+    public Chain account() {
+        this.account = true;
+        return this;
+    }
+
+    /**
+     * Applies resource {@link Limits limits} to every program
+     *  in the pipeline; each program is limited individually.
+     * @param limits limits
+     * @return this instance
+     * @throws IllegalArgumentException if no argument provided
+     * @see Cmd#limit(Limits)
+     */
+    public Chain limit(@NonNull Limits limits) {
+        this.limits = limits;
+        return this;
+    }
+
+    /**
+     * Applies CPU {@link Placement placement} to every program
+     *  in the pipeline.
+     * @param placement placement
+     * @return this instance
+     * @throws IllegalArgumentException if no argument provided
+     * @see Cmd#place(Placement)
+     */
+    public Chain place(@NonNull Placement placement) {
+        this.placement = placement;
+        return this;
+    }
+
+    /**
+     * Lets this pipeline be emulated in the JVM on
+     *  {@link Chain#invoke() invocation}, if builtins
+     *  understand every program in it.
+     * @param builtins builtins
+     * @return this instance
+     * @throws IllegalArgumentException if no argument provided
+     * @see Cmd#builtins(Builtins)
+     */
+    public Chain builtins(@NonNull Builtins builtins) {
+        this.builtins = builtins;
+        return this;
+    }
+
+    /**
+     * Aborts the pipeline as soon as any program in it exits
+     *  abnormally: the rest of the programs are killed and the
+     *  invocation fails with the error of the program that failed
+     *  first, instead of the pipeline running until its input is
+     *  exhausted. Applies to {@link Chain#invoke() invocation}.
+     * @return this instance
+     */
+    public Chain failFast() {
+        this.failFast = true;
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      * @return invocation {@link Result}
      */
     @Override
     public Result<io.github.artkonr.process.Output, CmdException> invoke() {
-        Result<List<Process>, Exception> invoked = Result
-                .wrap(() -> ProcessBuilder.startPipeline(pipeline));
+        var emulated = emulate();
+        if (emulated.isPresent()) {
+            return emulated.get();
+        }
+        Result<List<Process>, Exception> invoked = spawn();
+        Handler handler = (process, pb) -> handle(process, Cmd.Spec.of(pb, stackless, placement));
+        return failFast ? invokeFailFast(invoked, handler) : invoke(invoked, handler);
+    }
 
-        int endI = pipeline.size() - 1;
-        var fin = handle(
-                invoked.map(processes -> processes.get(endI)),
-                getCmd(pipeline.get(endI))
-        );
-        var intermediate = invoked
-                .map(processes -> processes.subList(0, endI))
-                .<CmdException>stack(CmdException::wrap)
-                .then(processes -> handleIntermediate(processes, endI));
-        return fin
-                .fuse(intermediate, TakeFrom.TAIL)
-                .map(fuse -> Output.from(fuse.left(), fuse.right()));
+    /**
+     * {@inheritDoc}
+     * <p>Streams of every program in the pipeline are attached
+     *  to the {@link Reactor} before waiting for any of them.
+     * @param reactor reactor to drain the streams on
+     * @return invocation {@link Result}
+     * @throws IllegalArgumentException if no argument provided
+     */
+    @Override
+    public Result<io.github.artkonr.process.Output, CmdException> invoke(@NonNull Reactor reactor) {
+        var emulated = emulate();
+        if (emulated.isPresent()) {
+            return emulated.get();
+        }
+        return invoke(reactor, new ArrayList<>());
+    }
+
+    /**
+     * Spawns the pipeline, without {@link Builtins emulating} it,
+     *  and drains the streams on a {@link Reactor}. The attached
+     *  streams are added to the provided list, so that they can be
+     *  inspected once the invocation completes.
+     * @param reactor reactor to drain the streams on
+     * @param attached list to add the attached streams of every
+     *                 program to, in order of the pipeline
+     * @return invocation {@link Result}
+     */
+    Result<io.github.artkonr.process.Output, CmdException> invoke(Reactor reactor, List<Reactor.Streams> attached) {
+        Map<Process, Reactor.Streams> streams = new IdentityHashMap<>();
+        Result<List<Process>, Exception> invoked = spawn()
+                .map(processes -> {
+                    streams.putAll(attach(processes, specs(), reactor));
+                    processes.forEach(process -> attached.add(streams.get(process)));
+                    return processes;
+                });
+        Handler handler = (process, pb) -> handle(process, Cmd.Spec.of(pb, stackless, placement), streams::get);
+        return failFast ? invokeFailFast(invoked, handler) : invoke(invoked, handler);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param reactor reactor to drain the streams on
+     * @return {@link Result} bearing the handle of a running pipeline
+     * @throws IllegalArgumentException if no argument provided
+     */
+    @Override
+    public Result<Job, CmdException> start(@NonNull Reactor reactor) {
+        return spawn()
+                .<CmdException>stack(ex -> new CmdException("command failed", ex))
+                .map(processes -> {
+                    Map<Process, Reactor.Streams> attached = attach(processes, specs(), reactor);
+                    return Job.from(
+                            processes,
+                            getCmd(pipeline),
+                            pipeline.get(pipeline.size() - 1).redirectErrorStream(),
+                            processes.stream().map(attached::get).toList(),
+                            () -> await(processes, attached)
+                    );
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Stderr of every program and stdout of the last one are
+     *  discarded by the OS. The programs are prepared on the first
+     *  call and then reused until another program is piped to, so
+     *  later changes to the working directory, stdin or environment
+     *  of the wrapped {@link ProcessBuilder}s are not seen here.
+     * @return {@link Result} bearing the first non-zero exitcode
+     *  in the pipeline, or zero if all programs exited normally
+     */
+    @Override
+    public Result<Integer, CmdException> status() {
+        List<ProcessBuilder> probes = this.probes;
+        if (probes == null) {
+            probes = pipeline.stream().map(Util::probe).toList();
+            probes.get(probes.size() - 1).redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            this.probes = probes;
+        }
+        return Launch.startPipeline(probes, limits, placement)
+                .then(processes -> Result
+                        .wrap(InterruptedException.class, () -> {
+                            int status = 0;
+                            for (Process process : processes) {
+                                int exitcode = process.waitFor();
+                                if (status == 0) {
+                                    status = exitcode;
+                                }
+                            }
+                            return status;
+                        })
+                        .upcast()
+                )
+                .<CmdException>stack(ex -> new CmdException("command failed", ex));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param executor executor to read the streams on
+     * @return {@link Result} bearing the {@link Feed} of a running pipeline
+     * @throws IllegalArgumentException if no argument provided
+     */
+    @Override
+    public Result<Feed, CmdException> publish(@NonNull Executor executor) {
+        List<ProcessBuilder> stages = List.copyOf(pipeline);
+        return Launch.startPipeline(pipeline, limits, placement)
+                .<CmdException>stack(ex -> new CmdException("command failed", ex))
+                .map(processes -> Feed.from(processes, stages, executor));
     }
 
     /**
@@ -152,10 +394,9 @@ public class Chain implements Shell {
          */
         @Override
         public String command() {
-            String intermediate = this.intermediate.stream()
+            return stages().stream()
                     .map(io.github.artkonr.process.Output::command)
                     .collect(Collectors.joining(" | "));
-            return intermediate + " | " + fin.command();
         }
 
         /**
@@ -220,6 +461,48 @@ public class Chain implements Shell {
             return fin.stderr();
         }
 
+        /**
+         * Checks if stderr of the last program in the pipeline
+         *  was merged into its stdout.
+         * @return {@code true} if stderr was merged into stdout;
+         *  {@code false} otherwise
+         */
+        @Override
+        public boolean merged() {
+            return fin.merged();
+        }
+
+        /**
+         * Combined resource usage of all programs in the pipeline,
+         *  if accounting was enabled. See {@link Usage#combine(Usage)}.
+         * @return optional resource usage
+         */
+        @Override
+        public Optional<Usage> usage() {
+            return stages().stream()
+                    .map(io.github.artkonr.process.Output::usage)
+                    .flatMap(Optional::stream)
+                    .reduce(Usage::combine);
+        }
+
+        /**
+         * CPU placement of the last program in the pipeline;
+         *  all programs of a pipeline share the same placement.
+         * @return optional CPU placement
+         */
+        @Override
+        public Optional<Placement> placement() {
+            return fin.placement();
+        }
+
+        /**
+         * Outputs of every program in the pipeline, in order.
+         * @return program outputs
+         */
+        public List<io.github.artkonr.process.Output> stages() {
+            return Stream.concat(intermediate.stream(), Stream.of(fin)).toList();
+        }
+
         /**
          * Factory method
          * @param fin output of the last invoked program
@@ -238,20 +521,160 @@ public class Chain implements Shell {
         }
     }
 
+    /**
+     * Lifts a {@link Shell} into a {@link Chain}. A {@link Cmd}
+     *  becomes a single-program pipeline with the same settings.
+     * @param shell command or pipeline
+     * @return pipeline
+     */
+    static Chain lift(Shell shell) {
+        if (shell instanceof Chain chain) {
+            return chain;
+        }
+
+        Cmd cmd = (Cmd) shell;
+        Chain chain = from(cmd);
+        chain.stackless = cmd.stackless;
+        chain.account = cmd.account;
+        chain.limits = cmd.limits;
+        chain.placement = cmd.placement;
+        return chain;
+    }
+
+    /**
+     * Spawns every program in the pipeline.
+     * @return {@link Result} bearing the running programs
+     */
+    Result<List<Process>, Exception> spawn() {
+        Flight.Spawn event = Flight.spawn();
+        return Launch.startPipeline(pipeline, limits, placement)
+                .map(processes -> Flight.spawned(event, pipeline, processes))
+                .map(processes -> account
+                        ? processes.stream().<Process>map(MeteredProcess::wrap).toList()
+                        : processes);
+    }
+
+    /**
+     * Describes what is captured from every program in the pipeline.
+     * @return specs, in pipeline order
+     */
+    List<Cmd.Spec> specs() {
+        return pipeline.stream()
+                .map(pb -> Cmd.Spec.of(pb, stackless, placement))
+                .toList();
+    }
+
+    /**
+     * Attaches streams of running programs to a {@link Reactor}.
+     * @param processes running programs
+     * @param specs what to capture from each program
+     * @param reactor reactor to drain the streams on
+     * @return attached streams per program
+     */
+    static Map<Process, Reactor.Streams> attach(List<Process> processes, List<Cmd.Spec> specs, Reactor reactor) {
+        Map<Process, Reactor.Streams> attached = new IdentityHashMap<>();
+        for (int i = 0; i < processes.size(); i++) {
+            attached.put(processes.get(i), reactor.attach(processes.get(i), specs.get(i)));
+        }
+        return attached;
+    }
+
+    /**
+     * Waits for running programs whose streams are attached
+     *  to a {@link Reactor} and handles the pipeline invocation.
+     * @param processes running programs
+     * @param attached attached streams per program
+     * @return invocation {@link Result}
+     */
+    Result<io.github.artkonr.process.Output, CmdException> await(List<Process> processes,
+                                                                 Map<Process, Reactor.Streams> attached) {
+        return invoke(
+                new Ok<>(processes),
+                (process, pb) -> handle(process, Cmd.Spec.of(pb, stackless, placement), attached::get)
+        );
+    }
+
+    private Optional<Result<io.github.artkonr.process.Output, CmdException>> emulate() {
+        return builtins == null ? Optional.empty() : builtins.invoke(this);
+    }
+
     private Chain(ProcessBuilder first) {
         this.pipeline.add(first);
     }
 
+    private Result<io.github.artkonr.process.Output, CmdException> invoke(Result<List<Process>, Exception> invoked,
+                                                                          Handler handler) {
+        int endI = pipeline.size() - 1;
+        var fin = handler.handle(
+                invoked.map(processes -> processes.get(endI)),
+                pipeline.get(endI)
+        );
+        var intermediate = invoked
+                .map(processes -> processes.subList(0, endI))
+                .<CmdException>stack(CmdException::wrap)
+                .then(processes -> handleIntermediate(processes, endI, handler));
+        return fin
+                .fuse(intermediate, TakeFrom.TAIL)
+                .map(fuse -> Output.from(fuse.left(), fuse.right()));
+    }
+
+    private Result<io.github.artkonr.process.Output, CmdException> invokeFailFast(
+            Result<List<Process>, Exception> invoked,
+            Handler handler) {
+        if (invoked.isErr()) {
+            return invoke(invoked, handler);
+        }
+
+        List<Process> processes = invoked.value();
+        AtomicInteger origin = new AtomicInteger(-1);
+        CompletableFuture<?>[] watchers = new CompletableFuture[processes.size()];
+        for (int i = 0; i < processes.size(); i++) {
+            int stage = i;
+            watchers[i] = processes.get(i).onExit().thenAccept(exited -> {
+                if (exited.exitValue() != 0 && origin.compareAndSet(-1, stage)) {
+                    // killed through the handle, as Process#destroyForcibly closes the streams left to read
+                    processes.stream()
+                            .filter(Process::isAlive)
+                            .forEach(process -> process.toHandle().destroyForcibly());
+                }
+            });
+        }
+
+        List<Result<io.github.artkonr.process.Output, CmdException>> stages = IntStream
+                .range(0, processes.size())
+                .mapToObj(idx -> handler.handle(new Ok<>(processes.get(idx)), pipeline.get(idx)))
+                .toList();
+        CompletableFuture.allOf(watchers).join();
+        if (origin.get() >= 0) {
+            return stages.get(origin.get());
+        }
+
+        int endI = stages.size() - 1;
+        return stages.get(endI)
+                .fuse(Result.join(stages.subList(0, endI), TakeFrom.HEAD), TakeFrom.TAIL)
+                .map(fuse -> Output.from(fuse.left(), fuse.right()));
+    }
+
     private Result<List<io.github.artkonr.process.Output>, CmdException> handleIntermediate(List<Process> processes,
-                                                                                            int toIndex) {
+                                                                                            int toIndex,
+                                                                                            Handler handler) {
         return IntStream.range(0, toIndex)
-                .mapToObj(idx -> handle(
+                .mapToObj(idx -> handler.handle(
                         new Ok<>(processes.get(idx)),
-                        getCmd(pipeline.get(idx))
+                        pipeline.get(idx)
                 ))
                 .collect(Collectors.collectingAndThen(
                         Collectors.toList(),
                         items -> Result.join(items, TakeFrom.HEAD)
                 ));
     }
+
+    /**
+     * Handles invocation of a single program in the pipeline.
+     */
+    @FunctionalInterface
+    private interface Handler {
+        Result<io.github.artkonr.process.Output, CmdException> handle(Result<Process, Exception> result,
+                                                                      ProcessBuilder pb);
+    }
 }
@@ -1,8 +1,17 @@
 package io.github.artkonr.process;
 
+import io.github.artkonr.result.Ok;
 import io.github.artkonr.result.Result;
 import lombok.NonNull;
 
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static io.github.artkonr.process.Util.*;
 
@@ -10,13 +19,44 @@ import static io.github.artkonr.process.Util.*;
  * A {@link Shell} implementation that invokes a single
  *  program with its arguments.
  */
-public class Cmd implements Shell {
+public non-sealed class Cmd implements Shell {
 
     /**
      * Wrapped {@link ProcessBuilder}
      */
     final ProcessBuilder handle;
 
+    /**
+     * Whether exitcode errors are created without a stack trace.
+     */
+    boolean stackless;
+
+    /**
+     * Whether resource {@link Usage usage} is accounted.
+     */
+    boolean account;
+
+    /**
+     * Resource {@link Limits limits} applied on spawn.
+     */
+    Limits limits = Limits.none();
+
+    /**
+     * CPU {@link Placement placement} applied on spawn.
+     */
+    Placement placement = Placement.any();
+
+    /**
+     * {@link Builtins Builtins} emulated instead of spawning, nullable.
+     */
+    Builtins builtins;
+
+    /**
+     * {@link Util#probe(ProcessBuilder) Probe} run by {@link Cmd#status()},
+     *  prepared on its first call.
+     */
+    private volatile ProcessBuilder probe;
+
     /**
      * Factory method. Creates a new {@link Cmd command}.
      * @param pb java {@link ProcessBuilder}
@@ -72,18 +112,273 @@ public class Cmd implements Shell {
         return Chain.from(this).pipeTo(command);
     }
 
+    /**
+     * Sets what happens to stdout of the program.
+     * @param mode capture mode
+     * @return this instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Cmd stdout(@NonNull Capture mode) {
+        handle.redirectOutput(mode.redirect());
+        return this;
+    }
+
+    /**
+     * Sets what happens to stderr of the program. Has no
+     *  effect if stderr is {@link Cmd#mergeStderr() merged}.
+     * @param mode capture mode
+     * @return this instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Cmd stderr(@NonNull Capture mode) {
+        handle.redirectError(mode.redirect());
+        return this;
+    }
+
+    /**
+     * Merges stderr of the program into its stdout, so that
+     *  both are captured as a single stream in the order the
+     *  program wrote them. Only one pipe is then opened and read.
+     * <p>In this mode the {@link Output#stdout() stdout} of the
+     *  invocation bears the combined output, while
+     *  {@link Output#stderr() stderr} is always empty.
+     * @return this instance
+     * @see ProcessBuilder#redirectErrorStream(boolean)
+     */
+    public Cmd mergeStderr() {
+        handle.redirectErrorStream(true);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param branches programs or pipelines to feed
+     * @return new fan-out invocation
+     * @throws IllegalArgumentException if no branches provided
+     */
+    @Override
+    public Tee teeTo(@NonNull Shell... branches) {
+        return Tee.from(this, branches);
+    }
+
+    /**
+     * Invokes this command over a large list of arguments,
+     *  split into batches that fit the command line limits,
+     *  much like {@code xargs}.
+     * @param arguments arguments to append, in order
+     * @return new batched invocation
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Batch xargs(@NonNull Collection<String> arguments) {
+        return Batch.from(this, arguments);
+    }
+
+    /**
+     * Makes {@link CmdException exitcode errors} of this command
+     *  stackless. Useful for commands where a non-zero exitcode is
+     *  routine, e.g. {@code grep} with no match, and the error is
+     *  only branched upon.
+     * @return this instance
+     */
+    public Cmd stackless() {
+        this.stackless = true;
+        return this;
+    }
+
+    /**
+     * Enables resource {@link Usage accounting} for this command,
+     *  reported in {@link Output#usage()}.
+     * @return this instance
+     */
+    public Cmd account() {
+        this.account = true;
+        return this;
+    }
+
+    /**
+     * Applies resource {@link Limits limits} to this command.
+     * @param limits limits
+     * @return this instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Cmd limit(@NonNull Limits limits) {
+        this.limits = limits;
+        return this;
+    }
+
+    /**
+     * Applies CPU {@link Placement placement} to this command,
+     *  reported in {@link Output#placement()}.
+     * @param placement placement
+     * @return this instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Cmd place(@NonNull Placement placement) {
+        this.placement = placement;
+        return this;
+    }
+
+    /**
+     * Lets this command be emulated in the JVM by a builtin
+     *  on {@link Cmd#invoke() invocation}, if the builtin
+     *  understands it.
+     * @param builtins builtins
+     * @return this instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Cmd builtins(@NonNull Builtins builtins) {
+        this.builtins = builtins;
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      * @return invocation {@link Result}
      */
     @Override
     public Result<io.github.artkonr.process.Output, CmdException> invoke() {
+        var emulated = emulate();
+        if (emulated.isPresent()) {
+            return emulated.get();
+        }
+        return handle(
+                spawn(),
+                Spec.of(handle, stackless, placement)
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param reactor reactor to drain the streams on
+     * @return invocation {@link Result}
+     * @throws IllegalArgumentException if no argument provided
+     */
+    @Override
+    public Result<io.github.artkonr.process.Output, CmdException> invoke(@NonNull Reactor reactor) {
+        var emulated = emulate();
+        if (emulated.isPresent()) {
+            return emulated.get();
+        }
+        return invoke(reactor, new ArrayList<>());
+    }
+
+    /**
+     * Spawns the program, without {@link Builtins emulating} it,
+     *  and drains its streams on a {@link Reactor}. The attached
+     *  streams are added to the provided list, so that they can be
+     *  inspected once the invocation completes.
+     * @param reactor reactor to drain the streams on
+     * @param attached list to add the attached streams to
+     * @return invocation {@link Result}
+     */
+    Result<io.github.artkonr.process.Output, CmdException> invoke(Reactor reactor, List<Reactor.Streams> attached) {
+        Spec spec = Spec.of(handle, stackless, placement);
         return handle(
-                Result.wrap(handle::start),
-                getCmd(handle)
+                spawn(),
+                spec,
+                process -> {
+                    Reactor.Streams streams = reactor.attach(process, spec);
+                    attached.add(streams);
+                    return streams;
+                }
         );
     }
 
+    /**
+     * {@inheritDoc}
+     * @param reactor reactor to drain the streams on
+     * @return {@link Result} bearing the handle of a running program
+     * @throws IllegalArgumentException if no argument provided
+     */
+    @Override
+    public Result<Job, CmdException> start(@NonNull Reactor reactor) {
+        Spec spec = Spec.of(handle, stackless, placement);
+        return spawn()
+                .<CmdException>stack(ex -> new CmdException("command failed", ex))
+                .map(process -> {
+                    Reactor.Streams streams = reactor.attach(process, spec);
+                    return Job.from(
+                            List.of(process),
+                            spec.cmd(),
+                            spec.merged(),
+                            List.of(streams),
+                            () -> handle(new Ok<>(process), spec, ignored -> streams)
+                    );
+                });
+    }
+
+    /**
+     * Starts the program in the background and returns a handle
+     *  to it once it is ready. Output is drained on the
+     *  {@link Reactor#shared() shared reactor} into ring buffers
+     *  of {@value Service#BUFFER} bytes per stream.
+     * @param readiness readiness condition
+     * @return {@link Result} bearing the handle of a ready program
+     * @throws IllegalArgumentException if no argument provided
+     * @see Cmd#spawnBackground(Readiness, int, Reactor)
+     */
+    public Result<Service, CmdException> spawnBackground(@NonNull Readiness readiness) {
+        return spawnBackground(readiness, Service.BUFFER, Reactor.shared());
+    }
+
+    /**
+     * Starts the program in the background and returns a handle
+     *  to it once it is ready. A program that is not ready in time
+     *  or exits before it is ready is killed.
+     * @param readiness readiness condition
+     * @param buffer size of the ring buffer of each stream, bytes
+     * @param reactor reactor to drain the streams on
+     * @return {@link Result} bearing the handle of a ready program
+     * @throws IllegalArgumentException if no argument provided or the buffer size is not positive
+     */
+    public Result<Service, CmdException> spawnBackground(@NonNull Readiness readiness,
+                                                         int buffer,
+                                                         @NonNull Reactor reactor) {
+        if (buffer <= 0) {
+            throw new IllegalArgumentException("buffer size must be positive");
+        }
+        Spec spec = Spec.of(handle, stackless, placement);
+        return spawn()
+                .<CmdException>stack(ex -> new CmdException("command failed", ex))
+                .then(process -> Service.start(process, spec, reactor.attach(process, spec, buffer), readiness));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Both streams of the program are discarded by the OS. The
+     *  program is prepared on the first call and then reused, so
+     *  later changes to the working directory, stdin or environment
+     *  of the wrapped {@link ProcessBuilder} are not seen here.
+     * @return {@link Result} bearing the exitcode
+     */
+    @Override
+    public Result<Integer, CmdException> status() {
+        ProcessBuilder probe = this.probe;
+        if (probe == null) {
+            probe = probe(handle).redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            this.probe = probe;
+        }
+        return Launch.start(probe, limits, placement)
+                .then(process -> Result
+                        .wrap(InterruptedException.class, process::waitFor)
+                        .upcast()
+                )
+                .<CmdException>stack(ex -> new CmdException("command failed", ex));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param executor executor to read the streams on
+     * @return {@link Result} bearing the {@link Feed} of a running program
+     * @throws IllegalArgumentException if no argument provided
+     */
+    @Override
+    public Result<Feed, CmdException> publish(@NonNull Executor executor) {
+        return Launch.start(handle, limits, placement)
+                .<CmdException>stack(ex -> new CmdException("command failed", ex))
+                .map(process -> Feed.from(process, handle, executor));
+    }
+
     /**
      * {@link Output Output} of a single {@link Cmd command}.
      */
@@ -94,6 +389,9 @@ public class Cmd implements Shell {
         private final int exitcode;
         private final Data stdout;
         private final Data stderr;
+        private final boolean merged;
+        private final Usage usage;
+        private final Placement placement;
 
         /**
          * {@inheritDoc}
@@ -128,7 +426,7 @@ public class Cmd implements Shell {
          */
         @Override
         public Cmd.Output devnull() {
-            return new Cmd.Output(pid, cmd, exitcode, new Data(null), new Data(null));
+            return new Cmd.Output(pid, cmd, exitcode, new Data(null), new Data(null), merged, usage, placement);
         }
 
         /**
@@ -149,6 +447,33 @@ public class Cmd implements Shell {
             return stderr;
         }
 
+        /**
+         * {@inheritDoc}
+         * @return {@code true} if stderr was merged into stdout
+         */
+        @Override
+        public boolean merged() {
+            return merged;
+        }
+
+        /**
+         * {@inheritDoc}
+         * @return optional resource usage
+         */
+        @Override
+        public Optional<Usage> usage() {
+            return Optional.ofNullable(usage);
+        }
+
+        /**
+         * {@inheritDoc}
+         * @return optional CPU placement
+         */
+        @Override
+        public Optional<Placement> placement() {
+            return Optional.ofNullable(placement);
+        }
+
         /**
          * Factory method.
          * @param pid PID
@@ -163,18 +488,102 @@ public class Cmd implements Shell {
                                                      int exitcode,
                                                      byte[] stdout,
                                                      byte[] stderr) {
-            return new Output(pid, cmd, exitcode, new Data(stdout), new Data(stderr));
+            return from(pid, cmd, exitcode, stdout, stderr, false);
+        }
+
+        /**
+         * Factory method.
+         * @param pid PID
+         * @param cmd command
+         * @param exitcode exit code
+         * @param stdout stdout
+         * @param stderr stderr
+         * @param merged whether stderr was merged into stdout
+         * @return new instance
+         */
+        static io.github.artkonr.process.Output from(long pid,
+                                                     String cmd,
+                                                     int exitcode,
+                                                     byte[] stdout,
+                                                     byte[] stderr,
+                                                     boolean merged) {
+            return from(pid, cmd, exitcode, stdout, stderr, merged, null);
+        }
+
+        /**
+         * Factory method.
+         * @param pid PID
+         * @param cmd command
+         * @param exitcode exit code
+         * @param stdout stdout
+         * @param stderr stderr
+         * @param merged whether stderr was merged into stdout
+         * @param usage resource usage, nullable
+         * @return new instance
+         */
+        static io.github.artkonr.process.Output from(long pid,
+                                                     String cmd,
+                                                     int exitcode,
+                                                     byte[] stdout,
+                                                     byte[] stderr,
+                                                     boolean merged,
+                                                     Usage usage) {
+            return from(pid, cmd, exitcode, stdout, stderr, merged, usage, null);
+        }
+
+        /**
+         * Factory method.
+         * @param pid PID
+         * @param cmd command
+         * @param exitcode exit code
+         * @param stdout stdout
+         * @param stderr stderr
+         * @param merged whether stderr was merged into stdout
+         * @param usage resource usage, nullable
+         * @param placement CPU placement, nullable
+         * @return new instance
+         */
+        static io.github.artkonr.process.Output from(long pid,
+                                                     String cmd,
+                                                     int exitcode,
+                                                     byte[] stdout,
+                                                     byte[] stderr,
+                                                     boolean merged,
+                                                     Usage usage,
+                                                     Placement placement) {
+            return new Output(pid, cmd, exitcode, new Data(stdout), new Data(stderr), merged, usage, placement);
         }
 
-        private Output(long pid, String cmd, int exitcode, Data stdout, Data stderr) {
+        private Output(long pid,
+                       String cmd,
+                       int exitcode,
+                       Data stdout,
+                       Data stderr,
+                       boolean merged,
+                       Usage usage,
+                       Placement placement) {
             this.pid = pid;
             this.cmd = cmd;
             this.exitcode = exitcode;
             this.stdout = stdout;
             this.stderr = stderr;
+            this.merged = merged;
+            this.usage = usage;
+            this.placement = placement;
         }
     }
 
+    /**
+     * Handles the command invocation.
+     * @param result handled result
+     * @param pb invoked program
+     * @return invocation {@link Result}
+     */
+    static Result<io.github.artkonr.process.Output, CmdException> handle(Result<Process, Exception> result,
+                                                                         ProcessBuilder pb) {
+        return handle(result, Spec.of(pb));
+    }
+
     /**
      * Handles the command invocation.
      * @param result handled result
@@ -183,32 +592,201 @@ public class Cmd implements Shell {
      */
     static Result<io.github.artkonr.process.Output, CmdException> handle(Result<Process, Exception> result,
                                                                          String cmd) {
-        return result
+        return handle(result, Spec.of(cmd));
+    }
+
+    /**
+     * Handles the command invocation. Streams that are not
+     *  captured according to the {@link Spec} are not read at all.
+     * @param result handled result
+     * @param spec invocation spec
+     * @return invocation {@link Result}
+     */
+    static Result<io.github.artkonr.process.Output, CmdException> handle(Result<Process, Exception> result,
+                                                                         Spec spec) {
+        return check(spec, result
                 .then(process -> Result
-                        .wrap(InterruptedException.class, process::waitFor)
+                        .wrap(InterruptedException.class, () -> Flight.waitFor(process, spec.cmd()))
                         .upcast()
                         .then(exitCode ->
-                                 read(process.inputReader())
-                                .fuse(read(process.errorReader()))
+                                 capture(process, process::inputReader, spec, "stdout", spec.stdout())
+                                .fuse(capture(process, process::errorReader, spec, "stderr", spec.stderr()))
                                 .map(fuse -> Output.from(
                                         process.pid(),
-                                        cmd,
+                                        spec.cmd(),
                                         exitCode,
                                         fuse.left(),
-                                        fuse.right()
+                                        fuse.right(),
+                                        spec.merged(),
+                                        MeteredProcess.usage(process),
+                                        spec.placement()
                                 ))
                         )
                 )
+        );
+    }
+
+    /**
+     * Handles the command invocation, draining the program
+     *  streams on a {@link Reactor} while waiting for it to exit.
+     * @param result handled result
+     * @param spec invocation spec
+     * @param attach attaches program streams to a {@link Reactor}
+     * @return invocation {@link Result}
+     */
+    static Result<io.github.artkonr.process.Output, CmdException> handle(Result<Process, Exception> result,
+                                                                         Spec spec,
+                                                                         Function<Process, Reactor.Streams> attach) {
+        return check(spec, result
+                .then(process -> {
+                    Reactor.Streams streams = attach.apply(process);
+                    return Result
+                            .wrap(InterruptedException.class, () -> Flight.waitFor(process, spec.cmd()))
+                            .upcast()
+                            .then(exitCode -> streams.stdout().await()
+                                    .fuse(streams.stderr().await())
+                                    .map(fuse -> Output.from(
+                                            process.pid(),
+                                            spec.cmd(),
+                                            exitCode,
+                                            fuse.left(),
+                                            fuse.right(),
+                                            spec.merged(),
+                                            MeteredProcess.usage(process),
+                                            spec.placement()
+                                    ))
+                            );
+                })
+        );
+    }
+
+    /**
+     * Describes what is captured from a single program invocation.
+     * @param cmd invoked command
+     * @param stdout whether stdout is read
+     * @param stderr whether stderr is read
+     * @param merged whether stderr is merged into stdout
+     * @param stackless whether exitcode errors are stackless
+     * @param placement CPU placement applied on spawn, nullable
+     */
+    record Spec(String cmd, boolean stdout, boolean stderr, boolean merged, boolean stackless, Placement placement) {
+
+        /**
+         * Factory method. Derives the spec from the redirects
+         *  of a {@link ProcessBuilder}.
+         * @param pb invoked program
+         * @return new instance
+         */
+        static Spec of(ProcessBuilder pb) {
+            return of(pb, false);
+        }
+
+        /**
+         * Factory method. Derives the spec from the redirects
+         *  of a {@link ProcessBuilder}.
+         * @param pb invoked program
+         * @param stackless whether exitcode errors are stackless
+         * @return new instance
+         */
+        static Spec of(ProcessBuilder pb, boolean stackless) {
+            return of(pb, stackless, Placement.any());
+        }
+
+        /**
+         * Factory method. Derives the spec from the redirects
+         *  of a {@link ProcessBuilder}.
+         * @param pb invoked program
+         * @param stackless whether exitcode errors are stackless
+         * @param placement CPU placement applied on spawn
+         * @return new instance
+         */
+        static Spec of(ProcessBuilder pb, boolean stackless, Placement placement) {
+            boolean merged = pb.redirectErrorStream();
+            return new Spec(
+                    getCmd(pb),
+                    pb.redirectOutput().type() == ProcessBuilder.Redirect.Type.PIPE,
+                    !merged && pb.redirectError().type() == ProcessBuilder.Redirect.Type.PIPE,
+                    merged,
+                    stackless,
+                    placement.isEmpty() ? null : placement
+            );
+        }
+
+        /**
+         * Factory method. Creates a spec that captures both streams.
+         * @param cmd invoked command
+         * @return new instance
+         */
+        static Spec of(String cmd) {
+            return new Spec(cmd, true, true, false, false, null);
+        }
+
+        /**
+         * Derives a spec that leaves stdout to someone else,
+         *  e.g. when it is {@link Tee teed}.
+         * @return new instance
+         */
+        Spec skipStdout() {
+            return new Spec(cmd, false, stderr, merged, stackless, placement);
+        }
+    }
+
+    /**
+     * Derives a command that invokes the same program with extra
+     *  arguments appended, keeping all settings of {@code this} instance.
+     * @param arguments extra arguments
+     * @return new instance
+     */
+    Cmd append(List<String> arguments) {
+        ProcessBuilder pb = copy(handle);
+        pb.command().addAll(arguments);
+        Cmd derived = new Cmd(pb);
+        derived.stackless = stackless;
+        derived.account = account;
+        derived.limits = limits;
+        derived.placement = placement;
+        derived.builtins = builtins;
+        return derived;
+    }
+
+    private Optional<Result<io.github.artkonr.process.Output, CmdException>> emulate() {
+        return builtins == null ? Optional.empty() : builtins.invoke(this);
+    }
+
+    private Result<Process, Exception> spawn() {
+        Flight.Spawn event = Flight.spawn();
+        return Launch.start(handle, limits, placement)
+                .map(process -> Flight.spawned(event, handle, process))
+                .map(process -> account ? MeteredProcess.wrap(process) : process);
+    }
+
+    private static Result<byte[], Exception> capture(Process process,
+                                                     Supplier<BufferedReader> reader,
+                                                     Spec spec,
+                                                     String stream,
+                                                     boolean enabled) {
+        if (!enabled) {
+            return new Ok<>(null);
+        }
+        Flight.Drain event = Flight.drain(spec.cmd(), process.pid(), stream);
+        Result<byte[], Exception> data = read(reader.get());
+        Flight.drained(event, data.isOk() && data.value() != null ? data.value().length : 0, data.isErr());
+        return data;
+    }
+
+    private static Result<io.github.artkonr.process.Output, CmdException> check(
+            Spec spec,
+            Result<io.github.artkonr.process.Output, Exception> result) {
+        Result<io.github.artkonr.process.Output, CmdException> checked = result
                 .<CmdException>stack(ex -> new CmdException("command failed", ex))
                 .taint(
                         output -> !output.exitedNormally(),
-                        output -> CmdException.errorExitCode(
-                                0,
-                                output.command(),
-                                output.exitcode(),
-                                output.stderr().encode().orElse("n/a")
-                        )
+                        output -> CmdException.errorExitCode(0, output, spec.stackless())
                 );
+        if (checked.isErr()) {
+            Flight.failed(spec.cmd(), checked.err());
+        }
+        return checked;
     }
 
     /**
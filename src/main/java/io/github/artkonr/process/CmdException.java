@@ -1,11 +1,38 @@
 package io.github.artkonr.process;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+
 /**
  * A simple exception that represents CLI program failures
  *  or failures to process their output.
  */
 public class CmdException extends RuntimeException {
 
+    /**
+     * Maximum amount of program output bytes quoted
+     *  in the message of an {@link CmdException#errorExitCode(int, Output) exitcode error}.
+     */
+    static final int EXCERPT = 1024;
+
+    private static final String EXIT_CODE_MSG = "command failed with unexpected exitcode: cmd='%s' expected=%d actual=%d message='%s'";
+
+    private final transient Output output;
+
+    /**
+     * Exitcode the program was expected to exit with.
+     */
+    private final int expected;
+
+    /**
+     * Message, built from the output on first access.
+     */
+    private String message;
+
     /**
      * Creates a new instance.
      * @param expected expected exit code
@@ -18,7 +45,7 @@ public class CmdException extends RuntimeException {
                                              String cmd,
                                              int actual,
                                              String output) {
-        String msg = "command failed with unexpected exitcode: cmd='%s' expected=%d actual=%d message='%s'".formatted(
+        String msg = EXIT_CODE_MSG.formatted(
                 cmd,
                 expected,
                 actual,
@@ -27,6 +54,34 @@ public class CmdException extends RuntimeException {
         return new CmdException(msg);
     }
 
+    /**
+     * Creates a new instance that references the failed
+     *  invocation. The message is only formatted when it is
+     *  first requested, and quotes at most the first
+     *  {@value #EXCERPT} bytes of stderr (or of stdout, if it
+     *  is {@link Output#merged() merged}).
+     * @param expected expected exit code
+     * @param output failed invocation
+     * @return new instance
+     */
+    public static CmdException errorExitCode(int expected, Output output) {
+        return errorExitCode(expected, output, false);
+    }
+
+    /**
+     * Creates a new instance that references the failed
+     *  invocation, optionally without a stack trace.
+     * @param expected expected exit code
+     * @param output failed invocation
+     * @param stackless if {@code true}, the stack trace is neither
+     *                  filled in nor writable
+     * @return new instance
+     * @see CmdException#errorExitCode(int, Output)
+     */
+    public static CmdException errorExitCode(int expected, Output output, boolean stackless) {
+        return new CmdException(output, expected, !stackless);
+    }
+
     /**
      * Wraps the provided exception into a {@link CmdException},
      *  unless it already is a {@link CmdException}.
@@ -47,6 +102,8 @@ public class CmdException extends RuntimeException {
      */
     public CmdException(String message) {
         super(message);
+        this.output = null;
+        this.expected = 0;
     }
 
     /**
@@ -56,6 +113,64 @@ public class CmdException extends RuntimeException {
      */
     public CmdException(String message, Throwable cause) {
         super(message, cause);
+        this.output = null;
+        this.expected = 0;
+    }
+
+    /**
+     * Returns the failed invocation, if {@code this} instance
+     *  was created from one.
+     * @return optional failed invocation
+     */
+    public Optional<Output> output() {
+        return Optional.ofNullable(output);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return message
+     */
+    @Override
+    public String getMessage() {
+        if (output == null) {
+            return message != null ? message : super.getMessage();
+        }
+
+        if (message == null) {
+            message = EXIT_CODE_MSG.formatted(
+                    output.command(),
+                    expected,
+                    output.exitcode(),
+                    excerpt(output.merged() ? output.stdout() : output.stderr())
+            );
+        }
+        return message;
+    }
+
+    /**
+     * Builds the message before serializing, as the output
+     *  it is built from is not serialized.
+     * @param out object stream
+     * @throws IOException if the stream fails
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getMessage();
+        out.defaultWriteObject();
+    }
+
+    private static String excerpt(Data data) {
+        return data.get()
+                .map(bytes -> bytes.length > EXCERPT
+                        ? new String(Arrays.copyOf(bytes, EXCERPT), StandardCharsets.UTF_8) + "..."
+                        : new String(bytes, StandardCharsets.UTF_8))
+                .orElse("n/a");
+    }
+
+    private CmdException(Output output, int expected, boolean writableStackTrace) {
+        super(null, null, true, writableStackTrace);
+        this.output = output;
+        this.expected = expected;
     }
 
 }
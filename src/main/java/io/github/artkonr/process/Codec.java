@@ -0,0 +1,487 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Done;
+import io.github.artkonr.result.Result;
+import lombok.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Compact, versioned binary format of {@link Output} for storing
+ *  results in files or passing them between JVMs, e.g. over a
+ *  local socket.
+ * <p>An encoded output starts with a magic number and the format
+ *  version, followed by the output itself: the PID, command,
+ *  exitcode, {@link Usage usage}, {@link Placement placement} and
+ *  both streams of a single program, or the stages of a
+ *  {@link Chain.Output pipeline} one after another. Any other
+ *  {@link Output} is encoded as a single program.
+ * <p>Stream data may be compressed with {@link Deflater}; each
+ *  payload is compressed on its own and stored as is if that does
+ *  not make it smaller. Every field is length-prefixed, so several
+ *  outputs can be written into the same channel back to back and
+ *  read one by one.
+ * <p>Instances are immutable and can be reused. Decoding does
+ *  not depend on the codec that encoded the output.
+ */
+public final class Codec {
+
+    /**
+     * Format version written by this codec.
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * Payloads shorter than that are never compressed, bytes.
+     */
+    static final int THRESHOLD = 64;
+
+    private static final int MAGIC = 0x50524F43; // "PROC"
+    private static final byte SINGLE = 0;
+    private static final byte PIPELINE = 1;
+    private static final byte RAW = 0;
+    private static final byte DEFLATED = 1;
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Buffers of decoded payloads start at this size at most and
+     *  grow as the bytes arrive, so that a corrupt size fails on the
+     *  missing bytes rather than on allocating the whole of it.
+     */
+    private static final int CHUNK = 64 * 1024;
+
+    private final int level;
+
+    /**
+     * Factory method. Creates a codec that stores stream data as is.
+     * @return new instance
+     */
+    public static Codec plain() {
+        return new Codec(Deflater.NO_COMPRESSION);
+    }
+
+    /**
+     * Factory method. Creates a codec that compresses stream data
+     *  with the {@link Deflater#DEFAULT_COMPRESSION default level}.
+     * @return new instance
+     */
+    public static Codec deflate() {
+        return new Codec(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Factory method. Creates a codec that compresses stream data.
+     * @param level compression level
+     * @return new instance
+     * @throws IllegalArgumentException if the level is not within {@code [1, 9]}
+     */
+    public static Codec deflate(int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("compression level must be within [1, 9]");
+        }
+        return new Codec(level);
+    }
+
+    /**
+     * Encodes an output into a channel. The channel is left open.
+     * @param output output to encode
+     * @param channel target channel
+     * @return write result as {@link Done}
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Done<IOException> write(@NonNull Output output, @NonNull WritableByteChannel channel) {
+        return Done.wrap(IOException.class, () -> {
+            Writer writer = new Writer(channel);
+            writer.out.writeInt(MAGIC);
+            writer.out.writeByte(VERSION);
+            writeOutput(writer, output);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Encodes an output into a byte array.
+     * @param output output to encode
+     * @return encoded output
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public byte[] encode(@NonNull Output output) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        Done<IOException> written = write(output, Channels.newChannel(buffer));
+        if (written.isFailure()) {
+            // in-memory channels do not fail
+            throw new IllegalStateException("failed to encode output", written.getErr());
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Decodes an output from a channel. Only the bytes of a single
+     *  output are read, so the channel can bear more of them.
+     * @param channel source channel
+     * @return {@link Result} bearing the decoded output; an error if
+     *  the channel fails, ends too early or does not bear an output of
+     *  a known version
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public static Result<Output, IOException> read(@NonNull ReadableByteChannel channel) {
+        return Result.wrap(IOException.class, () -> {
+            Reader reader = new Reader(channel);
+            if (reader.readInt() != MAGIC) {
+                throw new IOException("not an encoded output");
+            }
+            byte version = reader.readByte();
+            if (version != VERSION) {
+                throw new IOException("unsupported format version: " + version);
+            }
+            return readOutput(reader);
+        });
+    }
+
+    /**
+     * Decodes an output from a byte array.
+     * @param encoded encoded output
+     * @return {@link Result} bearing the decoded output
+     * @throws IllegalArgumentException if no argument provided
+     * @see Codec#read(ReadableByteChannel)
+     */
+    public static Result<Output, IOException> decode(@NonNull byte[] encoded) {
+        return read(Channels.newChannel(new ByteArrayInputStream(encoded)));
+    }
+
+    private void writeOutput(Writer writer, Output output) throws IOException {
+        if (output instanceof Chain.Output pipeline) {
+            List<Output> stages = pipeline.stages();
+            writer.out.writeByte(PIPELINE);
+            writer.out.writeInt(stages.size());
+            for (Output stage : stages) {
+                writeOutput(writer, stage);
+            }
+            return;
+        }
+
+        DataOutputStream out = writer.out;
+        out.writeByte(SINGLE);
+        out.writeLong(output.pid());
+        writeString(out, output.command());
+        out.writeInt(output.exitcode());
+        out.writeBoolean(output.merged());
+
+        Usage usage = output.usage().orElse(null);
+        out.writeBoolean(usage != null);
+        if (usage != null) {
+            out.writeLong(usage.wall().toNanos());
+            out.writeLong(usage.user().toNanos());
+            out.writeLong(usage.system().toNanos());
+            out.writeLong(usage.peakRss());
+        }
+
+        Placement placement = output.placement().orElse(null);
+        out.writeBoolean(placement != null);
+        if (placement != null) {
+            out.writeInt(placement.cpus().size());
+            for (int cpu : placement.cpus()) {
+                out.writeInt(cpu);
+            }
+            out.writeByte(placement.policy().map(Codec::code).orElse(-1));
+            out.writeByte(placement.priority());
+        }
+
+        writeData(writer, output.stdout());
+        writeData(writer, output.stderr());
+    }
+
+    private void writeData(Writer writer, Data data) throws IOException {
+        byte[][] chunks = data.chunks();
+        writer.out.writeInt(data.size());
+        if (level == Deflater.NO_COMPRESSION || data.size() < THRESHOLD) {
+            writer.out.writeByte(RAW);
+            writer.write(chunks);
+            return;
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(level);
+        try (DeflaterOutputStream deflating = new DeflaterOutputStream(compressed, deflater)) {
+            for (byte[] chunk : chunks) {
+                deflating.write(chunk);
+            }
+        } finally {
+            deflater.end();
+        }
+        if (compressed.size() >= data.size()) {
+            writer.out.writeByte(RAW);
+            writer.write(chunks);
+            return;
+        }
+        writer.out.writeByte(DEFLATED);
+        writer.out.writeInt(compressed.size());
+        writer.write(new byte[][]{ compressed.toByteArray() });
+    }
+
+    private static Output readOutput(Reader reader) throws IOException {
+        byte kind = reader.readByte();
+        if (kind == PIPELINE) {
+            int count = reader.readInt();
+            if (count < 1) {
+                throw new IOException("malformed pipeline of " + count + " stages");
+            }
+            List<Output> stages = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                stages.add(readOutput(reader));
+            }
+            return Chain.Output.from(stages.get(count - 1), stages.subList(0, count - 1));
+        }
+        if (kind != SINGLE) {
+            throw new IOException("unknown output kind: " + kind);
+        }
+
+        long pid = reader.readLong();
+        String command = readString(reader);
+        int exitcode = reader.readInt();
+        boolean merged = reader.readBoolean();
+
+        Usage usage = null;
+        if (reader.readBoolean()) {
+            usage = new Usage(
+                    Duration.ofNanos(reader.readLong()),
+                    Duration.ofNanos(reader.readLong()),
+                    Duration.ofNanos(reader.readLong()),
+                    reader.readLong()
+            );
+        }
+
+        Placement placement = null;
+        if (reader.readBoolean()) {
+            placement = readPlacement(reader);
+        }
+
+        byte[] stdout = readData(reader);
+        byte[] stderr = readData(reader);
+        return Cmd.Output.from(pid, command, exitcode, stdout, stderr, merged, usage, placement);
+    }
+
+    private static Placement readPlacement(Reader reader) throws IOException {
+        int count = reader.readInt();
+        if (count < 0 || count > 65536) {
+            throw new IOException("malformed placement of " + count + " cpus");
+        }
+        List<Integer> cpus = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            cpus.add(reader.readInt());
+        }
+        int policy = reader.readByte();
+        int priority = reader.readByte();
+        try {
+            Placement placement = cpus.isEmpty() ? Placement.any() : Placement.any().cpus(cpus);
+            if (policy < 0) {
+                return placement;
+            }
+            Placement.Policy chosen = policy(policy);
+            return chosen.isRealtime() ? placement.policy(chosen, priority) : placement.policy(chosen);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("malformed placement", ex);
+        }
+    }
+
+    private static byte[] readData(Reader reader) throws IOException {
+        int size = checkSize(reader.readInt());
+        byte encoding = reader.readByte();
+        if (encoding == RAW) {
+            return reader.readBytes(size);
+        }
+        if (encoding != DEFLATED) {
+            throw new IOException("unknown data encoding: " + encoding);
+        }
+
+        byte[] compressed = reader.readBytes(checkSize(reader.readInt()));
+        byte[] data = new byte[Math.min(size, CHUNK)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int inflated = 0;
+            while (inflated < size && !inflater.finished()) {
+                if (inflated == data.length) {
+                    data = Arrays.copyOf(data, (int) Math.min(size, 2L * data.length));
+                }
+                int step = inflater.inflate(data, inflated, data.length - inflated);
+                if (step == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += step;
+            }
+            if (inflated != size || !inflater.finished()) {
+                throw new IOException("malformed compressed data");
+            }
+            return data;
+        } catch (DataFormatException ex) {
+            throw new IOException("malformed compressed data", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Code of a scheduling policy in the format, which does not
+     *  depend on the order the policies are declared in.
+     * @param policy policy
+     * @return code
+     */
+    private static int code(Placement.Policy policy) {
+        return switch (policy) {
+            case OTHER -> 0;
+            case BATCH -> 1;
+            case IDLE -> 2;
+            case FIFO -> 3;
+            case RR -> 4;
+        };
+    }
+
+    private static Placement.Policy policy(int code) {
+        return switch (code) {
+            case 0 -> Placement.Policy.OTHER;
+            case 1 -> Placement.Policy.BATCH;
+            case 2 -> Placement.Policy.IDLE;
+            case 3 -> Placement.Policy.FIFO;
+            case 4 -> Placement.Policy.RR;
+            default -> throw new IllegalArgumentException("unknown scheduling policy: " + code);
+        };
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(Reader reader) throws IOException {
+        return new String(reader.readBytes(checkSize(reader.readInt())), StandardCharsets.UTF_8);
+    }
+
+    private static int checkSize(int size) throws IOException {
+        if (size < 0 || size > MAX_SIZE) {
+            throw new IOException("malformed size: " + size);
+        }
+        return size;
+    }
+
+    private Codec(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Buffers the fixed fields and writes payloads
+     *  straight from their arrays, with a single gathering
+     *  write if the channel supports it.
+     */
+    private static class Writer {
+
+        private final WritableByteChannel channel;
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(pending);
+
+        void write(byte[][] chunks) throws IOException {
+            ByteBuffer[] buffers = new ByteBuffer[chunks.length + 1];
+            buffers[0] = ByteBuffer.wrap(pending.toByteArray());
+            for (int i = 0; i < chunks.length; i++) {
+                buffers[i + 1] = ByteBuffer.wrap(chunks[i]);
+            }
+            pending.reset();
+            if (channel instanceof GatheringByteChannel gathering) {
+                long left = 0;
+                for (ByteBuffer buffer : buffers) {
+                    left += buffer.remaining();
+                }
+                while (left > 0) {
+                    left -= gathering.write(buffers);
+                }
+                return;
+            }
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            write(new byte[0][]);
+        }
+
+        Writer(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Reads exactly as many bytes as requested, so that
+     *  nothing past the output is consumed.
+     */
+    private static class Reader {
+
+        private final ReadableByteChannel channel;
+        private final ByteBuffer scratch = ByteBuffer.allocate(Long.BYTES);
+
+        byte readByte() throws IOException {
+            return fill(Byte.BYTES).get();
+        }
+
+        boolean readBoolean() throws IOException {
+            return readByte() != 0;
+        }
+
+        int readInt() throws IOException {
+            return fill(Integer.BYTES).getInt();
+        }
+
+        long readLong() throws IOException {
+            return fill(Long.BYTES).getLong();
+        }
+
+        byte[] readBytes(int size) throws IOException {
+            byte[] bytes = new byte[Math.min(size, CHUNK)];
+            readFully(ByteBuffer.wrap(bytes));
+            while (bytes.length < size) {
+                int read = bytes.length;
+                bytes = Arrays.copyOf(bytes, (int) Math.min(size, 2L * read));
+                readFully(ByteBuffer.wrap(bytes, read, bytes.length - read));
+            }
+            return bytes;
+        }
+
+        private ByteBuffer fill(int size) throws IOException {
+            scratch.clear().limit(size);
+            readFully(scratch);
+            return scratch.flip();
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("channel has ended before the output");
+                }
+            }
+        }
+
+        Reader(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -4,34 +4,100 @@ import io.github.artkonr.result.Done;
 import lombok.NonNull;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Output data container with a handy API.
- * <p>Internally, stores the output as a simple byte array.
+ * <p>Internally, stores the output as a simple byte array, or,
+ *  once {@link Data#concat(Collection) concatenated}, as a list of
+ *  references to the arrays of the parts. Concatenation costs as
+ *  much as the amount of parts rather than bytes: the parts are
+ *  copied into a single array only once it is {@link Data#get() read},
+ *  and are written into a file without being copied at all.
+ * <p>Searches and comparisons run on the bytes directly, several
+ *  bytes at a time, so checking a large output for a marker
+ *  does not need to {@link Data#encode() encode} it. They run
+ *  part by part, so they do not join concatenated data either.
  */
 public class Data {
-    private final byte[] data;
+    private static final byte[] NONE = new byte[0];
+    private static final byte[][] NO_CHUNKS = new byte[0][];
+    private final int size;
+    private volatile byte[][] chunks;
+    private volatile byte[] data;
+
+    /**
+     * Factory method. Concatenates data without copying them.
+     * @param parts data to concatenate
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided, any of
+     *  the parts is {@code null} or the total size exceeds the size of an array
+     * @see Data#concat(Collection)
+     */
+    public static Data concat(@NonNull Data... parts) {
+        return concat(Arrays.asList(parts));
+    }
+
+    /**
+     * Factory method. Concatenates data without copying them.
+     * @param parts data to concatenate
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided, any of
+     *  the parts is {@code null} or the total size exceeds the size of an array
+     */
+    public static Data concat(@NonNull Collection<Data> parts) {
+        List<byte[]> chunks = new ArrayList<>();
+        long size = 0;
+        for (Data part : parts) {
+            if (part == null) {
+                throw new IllegalArgumentException("part is null");
+            }
+            for (byte[] chunk : part.chunks()) {
+                chunks.add(chunk);
+                size += chunk.length;
+            }
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("data exceed the size of an array");
+        }
+        return chunks.size() == 1
+                ? new Data(chunks.get(0))
+                : new Data(chunks.toArray(byte[][]::new), (int) size);
+    }
 
     /**
      * Checks if {@code this} instance bears any data.
      * @return {@code true} if there are data present; {@code false} otherwise
      */
     public boolean isEmpty() {
-        return data == null;
+        return size == 0;
     }
 
     /**
-     * Safely reads the data.
+     * Amount of bytes.
+     * @return byte count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Safely reads the data. Concatenated data are copied
+     *  into a single array on the first call.
      * @return internal byte array, wrapped in {@link Optional}
      */
     public Optional<byte[]> get() {
-        return Optional.ofNullable(data);
+        return Optional.ofNullable(flat());
     }
 
     /**
@@ -53,10 +119,221 @@ public class Data {
         return encode(StandardCharsets.UTF_8);
     }
 
+    /**
+     * Finds the first occurrence of a byte.
+     * @param target byte to find
+     * @return index of the byte; {@code -1} if not found
+     */
+    public int indexOf(byte target) {
+        int offset = 0;
+        for (byte[] chunk : chunks()) {
+            int found = Bytes.indexOf(chunk, 0, chunk.length, target);
+            if (found >= 0) {
+                return offset + found;
+            }
+            offset += chunk.length;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first occurrence of a sequence of bytes.
+     * @param pattern bytes to find
+     * @return index of the sequence; {@code 0} if the sequence
+     *  is empty; {@code -1} if not found
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public int indexOf(@NonNull byte[] pattern) {
+        byte[][] chunks = chunks();
+        if (pattern.length == 0) {
+            return 0;
+        }
+        if (pattern.length == 1) {
+            return indexOf(pattern[0]);
+        }
+        if (chunks.length <= 1) {
+            return chunks.length == 0 ? -1 : Bytes.indexOf(chunks[0], pattern);
+        }
+
+        // only the bytes a match may span are carried over from one part to the next
+        int overlap = pattern.length - 1;
+        byte[] tail = NONE;
+        int offset = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            if (tail.length > 0) {
+                int found = Bytes.indexOf(seam(tail, chunks, i, overlap), pattern);
+                if (found >= 0 && found < tail.length) {
+                    return offset - tail.length + found;
+                }
+            }
+            int found = Bytes.indexOf(chunks[i], pattern);
+            if (found >= 0) {
+                return offset + found;
+            }
+            tail = tail(tail, chunks[i], overlap);
+            offset += chunks[i].length;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first occurrence of a text. Implies {@link StandardCharsets#UTF_8 UTF-8}.
+     * @param text text to find
+     * @return byte index of the text; {@code 0} if the text
+     *  is empty; {@code -1} if not found
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public int indexOf(@NonNull String text) {
+        return indexOf(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks if the data contain a sequence of bytes.
+     * @param pattern bytes to find
+     * @return {@code true} if found; {@code false} otherwise
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public boolean contains(@NonNull byte[] pattern) {
+        return indexOf(pattern) >= 0;
+    }
+
+    /**
+     * Checks if the data contain a text. Implies {@link StandardCharsets#UTF_8 UTF-8}.
+     * @param text text to find
+     * @return {@code true} if found; {@code false} otherwise
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public boolean contains(@NonNull String text) {
+        return indexOf(text) >= 0;
+    }
+
+    /**
+     * Counts the occurrences of a byte.
+     * @param target byte to count
+     * @return count
+     */
+    public long count(byte target) {
+        long count = 0;
+        for (byte[] chunk : chunks()) {
+            count += Bytes.count(chunk, target);
+        }
+        return count;
+    }
+
+    /**
+     * Counts the lines, the last one counted even if it
+     *  is not terminated.
+     * @return line count; {@code 0} if there are no data
+     */
+    public long lines() {
+        byte[][] chunks = chunks();
+        long terminated = count((byte) '\n');
+        if (chunks.length == 0) {
+            return terminated;
+        }
+        byte[] last = chunks[chunks.length - 1];
+        return last[last.length - 1] != '\n' ? terminated + 1 : terminated;
+    }
+
+    /**
+     * Finds the first byte that differs from an expected sequence.
+     * @param expected expected bytes
+     * @return index of the first difference, which is the length of
+     *  the shorter sequence if one is a prefix of the other; {@code -1}
+     *  if the data are equal to the expected bytes
+     * @throws IllegalArgumentException if no argument provided
+     * @see Arrays#mismatch(byte[], byte[])
+     */
+    public int mismatch(@NonNull byte[] expected) {
+        int offset = 0;
+        for (byte[] chunk : chunks()) {
+            int length = Math.min(chunk.length, expected.length - offset);
+            int found = Arrays.mismatch(chunk, 0, length, expected, offset, offset + length);
+            if (found >= 0) {
+                return offset + found;
+            }
+            if (length < chunk.length) {
+                return offset + length;
+            }
+            offset += length;
+        }
+        return offset == expected.length ? -1 : offset;
+    }
+
+    /**
+     * Finds the first byte that differs from other data.
+     * @param other other data
+     * @return index of the first difference; {@code -1} if the data are equal
+     * @throws IllegalArgumentException if no argument provided
+     * @see Data#mismatch(byte[])
+     */
+    public int mismatch(@NonNull Data other) {
+        byte[][] mine = chunks();
+        byte[][] theirs = other.chunks();
+        int i = 0;
+        int j = 0;
+        int at = 0;
+        int to = 0;
+        int offset = 0;
+        while (i < mine.length && j < theirs.length) {
+            int length = Math.min(mine[i].length - at, theirs[j].length - to);
+            int found = Arrays.mismatch(mine[i], at, at + length, theirs[j], to, to + length);
+            if (found >= 0) {
+                return offset + found;
+            }
+            offset += length;
+            at += length;
+            to += length;
+            if (at == mine[i].length) {
+                i++;
+                at = 0;
+            }
+            if (to == theirs[j].length) {
+                j++;
+                to = 0;
+            }
+        }
+        return size == other.size ? -1 : offset;
+    }
+
+    /**
+     * Data are equal if they bear the same bytes.
+     * @param o other object
+     * @return {@code true} if equal; {@code false} otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof Data other && size == other.size && mismatch(other) < 0;
+    }
+
+    /**
+     * Hash code of the bytes, same as {@link Arrays#hashCode(byte[])}
+     *  of the joined data.
+     * @return hash code
+     */
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (byte[] chunk : chunks()) {
+            // shifts the hash of the preceding parts past this one: 31^n, modulo 2^32
+            int shift = 1;
+            int base = 31;
+            for (int n = chunk.length; n > 0; n >>= 1) {
+                if ((n & 1) != 0) {
+                    shift *= base;
+                }
+                base *= base;
+            }
+            hash = hash * shift + Arrays.hashCode(chunk) - shift;
+        }
+        return hash;
+    }
+
     /**
      * Dumps the data into a file at {@link Path location}.
      * <p>If the file is not present, it is created. Intermediate
-     *  directories are not created.
+     *  directories are not created. Concatenated data are written
+     *  with a single gathering write per pass, without being copied.
      * @param location target file
      * @return write result as {@link Done}
      */
@@ -64,11 +341,22 @@ public class Data {
         return Done
                 .wrap(
                         IOException.class,
-                        () -> Files.write(
-                                location,
-                                data,
-                                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING
-                        )
+                        () -> {
+                            ByteBuffer[] buffers = Arrays.stream(chunks())
+                                    .map(ByteBuffer::wrap)
+                                    .toArray(ByteBuffer[]::new);
+                            try (FileChannel channel = FileChannel.open(
+                                    location,
+                                    StandardOpenOption.WRITE,
+                                    StandardOpenOption.CREATE,
+                                    StandardOpenOption.TRUNCATE_EXISTING
+                            )) {
+                                long left = size;
+                                while (left > 0) {
+                                    left -= channel.write(buffers);
+                                }
+                            }
+                        }
                 );
     }
 
@@ -78,6 +366,83 @@ public class Data {
      */
     Data(byte[] data) {
         this.data = data != null && data.length > 0 ? data : null;
+        this.size = this.data == null ? 0 : this.data.length;
+        this.chunks = this.data == null ? NO_CHUNKS : new byte[][]{ this.data };
+    }
+
+    private Data(byte[][] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Non-empty parts of the data, in order. The parts
+     *  must not be modified.
+     * @return parts
+     */
+    byte[][] chunks() {
+        return chunks;
+    }
+
+    /**
+     * Lazily flattened data.
+     * @return data; {@code null} if there are none
+     */
+    private byte[] flat() {
+        if (data != null || size == 0) {
+            return data;
+        }
+        synchronized (this) {
+            if (data != null) {
+                return data;
+            }
+            byte[] joined = new byte[size];
+            int offset = 0;
+            for (byte[] chunk : chunks) {
+                System.arraycopy(chunk, 0, joined, offset, chunk.length);
+                offset += chunk.length;
+            }
+            chunks = new byte[][]{ joined };
+            data = joined;
+            return joined;
+        }
+    }
+
+    /**
+     * Joins the bytes carried over from the preceding parts with
+     *  the bytes that follow them, as far as a match may span.
+     * @param tail bytes carried over
+     * @param chunks parts
+     * @param from index of the part that follows the carried bytes
+     * @param overlap amount of the following bytes to take, at most
+     * @return joined bytes
+     */
+    private static byte[] seam(byte[] tail, byte[][] chunks, int from, int overlap) {
+        byte[] seam = Arrays.copyOf(tail, tail.length + overlap);
+        int length = tail.length;
+        for (int i = from; i < chunks.length && length < seam.length; i++) {
+            int taken = Math.min(chunks[i].length, seam.length - length);
+            System.arraycopy(chunks[i], 0, seam, length, taken);
+            length += taken;
+        }
+        return length == seam.length ? seam : Arrays.copyOf(seam, length);
+    }
+
+    /**
+     * Carries the last bytes over to the next part.
+     * @param tail bytes carried over so far
+     * @param chunk part just searched
+     * @param overlap amount of bytes to carry, at most
+     * @return bytes to carry over
+     */
+    private static byte[] tail(byte[] tail, byte[] chunk, int overlap) {
+        if (chunk.length >= overlap) {
+            return Arrays.copyOfRange(chunk, chunk.length - overlap, chunk.length);
+        }
+        int kept = Math.min(tail.length, overlap - chunk.length);
+        byte[] carried = Arrays.copyOfRange(tail, tail.length - kept, tail.length + chunk.length);
+        System.arraycopy(chunk, 0, carried, kept, chunk.length);
+        return carried;
     }
 
 }
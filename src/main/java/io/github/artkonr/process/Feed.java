@@ -0,0 +1,308 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Ok;
+import io.github.artkonr.result.Result;
+import io.github.artkonr.result.TakeFrom;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Reactive view of a running program: its stdout and stderr
+ *  exposed as {@link Flow.Publisher publishers} of byte chunks.
+ * <p>A chunk is only read from the pipe once a subscriber has
+ *  signalled demand for it, so a slow subscriber stalls the
+ *  program the same way a slow reader of a shell pipe would.
+ *  Each stream accepts a single subscriber; a stream that is
+ *  never subscribed to is never read, so callers should
+ *  subscribe to (or cancel) both of them.
+ * <p>Once the stream is exhausted, the subscriber is completed
+ *  if the program exited normally; otherwise it receives the
+ *  same {@link CmdException} that {@link Feed#exit()} holds.
+ *  The full {@link Output} (PID, command, exitcode) is available
+ *  from {@link Feed#exit()}; its stdout and stderr are empty,
+ *  since the data went to the subscribers.
+ */
+public class Feed {
+
+    /**
+     * Default size of a single emitted chunk.
+     */
+    static final int CHUNK = 8192;
+
+    private static final Executor DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "process-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Pipe stdout;
+    private final Pipe stderr;
+    private final CompletableFuture<Result<io.github.artkonr.process.Output, CmdException>> exit;
+
+    /**
+     * Publisher of the program stdout.
+     * @return stdout publisher
+     */
+    public Flow.Publisher<ByteBuffer> stdout() {
+        return stdout;
+    }
+
+    /**
+     * Publisher of the program stderr.
+     * @return stderr publisher
+     */
+    public Flow.Publisher<ByteBuffer> stderr() {
+        return stderr;
+    }
+
+    /**
+     * Completion of the program. Completes once the program
+     *  (and, for a {@link Chain}, every program in the pipeline)
+     *  has exited.
+     * @return future bearing the invocation {@link Result}
+     */
+    public CompletableFuture<Result<io.github.artkonr.process.Output, CmdException>> exit() {
+        return exit;
+    }
+
+    /**
+     * Executor used by {@link Shell#publish()}. Spawns daemon
+     *  threads on demand and reuses idle ones.
+     * @return default executor
+     */
+    static Executor defaultExecutor() {
+        return DEFAULT_EXECUTOR;
+    }
+
+    /**
+     * Factory method. Wraps a single running program.
+     * @param process running program
+     * @param pb invoked program
+     * @param executor executor to read the streams on
+     * @return new instance
+     */
+    static Feed from(Process process, ProcessBuilder pb, Executor executor) {
+        return new Feed(process, finish(process, pb), executor);
+    }
+
+    /**
+     * Factory method. Wraps a running pipeline. The stdout and
+     *  stderr of the last program are published, while stderr of
+     *  the intermediate programs is captured into their outputs.
+     * @param processes running programs
+     * @param pipeline invoked programs, one per running program
+     * @param executor executor to read the streams on
+     * @return new instance
+     */
+    static Feed from(List<Process> processes, List<ProcessBuilder> pipeline, Executor executor) {
+        int endI = processes.size() - 1;
+        if (endI == 0) {
+            return from(processes.get(0), pipeline.get(0), executor);
+        }
+
+        Process last = processes.get(endI);
+        var intermediate = IntStream.range(0, endI)
+                .mapToObj(idx -> CompletableFuture.supplyAsync(
+                        () -> Cmd.handle(new Ok<>(processes.get(idx)), pipeline.get(idx)),
+                        executor
+                ))
+                .toList();
+        var exit = finish(last, pipeline.get(endI))
+                .thenCombine(
+                        CompletableFuture
+                                .allOf(intermediate.toArray(CompletableFuture[]::new))
+                                .thenApply(none -> Result.join(
+                                        intermediate.stream().map(CompletableFuture::join).toList(),
+                                        TakeFrom.HEAD
+                                )),
+                        (fin, rest) -> fin
+                                .fuse(rest, TakeFrom.TAIL)
+                                .map(fuse -> Chain.Output.from(fuse.left(), fuse.right()))
+                );
+        return new Feed(last, exit, executor);
+    }
+
+    private static CompletableFuture<Result<io.github.artkonr.process.Output, CmdException>> finish(Process process,
+                                                                                                 ProcessBuilder pb) {
+        String cmd = Util.getCmd(pb);
+        boolean merged = pb.redirectErrorStream();
+        return process.onExit()
+                .thenApply(done -> new Ok<io.github.artkonr.process.Output, CmdException>(
+                        Cmd.Output.from(done.pid(), cmd, done.exitValue(), null, null, merged)
+                ))
+                .thenApply(result -> result.taint(
+                        output -> !output.exitedNormally(),
+                        output -> CmdException.errorExitCode(0, output)
+                ));
+    }
+
+    private Feed(Process process,
+                 CompletableFuture<Result<io.github.artkonr.process.Output, CmdException>> exit,
+                 Executor executor) {
+        this.exit = exit;
+        this.stdout = new Pipe(process.getInputStream(), exit, executor);
+        this.stderr = new Pipe(process.getErrorStream(), exit, executor);
+    }
+
+    /**
+     * Single-subscriber publisher that reads a pipe on demand.
+     */
+    static class Pipe implements Flow.Publisher<ByteBuffer> {
+
+        private final InputStream source;
+        private final CompletableFuture<Result<io.github.artkonr.process.Output, CmdException>> exit;
+        private final Executor executor;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        /**
+         * Subscribes to the pipe. Only the first subscriber is
+         *  accepted, any later one is immediately failed.
+         * @param subscriber subscriber
+         * @throws NullPointerException if no argument provided
+         */
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            Objects.requireNonNull(subscriber, "subscriber");
+            if (subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new Subscription(subscriber));
+            } else {
+                subscriber.onSubscribe(new Subscription(null));
+                subscriber.onError(new IllegalStateException("stream is already subscribed to"));
+            }
+        }
+
+        /**
+         * Default constructor.
+         * @param source read stream
+         * @param exit program completion
+         * @param executor executor to read on
+         */
+        Pipe(@NonNull InputStream source,
+             @NonNull CompletableFuture<Result<io.github.artkonr.process.Output, CmdException>> exit,
+             @NonNull Executor executor) {
+            this.source = source;
+            this.exit = exit;
+            this.executor = executor;
+        }
+
+        private final class Subscription implements Flow.Subscription {
+
+            private final Flow.Subscriber<? super ByteBuffer> downstream;
+            private final AtomicLong demand = new AtomicLong();
+            private final AtomicInteger pending = new AtomicInteger();
+            private volatile boolean cancelled;
+            private volatile Throwable invalid;
+
+            @Override
+            public void request(long n) {
+                if (downstream == null) {
+                    return;
+                }
+
+                if (n <= 0) {
+                    invalid = new IllegalArgumentException("demand must be positive: " + n);
+                } else {
+                    demand.getAndAccumulate(n, (left, right) -> left + right < 0 ? Long.MAX_VALUE : left + right);
+                }
+                schedule();
+            }
+
+            @Override
+            public void cancel() {
+                if (downstream == null) {
+                    return;
+                }
+
+                cancelled = true;
+                closeQuietly();
+                schedule();
+            }
+
+            private void schedule() {
+                if (pending.getAndIncrement() == 0) {
+                    executor.execute(this::drain);
+                }
+            }
+
+            private void drain() {
+                int missed = 1;
+                byte[] buf = new byte[CHUNK];
+                do {
+                    while (!cancelled) {
+                        if (invalid != null) {
+                            cancelled = true;
+                            closeQuietly();
+                            downstream.onError(invalid);
+                            return;
+                        }
+
+                        if (demand.get() == 0) {
+                            break;
+                        }
+
+                        int read;
+                        try {
+                            read = source.read(buf);
+                        } catch (IOException ex) {
+                            if (!cancelled) {
+                                cancelled = true;
+                                closeQuietly();
+                                downstream.onError(new CmdException("failed to read stdout/stderr", ex));
+                            }
+                            return;
+                        }
+
+                        if (read < 0) {
+                            cancelled = true;
+                            closeQuietly();
+                            exit.thenAccept(result -> {
+                                if (result.isOk()) {
+                                    downstream.onComplete();
+                                } else {
+                                    downstream.onError(result.err());
+                                }
+                            });
+                            return;
+                        }
+
+                        if (read > 0) {
+                            demand.decrementAndGet();
+                            downstream.onNext(ByteBuffer.wrap(Arrays.copyOf(buf, read)));
+                        }
+                    }
+
+                    if (cancelled) {
+                        return;
+                    }
+                    missed = pending.addAndGet(-missed);
+                } while (missed != 0);
+            }
+
+            private void closeQuietly() {
+                try {
+                    source.close();
+                } catch (IOException ignored) {
+                    // the pipe is abandoned either way
+                }
+            }
+
+            private Subscription(Flow.Subscriber<? super ByteBuffer> downstream) {
+                this.downstream = downstream;
+            }
+        }
+    }
+}
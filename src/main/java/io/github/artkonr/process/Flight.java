@@ -0,0 +1,320 @@
+package io.github.artkonr.process;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.List;
+
+/**
+ * Java Flight Recorder events of program invocations: spawn,
+ *  first output, drain of a stream, exit and failure.
+ * <p>Every event is disabled by default and has to be enabled
+ *  in the recording settings by name, e.g.
+ *  {@code jfr configure +io.github.artkonr.process.Spawn#enabled=true}
+ *  or {@code -XX:StartFlightRecording:settings=custom.jfc}. While
+ *  an event is disabled, emitting it costs a single check and
+ *  none of its fields are computed.
+ */
+class Flight {
+
+    private static final String PREFIX = "io.github.artkonr.process.";
+
+    /**
+     * Starts timing a spawn.
+     * @return begun event
+     */
+    static Spawn spawn() {
+        Spawn event = new Spawn();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Emits a spawn of a single program.
+     * @param event event begun before the spawn
+     * @param pb spawned program
+     * @param process running program
+     * @return running program
+     */
+    static Process spawned(Spawn event, ProcessBuilder pb, Process process) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.command = Util.getCmd(pb);
+            event.pid = process.pid();
+            event.programs = 1;
+            event.commit();
+        }
+        return process;
+    }
+
+    /**
+     * Emits a spawn of a pipeline.
+     * @param event event begun before the spawn
+     * @param pipeline spawned programs
+     * @param processes running programs
+     * @return running programs
+     */
+    static List<Process> spawned(Spawn event, List<ProcessBuilder> pipeline, List<Process> processes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.command = Util.getCmd(pipeline);
+            event.pid = processes.get(0).pid();
+            event.programs = processes.size();
+            event.commit();
+        }
+        return processes;
+    }
+
+    /**
+     * Waits for a program to exit, emitting the wait.
+     * @param process running program
+     * @param cmd invoked command
+     * @return exitcode
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static int waitFor(Process process, String cmd) throws InterruptedException {
+        Exit event = new Exit();
+        event.begin();
+        int exitcode = process.waitFor();
+        event.end();
+        if (event.shouldCommit()) {
+            event.command = cmd;
+            event.pid = process.pid();
+            event.exitcode = exitcode;
+            event.commit();
+        }
+        return exitcode;
+    }
+
+    /**
+     * Starts timing the first output of a stream.
+     * @param cmd invoked command
+     * @param pid PID of the program
+     * @param stream stream name
+     * @return begun event; {@code null} if the event is disabled
+     */
+    static FirstOutput firstOutput(String cmd, long pid, String stream) {
+        FirstOutput event = new FirstOutput();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.command = cmd;
+        event.pid = pid;
+        event.stream = stream;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Emits the first output of a stream.
+     * @param event begun event, nullable
+     */
+    static void output(FirstOutput event) {
+        if (event != null && event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts timing the drain of a stream.
+     * @param cmd invoked command
+     * @param pid PID of the program
+     * @param stream stream name
+     * @return begun event; {@code null} if the event is disabled
+     */
+    static Drain drain(String cmd, long pid, String stream) {
+        Drain event = new Drain();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.command = cmd;
+        event.pid = pid;
+        event.stream = stream;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Emits the drain of a stream.
+     * @param event begun event, nullable
+     * @param bytes amount of bytes drained
+     * @param failed whether reading the stream has failed
+     */
+    static void drained(Drain event, long bytes, boolean failed) {
+        if (event != null && event.shouldCommit()) {
+            event.bytes = bytes;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Emits a failed invocation.
+     * @param cmd invoked command
+     * @param ex failure
+     */
+    static void failed(String cmd, CmdException ex) {
+        Failure event = new Failure();
+        if (event.shouldCommit()) {
+            event.command = cmd;
+            event.message = ex.getMessage();
+            event.exitcode = ex.output().map(io.github.artkonr.process.Output::exitcode).orElse(-1);
+            event.commit();
+        }
+    }
+
+    private Flight() { }
+
+    /**
+     * Spawn of a program or a pipeline.
+     */
+    @Name(PREFIX + "Spawn")
+    @Label("Process Spawn")
+    @Category({ "Process" })
+    @Description("Time taken to start a program or a pipeline")
+    @Enabled(false)
+    @StackTrace(false)
+    static class Spawn extends Event {
+        /**
+         * Invoked command.
+         */
+        @Label("Command")
+        String command;
+        /**
+         * PID of the first program.
+         */
+        @Label("PID")
+        @Description("PID of the first program")
+        long pid;
+        /**
+         * Amount of programs spawned.
+         */
+        @Label("Programs")
+        int programs;
+    }
+
+    /**
+     * First output of a stream.
+     */
+    @Name(PREFIX + "FirstOutput")
+    @Label("Process First Output")
+    @Category({ "Process" })
+    @Description("Time from attaching a stream to its first byte")
+    @Enabled(false)
+    @StackTrace(false)
+    static class FirstOutput extends Event {
+        /**
+         * Invoked command.
+         */
+        @Label("Command")
+        String command;
+        /**
+         * PID of the program.
+         */
+        @Label("PID")
+        long pid;
+        /**
+         * Stream name, {@code stdout} or {@code stderr}.
+         */
+        @Label("Stream")
+        String stream;
+    }
+
+    /**
+     * Drain of a stream.
+     */
+    @Name(PREFIX + "Drain")
+    @Label("Process Stream Drain")
+    @Category({ "Process" })
+    @Description("Time taken to drain a stream until it ended")
+    @Enabled(false)
+    @StackTrace(false)
+    static class Drain extends Event {
+        /**
+         * Invoked command.
+         */
+        @Label("Command")
+        String command;
+        /**
+         * PID of the program.
+         */
+        @Label("PID")
+        long pid;
+        /**
+         * Stream name, {@code stdout} or {@code stderr}.
+         */
+        @Label("Stream")
+        String stream;
+        /**
+         * Amount of bytes drained.
+         */
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        /**
+         * Whether reading the stream has failed.
+         */
+        @Label("Failed")
+        boolean failed;
+    }
+
+    /**
+     * Exit of a program.
+     */
+    @Name(PREFIX + "Exit")
+    @Label("Process Exit")
+    @Category({ "Process" })
+    @Description("Time spent waiting for a program to exit")
+    @Enabled(false)
+    @StackTrace(false)
+    static class Exit extends Event {
+        /**
+         * Invoked command.
+         */
+        @Label("Command")
+        String command;
+        /**
+         * PID of the program.
+         */
+        @Label("PID")
+        long pid;
+        /**
+         * Exitcode of the program.
+         */
+        @Label("Exitcode")
+        int exitcode;
+    }
+
+    /**
+     * Failed invocation.
+     */
+    @Name(PREFIX + "Failure")
+    @Label("Process Failure")
+    @Category({ "Process" })
+    @Description("Invocation that has failed to spawn, to read output or exited abnormally")
+    @Enabled(false)
+    static class Failure extends Event {
+        /**
+         * Invoked command.
+         */
+        @Label("Command")
+        String command;
+        /**
+         * Failure message.
+         */
+        @Label("Message")
+        String message;
+        /**
+         * Exitcode of the program.
+         */
+        @Label("Exitcode")
+        @Description("Exitcode of the program; -1 if it has not exited")
+        int exitcode;
+    }
+}
@@ -0,0 +1,406 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Err;
+import io.github.artkonr.result.Ok;
+import io.github.artkonr.result.Result;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A graph of dependent invocations.
+ * <p>Every node is a program or a {@link Chain pipeline} that
+ *  runs once all of its parents have exited normally. Nodes that
+ *  do not depend on each other run in parallel, up to the
+ *  concurrency limit. A node may get the stdout of a parent as
+ *  its stdin, or build its command out of the outputs of its
+ *  parents.
+ * <p>Parents must be declared before their children, so a graph
+ *  can never have cycles.
+ * <p>Execution short-circuits on failure: once any node fails,
+ *  nodes that have not started yet are skipped, while nodes that
+ *  are already running are let to finish.
+ */
+public class Graph {
+
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    /**
+     * Factory method. Creates an empty graph.
+     * @return new instance
+     */
+    public static Graph create() {
+        return new Graph();
+    }
+
+    /**
+     * Adds a node.
+     * @param id node ID
+     * @param shell program or pipeline to invoke
+     * @param after IDs of the parent nodes
+     * @return this instance
+     * @throws IllegalArgumentException if no ID or program provided, the ID
+     *  is already taken or a parent is not declared yet
+     */
+    public Graph add(@NonNull String id, @NonNull Shell shell, @NonNull String... after) {
+        return add(id, parents -> shell, after);
+    }
+
+    /**
+     * Adds a node whose command is built out of
+     *  the outputs of its parents, e.g. to pass
+     *  a parent's stdout as an argument.
+     * @param id node ID
+     * @param factory builds the program or pipeline to invoke
+     *                out of the parent outputs, keyed by ID
+     * @param after IDs of the parent nodes
+     * @return this instance
+     * @throws IllegalArgumentException if no ID or factory provided, the ID
+     *  is already taken or a parent is not declared yet
+     */
+    public Graph add(@NonNull String id,
+                     @NonNull Function<Map<String, Output>, Shell> factory,
+                     @NonNull String... after) {
+        return declare(new Step(id, factory, parents(id, after), null));
+    }
+
+    /**
+     * Adds a node that gets the stdout of a parent as its stdin.
+     *  The stdout is piped as is, byte for byte, rather than trimmed
+     *  like the {@link Output#stdout() stdout} in the output of the
+     *  parent. A parent that is piped from is always spawned, even
+     *  if it could be {@link Builtins emulated}.
+     * @param from ID of the parent node whose stdout is piped
+     * @param id node ID
+     * @param shell program or pipeline to invoke
+     * @param after IDs of other parent nodes
+     * @return this instance
+     * @throws IllegalArgumentException if no ID or program provided, the ID
+     *  is already taken, a parent is not declared yet or stdin of the
+     *  program is redirected away from a pipe
+     */
+    public Graph pipe(@NonNull String from, @NonNull String id, @NonNull Shell shell, @NonNull String... after) {
+        Chain chain = Chain.lift(shell);
+        if (chain.pipeline.get(0).redirectInput().type() != ProcessBuilder.Redirect.Type.PIPE) {
+            throw new IllegalArgumentException("stdin of '" + id + "' must be piped");
+        }
+
+        String[] parents = Arrays.copyOf(after, after.length + 1);
+        parents[after.length] = from;
+        return declare(new Step(id, outputs -> chain, parents(id, parents), from));
+    }
+
+    /**
+     * Invokes the graph with as many nodes running in
+     *  parallel as there are CPUs.
+     * @return execution report
+     */
+    public Report invoke() {
+        return invoke(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Invokes the graph, draining the program streams
+     *  on the {@link Reactor#shared() shared} reactor.
+     * @param parallelism max amount of nodes running at once
+     * @return execution report
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public Report invoke(int parallelism) {
+        return invoke(parallelism, Reactor.shared());
+    }
+
+    /**
+     * Invokes the graph. Blocks until every node has either
+     *  exited or been skipped.
+     * @param parallelism max amount of nodes running at once
+     * @param reactor reactor to drain the streams on
+     * @return execution report
+     * @throws IllegalArgumentException if no reactor provided or the limit is not positive
+     */
+    public Report invoke(int parallelism, @NonNull Reactor reactor) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "process-graph");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Set<String> piped = steps.values().stream()
+                    .map(Step::stdin)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            Run run = new Run(reactor, piped, System.nanoTime());
+            for (Step step : steps.values()) {
+                CompletableFuture<?>[] parents = step.parents.stream()
+                        .map(run.nodes::get)
+                        .toArray(CompletableFuture[]::new);
+                run.nodes.put(step.id, CompletableFuture
+                        .allOf(parents)
+                        .thenApplyAsync(ignored -> run.execute(step), pool));
+            }
+
+            Map<String, Node> nodes = new LinkedHashMap<>();
+            steps.keySet().forEach(id -> nodes.put(id, run.nodes.get(id).join()));
+            return new Report(nodes);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Outcome of a node.
+     */
+    public enum Status {
+
+        /**
+         * The node has exited normally.
+         */
+        SUCCEEDED,
+
+        /**
+         * The node has failed to start or exited abnormally.
+         */
+        FAILED,
+
+        /**
+         * The node has not been run due to a failure.
+         */
+        SKIPPED
+    }
+
+    /**
+     * Execution of a single node.
+     * @param id node ID
+     * @param status outcome
+     * @param result invocation {@link Result}; an error bearing
+     *               no output if the node was skipped
+     * @param start time from the graph start until the node started
+     *              or was skipped, including the time spent waiting
+     *              for its parents and for a free slot
+     * @param elapsed time the node took to run; zero if skipped
+     */
+    public record Node(String id,
+                       Status status,
+                       Result<Output, CmdException> result,
+                       Duration start,
+                       Duration elapsed) { }
+
+    /**
+     * Execution report of a {@link Graph}.
+     */
+    public static class Report {
+
+        private final Map<String, Node> nodes;
+
+        /**
+         * Every node of the graph, in the order of declaration.
+         * @return nodes keyed by ID
+         */
+        public Map<String, Node> nodes() {
+            return nodes;
+        }
+
+        /**
+         * Returns a single node.
+         * @param id node ID
+         * @return node
+         * @throws IllegalArgumentException if there is no such node
+         */
+        public Node node(@NonNull String id) {
+            Node node = nodes.get(id);
+            if (node == null) {
+                throw new IllegalArgumentException("no such node: " + id);
+            }
+            return node;
+        }
+
+        /**
+         * Checks if every node has exited normally.
+         * @return {@code true} if all nodes succeeded; {@code false} otherwise
+         */
+        public boolean succeeded() {
+            return failure().isEmpty();
+        }
+
+        /**
+         * Returns the first failed node, in the order of declaration.
+         * @return optional failed node
+         */
+        public Optional<Node> failure() {
+            return nodes.values().stream()
+                    .filter(node -> node.status() == Status.FAILED)
+                    .findFirst();
+        }
+
+        /**
+         * Converts {@code this} report into a {@link Result}.
+         * @return the report if every node has succeeded;
+         *  the error of the first failed node otherwise
+         */
+        public Result<Report, CmdException> toResult() {
+            return failure()
+                    .<Result<Report, CmdException>>map(node -> new Err<>(node.result().err()))
+                    .orElseGet(() -> new Ok<>(this));
+        }
+
+        private Report(Map<String, Node> nodes) {
+            this.nodes = Collections.unmodifiableMap(nodes);
+        }
+    }
+
+    private Graph declare(Step step) {
+        if (steps.containsKey(step.id)) {
+            throw new IllegalArgumentException("node '" + step.id + "' already exists");
+        }
+        steps.put(step.id, step);
+        return this;
+    }
+
+    private List<String> parents(String id, String[] after) {
+        List<String> parents = new ArrayList<>();
+        for (String parent : after) {
+            if (parent == null || !steps.containsKey(parent)) {
+                throw new IllegalArgumentException("parent '" + parent + "' of '" + id + "' is not declared");
+            }
+            if (!parents.contains(parent)) {
+                parents.add(parent);
+            }
+        }
+        return parents;
+    }
+
+    private Graph() { }
+
+    /**
+     * Declaration of a node.
+     * @param id node ID
+     * @param factory builds the program to invoke
+     * @param parents parent node IDs
+     * @param stdin ID of the parent node whose stdout is piped, nullable
+     */
+    private record Step(String id,
+                        Function<Map<String, Output>, Shell> factory,
+                        List<String> parents,
+                        String stdin) { }
+
+    /**
+     * State of a single graph invocation.
+     */
+    private static class Run {
+
+        private final Map<String, CompletableFuture<Node>> nodes = new ConcurrentHashMap<>();
+        private final Map<String, byte[]> stdouts = new ConcurrentHashMap<>();
+        private final AtomicBoolean failed = new AtomicBoolean();
+        private final Reactor reactor;
+        private final Set<String> piped;
+        private final long origin;
+
+        Node execute(Step step) {
+            long startedAt = System.nanoTime();
+            Map<String, Output> outputs = new LinkedHashMap<>();
+            for (String parent : step.parents()) {
+                Node node = nodes.get(parent).join();
+                if (node.status() != Status.SUCCEEDED) {
+                    return skip(step, startedAt);
+                }
+                outputs.put(parent, node.result().value());
+            }
+            if (failed.get()) {
+                return skip(step, startedAt);
+            }
+
+            Result<Output, CmdException> result = Result
+                    .wrap(() -> Objects.requireNonNull(
+                            step.factory().apply(Collections.unmodifiableMap(outputs)),
+                            "no command built"
+                    ))
+                    .<CmdException>stack(ex -> new CmdException("failed to build command of '" + step.id() + "'", ex))
+                    .then(shell -> step.stdin() == null && !piped.contains(step.id())
+                            ? shell.invoke(reactor)
+                            : run(step, Chain.lift(shell)));
+            if (result.isErr()) {
+                failed.set(true);
+            }
+            return new Node(
+                    step.id(),
+                    result.isOk() ? Status.SUCCEEDED : Status.FAILED,
+                    result,
+                    Duration.ofNanos(startedAt - origin),
+                    Duration.ofNanos(System.nanoTime() - startedAt)
+            );
+        }
+
+        /**
+         * Invokes a node that is piped to or from: feeds the
+         *  untrimmed stdout of its parent to its stdin, if any, and
+         *  keeps its own untrimmed stdout for its children.
+         */
+        private Result<Output, CmdException> run(Step step, Chain chain) {
+            if (step.stdin() == null) {
+                List<Reactor.Streams> attached = new ArrayList<>();
+                Result<Output, CmdException> result = chain.invoke(reactor, attached);
+                keep(step, attached);
+                return result;
+            }
+
+            byte[] stdin = stdouts.get(step.stdin());
+            return chain.spawn()
+                    .<CmdException>stack(ex -> new CmdException("command failed", ex))
+                    .then(processes -> {
+                        Map<Process, Reactor.Streams> attached = Chain.attach(processes, chain.specs(), reactor);
+                        try (OutputStream sink = processes.get(0).getOutputStream()) {
+                            sink.write(stdin);
+                        } catch (IOException ignored) {
+                            // the program has exited without reading all of its input
+                        }
+                        Result<Output, CmdException> result = chain.await(processes, attached);
+                        keep(step, processes.stream().map(attached::get).toList());
+                        return result;
+                    });
+        }
+
+        private void keep(Step step, List<Reactor.Streams> attached) {
+            if (piped.contains(step.id()) && !attached.isEmpty()) {
+                stdouts.put(step.id(), attached.get(attached.size() - 1).stdout().snapshot());
+            }
+        }
+
+        private Node skip(Step step, long startedAt) {
+            return new Node(
+                    step.id(),
+                    Status.SKIPPED,
+                    new Err<>(new CmdException("skipped due to a failure: " + step.id())),
+                    Duration.ofNanos(startedAt - origin),
+                    Duration.ZERO
+            );
+        }
+
+        Run(Reactor reactor, Set<String> piped, long origin) {
+            this.reactor = reactor;
+            this.piped = piped;
+            this.origin = origin;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Err;
+import io.github.artkonr.result.Ok;
+import io.github.artkonr.result.Result;
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static io.github.artkonr.process.Util.readByteArray;
+
+/**
+ * Handle of a running program (or a {@link Chain pipeline})
+ *  whose output is being drained on a {@link Reactor}.
+ * <p>Unlike {@link Shell#invoke()}, the handle is returned right
+ *  after the program starts and exposes its in-flight state:
+ *  how much it has written so far, how long it has been running
+ *  and how much CPU it has consumed. For a pipeline, stream
+ *  stats and snapshots refer to the last program in it.
+ */
+public class Job {
+
+    private final List<Process> processes;
+    private final String cmd;
+    private final boolean merged;
+    private final Reactor.Streams streams;
+    private final long startedAt;
+    private final CompletableFuture<Result<io.github.artkonr.process.Output, CmdException>> completion;
+
+    /**
+     * PID of the (last) running program.
+     * @return PID
+     */
+    public long pid() {
+        return last().pid();
+    }
+
+    /**
+     * Checks if any program of the job is still running.
+     * @return {@code true} if running; {@code false} otherwise
+     */
+    public boolean isAlive() {
+        return processes.stream().anyMatch(Process::isAlive);
+    }
+
+    /**
+     * Amount of stdout bytes read so far.
+     * @return byte count
+     */
+    public long stdoutBytes() {
+        return streams.stdout().bytes();
+    }
+
+    /**
+     * Amount of stderr bytes read so far.
+     * @return byte count
+     */
+    public long stderrBytes() {
+        return streams.stderr().bytes();
+    }
+
+    /**
+     * Time elapsed since the job started.
+     * @return elapsed time
+     */
+    public Duration elapsed() {
+        return Duration.ofNanos(System.nanoTime() - startedAt);
+    }
+
+    /**
+     * Total CPU time consumed by the programs of the job that
+     *  are still running, as reported by {@link ProcessHandle.Info}.
+     * @return CPU time; empty if the OS does not report it
+     *  or no program is running anymore
+     */
+    public Optional<Duration> cpu() {
+        return processes.stream()
+                .map(process -> process.info().totalCpuDuration())
+                .flatMap(Optional::stream)
+                .reduce(Duration::plus);
+    }
+
+    /**
+     * Snapshot of stdout read so far.
+     * @return stdout snapshot
+     */
+    public Data stdout() {
+        return new Data(streams.stdout().snapshot());
+    }
+
+    /**
+     * Snapshot of stderr read so far.
+     * @return stderr snapshot
+     */
+    public Data stderr() {
+        return new Data(streams.stderr().snapshot());
+    }
+
+    /**
+     * Requests every program of the job to terminate.
+     * <p>The output read so far is kept: once the programs exit,
+     *  the job completes with an error bearing it along with the
+     *  exitcode the programs were terminated with.
+     * @param forcibly if {@code true}, the programs are killed
+     *                 instead of being asked to terminate
+     * @see ProcessHandle#destroy()
+     * @see ProcessHandle#destroyForcibly()
+     */
+    public void cancel(boolean forcibly) {
+        // signalled through the handle, as Process#destroy closes the streams left to drain
+        processes.forEach(process -> {
+            ProcessHandle handle = process.toHandle();
+            if (forcibly) {
+                handle.destroyForcibly();
+            } else {
+                handle.destroy();
+            }
+        });
+    }
+
+    /**
+     * Requests every program of the job to terminate gracefully.
+     * @see Job#cancel(boolean)
+     */
+    public void cancel() {
+        cancel(false);
+    }
+
+    /**
+     * Future that completes once all programs of the job have
+     *  exited and their output is drained.
+     * @return future bearing the invocation {@link Result}
+     */
+    public CompletableFuture<Result<io.github.artkonr.process.Output, CmdException>> onExit() {
+        return completion;
+    }
+
+    /**
+     * Blocks until the job completes.
+     * @return invocation {@link Result}
+     */
+    public Result<io.github.artkonr.process.Output, CmdException> await() {
+        return Result
+                .wrap(() -> {
+                    try {
+                        return completion.get();
+                    } catch (ExecutionException ex) {
+                        throw (Exception) ex.getCause();
+                    }
+                })
+                .<CmdException>stack(CmdException::wrap)
+                .then(result -> result);
+    }
+
+    /**
+     * Blocks until the output of the (last) program matches
+     *  a condition, or until the job completes otherwise.
+     * <p>The output is scanned on the calling thread. Once the
+     *  condition matches, or fails to be evaluated, every program
+     *  of the job is killed, unless the condition
+     *  {@link Until#detach() detaches} them, and the output read so
+     *  far is returned right away, with no exitcode: the actual exit
+     *  status is reported by {@link Job#onExit()} once the programs
+     *  exit. Several conditions can be awaited concurrently on the
+     *  same job.
+     * @param until condition
+     * @return {@link Result} bearing the output read until the match;
+     *  if the job completes with no match, its error, or an error
+     *  bearing no output if it has exited normally
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Result<Until.Match, CmdException> await(@NonNull Until until) {
+        Reactor.Sink sink = until.stderr() ? streams.stderr() : streams.stdout();
+        Result<Boolean, CmdException> matched = Result
+                .wrap(() -> sink.scan(until.scanner(), Long.MAX_VALUE))
+                .<CmdException>stack(ex -> new CmdException("failed to scan output", ex));
+        if (matched.isErr()) {
+            if (!until.detached()) {
+                cancel(true);
+            }
+            return new Err<>(matched.err());
+        }
+        if (!matched.value()) {
+            return await().then(output -> new Err<>(new CmdException(
+                    "program has exited before its output matched: " + output.command()
+            )));
+        }
+
+        Until.Match match = new Until.Match(
+                this,
+                cmd,
+                new Data(readByteArray(streams.stdout().snapshot())),
+                new Data(readByteArray(streams.stderr().snapshot())),
+                until.detached()
+        );
+        if (!until.detached()) {
+            cancel(true);
+        }
+        return new Ok<>(match);
+    }
+
+    /**
+     * Factory method. Creates a new handle that completes once
+     *  all programs have exited and all attached streams are done.
+     * @param processes running programs
+     * @param cmd invoked command
+     * @param merged whether stderr of the last program is merged into stdout
+     * @param attached streams attached for each running program
+     * @param handler produces the invocation result once everything is done
+     * @return new instance
+     */
+    static Job from(List<Process> processes,
+                    String cmd,
+                    boolean merged,
+                    List<Reactor.Streams> attached,
+                    Supplier<Result<io.github.artkonr.process.Output, CmdException>> handler) {
+        CompletableFuture<?>[] pending = Stream
+                .concat(
+                        processes.stream().map(Process::onExit),
+                        attached.stream().flatMap(streams -> Stream.of(
+                                streams.stdout().completion(),
+                                streams.stderr().completion()
+                        ))
+                )
+                .toArray(CompletableFuture[]::new);
+        var completion = CompletableFuture
+                .allOf(pending)
+                .handle((done, ex) -> handler.get());
+        return new Job(processes, cmd, merged, attached.get(attached.size() - 1), completion);
+    }
+
+    private Process last() {
+        return processes.get(processes.size() - 1);
+    }
+
+    private Job(List<Process> processes,
+                String cmd,
+                boolean merged,
+                Reactor.Streams streams,
+                CompletableFuture<Result<io.github.artkonr.process.Output, CmdException>> completion) {
+        this.processes = processes;
+        this.cmd = cmd;
+        this.merged = merged;
+        this.streams = streams;
+        this.startedAt = System.nanoTime();
+        this.completion = completion;
+    }
+}
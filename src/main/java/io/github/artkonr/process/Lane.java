@@ -0,0 +1,111 @@
+package io.github.artkonr.process;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded buffer of chunks that are written into the stdin
+ *  of a program, as {@link Tee} and {@link Merge} do.
+ * <p>Any number of writers {@link Lane#put(byte[]) put} chunks
+ *  into the lane, each of them {@link Lane#end() ending} it once
+ *  done, while a single task {@link Lane#drain() drains} it into
+ *  the stdin. A full lane blocks the writers, so a slow program
+ *  throttles them. Once the program stops accepting input, the
+ *  lane is {@link Lane#isBroken() broken}: chunks are discarded
+ *  from then on, so that the writers are never blocked.
+ */
+class Lane {
+
+    /**
+     * Marks the end of a writer in the buffer.
+     */
+    private static final byte[] EOF = new byte[0];
+
+    private final OutputStream sink;
+    private final BlockingQueue<byte[]> queue;
+    private int pending;
+    private volatile boolean broken;
+
+    /**
+     * Creates a new lane.
+     * @param sink stdin of the program
+     * @param capacity buffer size, in chunks
+     * @param writers number of writers
+     */
+    Lane(OutputStream sink, int capacity, int writers) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.pending = writers;
+    }
+
+    /**
+     * Hands a chunk over to the program, blocking while the buffer is full.
+     * @param chunk chunk; must not be modified afterwards
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void put(byte[] chunk) throws InterruptedException {
+        queue.put(chunk);
+    }
+
+    /**
+     * Ends the calling writer. Unlike {@link Lane#put(byte[])},
+     *  it cannot be interrupted.
+     */
+    void end() {
+        // EOF must get through even if the buffer is full
+        boolean interrupted = Thread.interrupted();
+        while (true) {
+            try {
+                queue.put(EOF);
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks if the program no longer accepts input.
+     * @return {@code true} if broken; {@code false} otherwise
+     */
+    boolean isBroken() {
+        return broken;
+    }
+
+    /**
+     * Writes the buffered chunks into the stdin until every
+     *  writer has ended, then closes the stdin.
+     */
+    void drain() {
+        try (sink) {
+            while (pending > 0) {
+                byte[] chunk;
+                try {
+                    chunk = queue.take();
+                } catch (InterruptedException ex) {
+                    // stop writing, but keep draining so that the writers are not blocked
+                    broken = true;
+                    continue;
+                }
+                if (chunk == EOF) {
+                    pending--;
+                } else if (!broken) {
+                    try {
+                        sink.write(chunk);
+                        sink.flush();
+                    } catch (IOException ex) {
+                        // the program has exited; the rest is discarded until the writers notice and end
+                        broken = true;
+                    }
+                }
+            }
+        } catch (IOException ignored) {
+            // stdin of a program that has exited may fail to close
+        }
+    }
+}
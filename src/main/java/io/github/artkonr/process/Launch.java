@@ -0,0 +1,96 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts programs with {@link Placement} and {@link Limits} applied.
+ * <p>The {@link ProcessBuilder} passed in is never modified: the
+ *  command line is prefixed on a {@link Util#derive(ProcessBuilder, List)
+ *  derived} builder, so invocation results still report the original
+ *  command, and the environment is only copied if it is customized.
+ */
+class Launch {
+
+    /**
+     * Starts a single program.
+     * @param pb program
+     * @param limits limits to apply
+     * @param placement placement to apply
+     * @return {@link Result} bearing the started program
+     */
+    static Result<Process, Exception> start(ProcessBuilder pb, Limits limits, Placement placement) {
+        if (limits.isEmpty() && placement.isEmpty()) {
+            return Result.wrap(pb::start);
+        }
+
+        return Result.wrap(() -> {
+            Path cgroup = limits.createCgroup();
+            try {
+                Process process = prefix(pb, limits, placement, cgroup).start();
+                cleanup(process, cgroup);
+                return process;
+            } catch (IOException | RuntimeException ex) {
+                Limits.removeCgroup(cgroup);
+                throw ex;
+            }
+        });
+    }
+
+    /**
+     * Starts a pipeline of programs.
+     * @param pipeline programs
+     * @param limits limits to apply to every program
+     * @param placement placement to apply to every program
+     * @return {@link Result} bearing the started programs
+     * @see ProcessBuilder#startPipeline(List)
+     */
+    static Result<List<Process>, Exception> startPipeline(List<ProcessBuilder> pipeline,
+                                                          Limits limits,
+                                                          Placement placement) {
+        if (limits.isEmpty() && placement.isEmpty()) {
+            return Result.wrap(() -> ProcessBuilder.startPipeline(pipeline));
+        }
+
+        return Result.wrap(() -> {
+            List<Path> cgroups = new ArrayList<>();
+            try {
+                List<ProcessBuilder> prefixed = new ArrayList<>();
+                for (ProcessBuilder pb : pipeline) {
+                    Path cgroup = limits.createCgroup();
+                    cgroups.add(cgroup);
+                    prefixed.add(prefix(pb, limits, placement, cgroup));
+                }
+                List<Process> processes = ProcessBuilder.startPipeline(prefixed);
+                for (int i = 0; i < processes.size(); i++) {
+                    cleanup(processes.get(i), cgroups.get(i));
+                }
+                return processes;
+            } catch (IOException | RuntimeException ex) {
+                cgroups.forEach(Limits::removeCgroup);
+                throw ex;
+            }
+        });
+    }
+
+    private static ProcessBuilder prefix(ProcessBuilder pb, Limits limits, Placement placement, Path cgroup) {
+        // placement is inherited across exec, so it goes first and applies to the limiting tools too
+        List<String> command = new ArrayList<>(placement.prefix());
+        command.addAll(limits.prefix(cgroup));
+        command.addAll(pb.command());
+        return Util.derive(pb, command);
+    }
+
+    private static void cleanup(Process process, Path cgroup) {
+        if (cgroup != null) {
+            process.onExit().thenRun(() -> Limits.removeCgroup(cgroup));
+        }
+    }
+
+    private Launch() { }
+
+}
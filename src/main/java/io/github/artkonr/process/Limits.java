@@ -0,0 +1,260 @@
+package io.github.artkonr.process;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Linux resource limits applied to every program of an invocation.
+ * <p>Limits are applied by prefixing the command line, so the
+ *  respective tools must be present on the host:
+ *  <ul>
+ *      <li>{@code prlimit} (util-linux) for CPU time, address space
+ *          and open files - these are {@code setrlimit} limits of the
+ *          program itself;</li>
+ *      <li>{@code nice} for the scheduling priority;</li>
+ *      <li>{@code sh} for cgroup confinement: the program moves itself
+ *          into a dedicated sub-cgroup before it is executed.</li>
+ *  </ul>
+ * <p>Cgroup confinement requires cgroup v2 and a parent cgroup
+ *  delegated to the current user, with the {@code cpu} and
+ *  {@code memory} controllers enabled in its {@code cgroup.subtree_control}.
+ *  A sub-cgroup is created per program and removed once it exits.
+ * <p>Instances are immutable; every modifier returns a new instance.
+ */
+public final class Limits {
+
+    private static final String JOIN_CGROUP = "echo $$ > \"$0/cgroup.procs\" && exec \"$@\"";
+    private static final long CPU_PERIOD = 100_000;
+
+    private final Long cpuSeconds;
+    private final Long addressSpace;
+    private final Long openFiles;
+    private final Integer nice;
+    private final Path cgroup;
+    private final Double cpuMax;
+    private final Long memoryMax;
+
+    /**
+     * Factory method. Creates an instance with no limits.
+     * @return new instance
+     */
+    public static Limits none() {
+        return new Limits(null, null, null, null, null, null, null);
+    }
+
+    /**
+     * Limits CPU time the program may consume ({@code RLIMIT_CPU}).
+     *  Exceeding it kills the program with {@code SIGXCPU}/{@code SIGKILL}.
+     * @param limit CPU time; rounded up to whole seconds
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided or it is not positive
+     */
+    public Limits cpu(@NonNull Duration limit) {
+        if (limit.isNegative() || limit.isZero()) {
+            throw new IllegalArgumentException("cpu limit must be positive");
+        }
+        long seconds = limit.getSeconds() + (limit.getNano() > 0 ? 1 : 0);
+        return new Limits(seconds, addressSpace, openFiles, nice, cgroup, cpuMax, memoryMax);
+    }
+
+    /**
+     * Limits virtual address space of the program ({@code RLIMIT_AS}).
+     * @param bytes limit, bytes
+     * @return new instance
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    public Limits addressSpace(long bytes) {
+        positive(bytes, "address space");
+        return new Limits(cpuSeconds, bytes, openFiles, nice, cgroup, cpuMax, memoryMax);
+    }
+
+    /**
+     * Limits the number of files the program may open ({@code RLIMIT_NOFILE}).
+     * @param count limit
+     * @return new instance
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    public Limits openFiles(long count) {
+        positive(count, "open files");
+        return new Limits(cpuSeconds, addressSpace, count, nice, cgroup, cpuMax, memoryMax);
+    }
+
+    /**
+     * Sets the niceness adjustment of the program.
+     * @param adjustment niceness, from {@code -20} (most favourable)
+     *                   to {@code 19} (least favourable); negative
+     *                   values require privileges
+     * @return new instance
+     * @throws IllegalArgumentException if niceness is out of range
+     */
+    public Limits nice(int adjustment) {
+        if (adjustment < -20 || adjustment > 19) {
+            throw new IllegalArgumentException("niceness must be within [-20, 19]");
+        }
+        return new Limits(cpuSeconds, addressSpace, openFiles, adjustment, cgroup, cpuMax, memoryMax);
+    }
+
+    /**
+     * Confines each program into its own sub-cgroup of a cgroup v2 parent.
+     * @param parent delegated parent cgroup, e.g. {@code /sys/fs/cgroup/user.slice/.../app.scope}
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Limits cgroup(@NonNull Path parent) {
+        return new Limits(cpuSeconds, addressSpace, openFiles, nice, parent, cpuMax, memoryMax);
+    }
+
+    /**
+     * Throttles the sub-cgroup to a share of CPUs ({@code cpu.max}).
+     *  Requires {@link Limits#cgroup(Path)} to be set first.
+     * @param cpus CPU bandwidth, e.g. {@code 0.5} for half a CPU
+     * @return new instance
+     * @throws IllegalArgumentException if bandwidth is not positive
+     * @throws IllegalStateException if no cgroup is set
+     */
+    public Limits cpuMax(double cpus) {
+        if (!(cpus > 0)) {
+            throw new IllegalArgumentException("cpu bandwidth must be positive");
+        }
+        confined("cpu bandwidth");
+        return new Limits(cpuSeconds, addressSpace, openFiles, nice, cgroup, cpus, memoryMax);
+    }
+
+    /**
+     * Caps memory of the sub-cgroup ({@code memory.max}).
+     *  Requires {@link Limits#cgroup(Path)} to be set first.
+     * @param bytes limit, bytes
+     * @return new instance
+     * @throws IllegalArgumentException if limit is not positive
+     * @throws IllegalStateException if no cgroup is set
+     */
+    public Limits memoryMax(long bytes) {
+        positive(bytes, "memory");
+        confined("memory");
+        return new Limits(cpuSeconds, addressSpace, openFiles, nice, cgroup, cpuMax, bytes);
+    }
+
+    /**
+     * Checks if {@code this} instance imposes any limit.
+     * @return {@code true} if there are no limits; {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return cpuSeconds == null
+                && addressSpace == null
+                && openFiles == null
+                && nice == null
+                && cgroup == null
+                && cpuMax == null
+                && memoryMax == null;
+    }
+
+    /**
+     * Creates the sub-cgroup for a single program, if cgroup
+     *  confinement is requested.
+     * @return created sub-cgroup, or {@code null} if not requested
+     * @throws IOException if the sub-cgroup could not be set up
+     */
+    Path createCgroup() throws IOException {
+        if (cgroup == null) {
+            return null;
+        }
+
+        Path dir = Files.createDirectory(cgroup.resolve("process-" + UUID.randomUUID()));
+        try {
+            if (cpuMax != null) {
+                long quota = Math.max(1000, Math.round(cpuMax * CPU_PERIOD));
+                Files.writeString(dir.resolve("cpu.max"), quota + " " + CPU_PERIOD);
+            }
+            if (memoryMax != null) {
+                Files.writeString(dir.resolve("memory.max"), String.valueOf(memoryMax));
+            }
+        } catch (IOException ex) {
+            removeCgroup(dir);
+            throw ex;
+        }
+        return dir;
+    }
+
+    /**
+     * Removes a sub-cgroup created by {@link Limits#createCgroup()}.
+     *  Failures are ignored, as the kernel refuses to remove
+     *  a cgroup that still has processes in it.
+     * @param dir sub-cgroup, nullable
+     */
+    static void removeCgroup(Path dir) {
+        if (dir == null) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(dir);
+        } catch (IOException ignored) {
+            // leftover cgroups are harmless and can be cleaned up by the delegating service
+        }
+    }
+
+    /**
+     * Builds the command line prefix that applies the limits.
+     * @param cgroup sub-cgroup to join, nullable
+     * @return prefix, empty if there is nothing to apply
+     */
+    List<String> prefix(Path cgroup) {
+        List<String> prefix = new ArrayList<>();
+        if (cgroup != null) {
+            prefix.addAll(List.of("sh", "-c", JOIN_CGROUP, cgroup.toString()));
+        }
+        if (nice != null) {
+            prefix.addAll(List.of("nice", "-n", String.valueOf(nice)));
+        }
+        if (cpuSeconds != null || addressSpace != null || openFiles != null) {
+            prefix.add("prlimit");
+            if (cpuSeconds != null) {
+                prefix.add("--cpu=" + cpuSeconds);
+            }
+            if (addressSpace != null) {
+                prefix.add("--as=" + addressSpace);
+            }
+            if (openFiles != null) {
+                prefix.add("--nofile=" + openFiles);
+            }
+            prefix.add("--");
+        }
+        return prefix;
+    }
+
+    private static void positive(long value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " limit must be positive");
+        }
+    }
+
+    private void confined(String name) {
+        // cgroup controls would otherwise be silently dropped at launch
+        if (cgroup == null) {
+            throw new IllegalStateException(name + " limit requires a cgroup");
+        }
+    }
+
+    private Limits(Long cpuSeconds,
+                   Long addressSpace,
+                   Long openFiles,
+                   Integer nice,
+                   Path cgroup,
+                   Double cpuMax,
+                   Long memoryMax) {
+        this.cpuSeconds = cpuSeconds;
+        this.addressSpace = addressSpace;
+        this.openFiles = openFiles;
+        this.nice = nice;
+        this.cgroup = cgroup;
+        this.cpuMax = cpuMax;
+        this.memoryMax = memoryMax;
+    }
+}
@@ -0,0 +1,399 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Err;
+import io.github.artkonr.result.Result;
+import io.github.artkonr.result.TakeFrom;
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Fan-in invocation: stdout of several concurrently running
+ *  producers (programs or {@link Chain pipelines}) is merged
+ *  into the stdin of a single consumer.
+ * <p>Output of the producers is interleaved as it arrives,
+ *  either in arbitrary chunks or, if {@link Merge#records()
+ *  records} are enabled, in whole delimited records, so that
+ *  lines of different producers are never mixed up. Output
+ *  of each producer keeps its order.
+ * <p>Chunks are handed over through a bounded buffer, so
+ *  a slow consumer throttles the producers. If the consumer
+ *  exits before consuming all of its input, the producers
+ *  are no longer read, much like in a shell pipeline.
+ * <p>Streams of all programs are drained on a {@link Reactor}.
+ */
+public class Merge {
+
+    /**
+     * Default buffer size, in chunks.
+     */
+    static final int BUFFER = 16;
+
+    /**
+     * Runs every copying task on a dedicated daemon thread: the tasks
+     *  block for as long as the invocation runs and depend on each
+     *  other, so a pool of fewer threads could stall them for good.
+     */
+    private static final Executor THREADS = task -> {
+        Thread thread = new Thread(task, "process-merge");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    private final List<Chain> producers;
+    private Chain consumer;
+    private int buffer = BUFFER;
+    private Byte delimiter;
+
+    /**
+     * Factory method. Creates a new {@link Merge}.
+     * @param producers programs or pipelines whose stdout is merged
+     * @return new instance
+     * @throws IllegalArgumentException if no producers provided, or
+     *  stdout of a producer is redirected away from a pipe
+     */
+    static Merge from(@NonNull Shell... producers) {
+        if (producers.length == 0) {
+            throw new IllegalArgumentException("no producers provided");
+        }
+
+        List<Chain> lifted = new ArrayList<>();
+        for (Shell producer : producers) {
+            if (producer == null) {
+                throw new IllegalArgumentException("producer is null");
+            }
+            Chain chain = Chain.lift(producer);
+            ProcessBuilder last = chain.pipeline.get(chain.pipeline.size() - 1);
+            if (last.redirectOutput().type() != ProcessBuilder.Redirect.Type.PIPE) {
+                throw new IllegalArgumentException("producer stdout must be piped");
+            }
+            lifted.add(chain);
+        }
+        return new Merge(lifted);
+    }
+
+    /**
+     * Sets the program or pipeline that consumes the merged output.
+     * @param consumer consumer
+     * @return this instance
+     * @throws IllegalArgumentException if no argument provided, or
+     *  stdin of the consumer is redirected away from a pipe
+     */
+    public Merge into(@NonNull Shell consumer) {
+        Chain chain = Chain.lift(consumer);
+        if (chain.pipeline.get(0).redirectInput().type() != ProcessBuilder.Redirect.Type.PIPE) {
+            throw new IllegalArgumentException("consumer stdin must be piped");
+        }
+        this.consumer = chain;
+        return this;
+    }
+
+    /**
+     * Interleaves the producers by whole lines.
+     * @return this instance
+     */
+    public Merge records() {
+        return records((byte) '\n');
+    }
+
+    /**
+     * Interleaves the producers by whole records.
+     *  A trailing record with no delimiter is passed on
+     *  as is once its producer exits.
+     * @param delimiter record delimiter
+     * @return this instance
+     */
+    public Merge records(byte delimiter) {
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    /**
+     * Sets the size of the buffer shared by all producers.
+     * @param chunks buffer size, in chunks of up to {@link Feed#CHUNK}
+     *               bytes or whole records
+     * @return this instance
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public Merge buffer(int chunks) {
+        if (chunks <= 0) {
+            throw new IllegalArgumentException("buffer size must be positive");
+        }
+        this.buffer = chunks;
+        return this;
+    }
+
+    /**
+     * Invokes all producers along with the consumer, draining
+     *  their streams on the {@link Reactor#shared() shared} reactor.
+     * @return invocation {@link Result}
+     * @throws IllegalStateException if no consumer is set
+     */
+    public Result<io.github.artkonr.process.Output, CmdException> invoke() {
+        return invoke(Reactor.shared());
+    }
+
+    /**
+     * Invokes all producers along with the consumer. Stdout of
+     *  the producers is copied into the consumer on dedicated threads.
+     * @param reactor reactor to drain the streams on
+     * @return invocation {@link Result}; if any program fails,
+     *  the error of the first failed producer or the consumer
+     * @throws IllegalArgumentException if no argument provided
+     * @throws IllegalStateException if no consumer is set
+     */
+    public Result<io.github.artkonr.process.Output, CmdException> invoke(@NonNull Reactor reactor) {
+        return invoke(reactor, THREADS);
+    }
+
+    /**
+     * Invokes all producers along with the consumer.
+     * @param reactor reactor to drain the streams on
+     * @param executor executor to copy stdout of the producers into
+     *                 the consumer on; it must be able to run a task per
+     *                 producer plus one concurrently, for the whole
+     *                 duration of the invocation
+     * @return invocation {@link Result}; if any program fails,
+     *  the error of the first failed producer or the consumer
+     * @throws IllegalArgumentException if no argument provided
+     * @throws IllegalStateException if no consumer is set
+     */
+    public Result<io.github.artkonr.process.Output, CmdException> invoke(@NonNull Reactor reactor,
+                                                                         @NonNull Executor executor) {
+        if (consumer == null) {
+            throw new IllegalStateException("no consumer set");
+        }
+
+        Result<List<Process>, Exception> spawned = consumer.spawn();
+        if (spawned.isErr()) {
+            return new Err<>(new CmdException("command failed", spawned.err()));
+        }
+        List<Process> sink = spawned.value();
+
+        List<List<Process>> sources = new ArrayList<>();
+        for (Chain producer : producers) {
+            Result<List<Process>, Exception> started = producer.spawn();
+            if (started.isErr()) {
+                sources.forEach(Merge::kill);
+                kill(sink);
+                return new Err<>(new CmdException("command failed", started.err()));
+            }
+            sources.add(started.value());
+        }
+
+        List<Map<Process, Reactor.Streams>> attached = new ArrayList<>();
+        for (int i = 0; i < producers.size(); i++) {
+            List<Cmd.Spec> specs = new ArrayList<>(producers.get(i).specs());
+            specs.set(specs.size() - 1, specs.get(specs.size() - 1).skipStdout());
+            attached.add(Chain.attach(sources.get(i), specs, reactor));
+        }
+        Map<Process, Reactor.Streams> consumed = Chain.attach(sink, consumer.specs(), reactor);
+
+        pump(
+                sources.stream().map(processes -> processes.get(processes.size() - 1).getInputStream()).toList(),
+                sink.get(0).getOutputStream(),
+                executor
+        );
+
+        List<Result<io.github.artkonr.process.Output, CmdException>> head = new ArrayList<>();
+        for (int i = 0; i < producers.size(); i++) {
+            head.add(producers.get(i).await(sources.get(i), attached.get(i)));
+        }
+        var tail = consumer.await(sink, consumed);
+        return Result.join(head, TakeFrom.HEAD)
+                .fuse(tail, TakeFrom.HEAD)
+                .map(fuse -> new Output(fuse.left(), fuse.right()));
+    }
+
+    /**
+     * {@link io.github.artkonr.process.Output Output} of a fan-in
+     *  invocation. Stream data, PID and exitcode are those of
+     *  the consumer, while the status covers every program.
+     */
+    public static class Output implements io.github.artkonr.process.Output {
+
+        private final List<io.github.artkonr.process.Output> producers;
+        private final io.github.artkonr.process.Output consumer;
+
+        /**
+         * PID of the consumer.
+         * @return PID
+         */
+        @Override
+        public long pid() {
+            return consumer.pid();
+        }
+
+        /**
+         * Renders the invocation, e.g. {@code merge(a, b) | sort}.
+         * @return invoked command
+         */
+        @Override
+        public String command() {
+            return producers.stream()
+                    .map(io.github.artkonr.process.Output::command)
+                    .collect(Collectors.joining(", ", "merge(", ") | "))
+                    + consumer.command();
+        }
+
+        /**
+         * Returns exitcode of the consumer.
+         * @return exitcode
+         */
+        @Override
+        public int exitcode() {
+            return consumer.exitcode();
+        }
+
+        /**
+         * {@inheritDoc}
+         * @return new output with no stdout or stderr
+         */
+        @Override
+        public Output devnull() {
+            return new Output(producers, consumer.devnull());
+        }
+
+        /**
+         * Stdout of the consumer.
+         * @return stdout
+         */
+        @Override
+        public Data stdout() {
+            return consumer.stdout();
+        }
+
+        /**
+         * Stderr of the consumer.
+         * @return stderr
+         */
+        @Override
+        public Data stderr() {
+            return consumer.stderr();
+        }
+
+        /**
+         * Checks if stderr of the consumer was merged into its stdout.
+         * @return {@code true} if stderr was merged into stdout;
+         *  {@code false} otherwise
+         */
+        @Override
+        public boolean merged() {
+            return consumer.merged();
+        }
+
+        /**
+         * Returns the first program that did not exit normally,
+         *  producers being introspected first.
+         * @return optional {@link io.github.artkonr.process.Output error}
+         */
+        @Override
+        public Optional<io.github.artkonr.process.Output> error() {
+            return Stream.concat(producers.stream(), Stream.of(consumer))
+                    .map(io.github.artkonr.process.Output::error)
+                    .flatMap(Optional::stream)
+                    .findFirst();
+        }
+
+        /**
+         * Checks if all producers and the consumer have exited normally.
+         * @return {@code true} if all programs returned exitcode 0;
+         *  {@code false} if otherwise
+         */
+        @Override
+        public boolean exitedNormally() {
+            return error().isEmpty();
+        }
+
+        /**
+         * Outputs of the producers, in the order they were declared.
+         *  Their stdout is always empty, as it went to the consumer.
+         * @return producer outputs
+         */
+        public List<io.github.artkonr.process.Output> producers() {
+            return producers;
+        }
+
+        /**
+         * Output of the consumer.
+         * @return consumer output
+         */
+        public io.github.artkonr.process.Output consumer() {
+            return consumer;
+        }
+
+        private Output(List<io.github.artkonr.process.Output> producers,
+                       io.github.artkonr.process.Output consumer) {
+            this.producers = List.copyOf(producers);
+            this.consumer = consumer;
+        }
+    }
+
+    private void pump(List<InputStream> sources, OutputStream sink, Executor executor) {
+        Lane lane = new Lane(sink, buffer, sources.size());
+        executor.execute(lane::drain);
+        sources.forEach(source -> executor.execute(() -> read(source, lane)));
+    }
+
+    private void read(InputStream source, Lane lane) {
+        byte[] chunk = new byte[Feed.CHUNK];
+        ByteArrayOutputStream partial = new ByteArrayOutputStream();
+        try (source) {
+            int read;
+            while (!lane.isBroken() && (read = source.read(chunk)) >= 0) {
+                if (delimiter == null) {
+                    lane.put(Arrays.copyOf(chunk, read));
+                    continue;
+                }
+
+                // only complete records are handed over; the tail waits for the next read
+                int end = lastIndexOf(chunk, read, delimiter);
+                if (end < 0) {
+                    partial.write(chunk, 0, read);
+                    continue;
+                }
+                partial.write(chunk, 0, end + 1);
+                lane.put(partial.toByteArray());
+                partial.reset();
+                partial.write(chunk, end + 1, read - end - 1);
+            }
+            if (partial.size() > 0) {
+                lane.put(partial.toByteArray());
+            }
+        } catch (IOException ignored) {
+            // the producer is gone; its exitcode tells the rest
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lane.end();
+        }
+    }
+
+    private static int lastIndexOf(byte[] chunk, int length, byte delimiter) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (chunk[i] == delimiter) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void kill(List<Process> processes) {
+        processes.forEach(Process::destroyForcibly);
+    }
+
+    private Merge(List<Chain> producers) {
+        this.producers = producers;
+    }
+}
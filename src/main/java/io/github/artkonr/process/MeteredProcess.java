@@ -0,0 +1,236 @@
+package io.github.artkonr.process;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A {@link Process} that samples the resources it consumes
+ *  until it exits. All calls are delegated to the wrapped process.
+ * @see Usage
+ */
+class MeteredProcess extends Process {
+
+    /**
+     * Sampling interval.
+     */
+    static final Duration INTERVAL = Duration.ofMillis(20);
+
+    /**
+     * Clock ticks per second used by {@code /proc/<pid>/stat}
+     *  ({@code USER_HZ}), which is 100 on all mainstream Linux ABIs.
+     */
+    static final long TICKS = 100;
+
+    private static final ScheduledExecutorService SAMPLER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "process-meter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Process delegate;
+    private final long startedAt;
+    private final ScheduledFuture<?> sampling;
+    private volatile long exitedAt;
+    private long userTicks;
+    private long systemTicks;
+    private long peakRss;
+    private Duration fallbackCpu = Duration.ZERO;
+
+    /**
+     * Factory method. Starts sampling a freshly spawned process.
+     * @param process spawned process
+     * @return metered process
+     */
+    static MeteredProcess wrap(Process process) {
+        return new MeteredProcess(process);
+    }
+
+    /**
+     * Returns usage of a process, if it is metered.
+     * @param process process
+     * @return usage, or {@code null} if the process is not metered
+     */
+    static Usage usage(Process process) {
+        return process instanceof MeteredProcess metered ? metered.usage() : null;
+    }
+
+    /**
+     * Resources consumed so far; final once the process has exited.
+     * @return usage
+     */
+    synchronized Usage usage() {
+        long end = exitedAt != 0 ? exitedAt : System.nanoTime();
+        Duration user = userTicks > 0 || systemTicks > 0
+                ? ticks(userTicks)
+                : fallbackCpu;
+        return new Usage(Duration.ofNanos(end - startedAt), user, ticks(systemTicks), peakRss);
+    }
+
+    /**
+     * Parses user and system time out of a {@code /proc/<pid>/stat} line.
+     * @param stat stat line
+     * @return user and system time, in clock ticks
+     */
+    static long[] parseStat(String stat) {
+        // the command name may contain spaces and parentheses, so fields are counted from the last ')'
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+        return new long[]{ Long.parseLong(fields[11]), Long.parseLong(fields[12]) };
+    }
+
+    /**
+     * Parses peak RSS out of {@code /proc/<pid>/status} contents.
+     * @param status status lines
+     * @return peak RSS, bytes; zero if not reported
+     */
+    static long parseStatus(List<String> status) {
+        return status.stream()
+                .filter(line -> line.startsWith("VmHWM:"))
+                .map(line -> line.substring("VmHWM:".length()).replace("kB", "").trim())
+                .mapToLong(kb -> Long.parseLong(kb) * 1024)
+                .findFirst()
+                .orElse(0);
+    }
+
+    private void sample() {
+        Path proc = Path.of("/proc", String.valueOf(delegate.pid()));
+        try {
+            long[] times = parseStat(Files.readString(proc.resolve("stat")));
+            long rss = parseStatus(Files.readAllLines(proc.resolve("status")));
+            synchronized (this) {
+                userTicks = Math.max(userTicks, times[0]);
+                systemTicks = Math.max(systemTicks, times[1]);
+                peakRss = Math.max(peakRss, rss);
+            }
+        } catch (IOException | RuntimeException ex) {
+            delegate.info().totalCpuDuration().ifPresent(cpu -> {
+                synchronized (this) {
+                    fallbackCpu = cpu.compareTo(fallbackCpu) > 0 ? cpu : fallbackCpu;
+                }
+            });
+        }
+    }
+
+    private static Duration ticks(long ticks) {
+        return Duration.ofMillis(ticks * 1000 / TICKS);
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return delegate.getOutputStream();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return delegate.getInputStream();
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return delegate.getErrorStream();
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+        int exitcode = delegate.waitFor();
+        exited();
+        return exitcode;
+    }
+
+    @Override
+    public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+        boolean exited = delegate.waitFor(timeout, unit);
+        if (exited) {
+            exited();
+        }
+        return exited;
+    }
+
+    @Override
+    public int exitValue() {
+        return delegate.exitValue();
+    }
+
+    @Override
+    public void destroy() {
+        delegate.destroy();
+    }
+
+    @Override
+    public Process destroyForcibly() {
+        delegate.destroyForcibly();
+        return this;
+    }
+
+    @Override
+    public boolean supportsNormalTermination() {
+        return delegate.supportsNormalTermination();
+    }
+
+    @Override
+    public boolean isAlive() {
+        return delegate.isAlive();
+    }
+
+    @Override
+    public long pid() {
+        return delegate.pid();
+    }
+
+    @Override
+    public CompletableFuture<Process> onExit() {
+        return delegate.onExit().thenApply(done -> {
+            exited();
+            return this;
+        });
+    }
+
+    @Override
+    public ProcessHandle toHandle() {
+        return delegate.toHandle();
+    }
+
+    @Override
+    public ProcessHandle.Info info() {
+        return delegate.info();
+    }
+
+    @Override
+    public Stream<ProcessHandle> children() {
+        return delegate.children();
+    }
+
+    @Override
+    public Stream<ProcessHandle> descendants() {
+        return delegate.descendants();
+    }
+
+    private void exited() {
+        if (exitedAt == 0) {
+            exitedAt = System.nanoTime();
+        }
+        sampling.cancel(false);
+    }
+
+    private MeteredProcess(Process delegate) {
+        this.delegate = delegate;
+        this.startedAt = System.nanoTime();
+        this.sampling = SAMPLER.scheduleAtFixedRate(
+                this::sample,
+                0,
+                INTERVAL.toNanos(),
+                TimeUnit.NANOSECONDS
+        );
+        delegate.onExit().thenRun(this::exited);
+    }
+}
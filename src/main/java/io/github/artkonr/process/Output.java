@@ -59,10 +59,42 @@ public interface Output {
 
     /**
      * Program stderr {@link Data output}.
+     * <p>Always empty if the output is {@link Output#merged() merged}.
      * @return stderr
      */
     Data stderr();
 
+    /**
+     * Checks if stderr of the program was merged into its stdout.
+     *  If so, {@link Output#stdout()} bears both streams interleaved
+     *  in the order they were written, and {@link Output#stderr()}
+     *  is empty.
+     * @return {@code true} if stderr was merged into stdout;
+     *  {@code false} otherwise
+     */
+    default boolean merged() {
+        return false;
+    }
+
+    /**
+     * Resources consumed by the program, if
+     *  {@link Cmd#account() accounting} was enabled.
+     * @return optional resource usage
+     */
+    default Optional<Usage> usage() {
+        return Optional.empty();
+    }
+
+    /**
+     * CPU placement the program was started with.
+     * @return optional CPU placement; empty if it was
+     *  left up to the OS
+     * @see Cmd#place(Placement)
+     */
+    default Optional<Placement> placement() {
+        return Optional.empty();
+    }
+
     /**
      * Introspects {@code this} instance's state to
      *  see if it is an error.
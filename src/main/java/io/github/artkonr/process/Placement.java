@@ -0,0 +1,260 @@
+package io.github.artkonr.process;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Linux CPU placement of every program of an invocation:
+ *  the set of CPUs it may run on and its scheduling policy.
+ * <p>Placement is applied by prefixing the command line with
+ *  {@code taskset} and {@code chrt} (util-linux), which fail
+ *  the invocation if the placement cannot be applied. Both CPU
+ *  affinity and scheduling policy are inherited by the children
+ *  of the program.
+ * <p>Instances are immutable; every modifier returns a new instance.
+ */
+public final class Placement {
+
+    /**
+     * Linux scheduling policy, see {@code sched(7)}.
+     */
+    public enum Policy {
+
+        /**
+         * Default time-sharing policy, {@code SCHED_OTHER}.
+         */
+        OTHER("--other", false),
+
+        /**
+         * Time-sharing policy for CPU-bound, non-interactive
+         *  programs, {@code SCHED_BATCH}.
+         */
+        BATCH("--batch", false),
+
+        /**
+         * Policy for very low priority background programs
+         *  that only run when a CPU is otherwise idle, {@code SCHED_IDLE}.
+         */
+        IDLE("--idle", false),
+
+        /**
+         * Real-time first-in first-out policy, {@code SCHED_FIFO}.
+         *  Requires privileges.
+         */
+        FIFO("--fifo", true),
+
+        /**
+         * Real-time round-robin policy, {@code SCHED_RR}.
+         *  Requires privileges.
+         */
+        RR("--rr", true);
+
+        private final String flag;
+        private final boolean realtime;
+
+        /**
+         * Checks if the policy is a real-time one, i.e. takes
+         *  a static priority within {@code [1, 99]}.
+         * @return {@code true} if real-time; {@code false} otherwise
+         */
+        public boolean isRealtime() {
+            return realtime;
+        }
+
+        Policy(String flag, boolean realtime) {
+            this.flag = flag;
+            this.realtime = realtime;
+        }
+    }
+
+    private final SortedSet<Integer> cpus;
+    private final Policy policy;
+    private final int priority;
+
+    /**
+     * Factory method. Creates an instance that leaves
+     *  placement up to the OS.
+     * @return new instance
+     */
+    public static Placement any() {
+        return new Placement(Collections.emptySortedSet(), null, 0);
+    }
+
+    /**
+     * Pins the program to a set of CPUs.
+     * @param cpus CPU indexes, as listed in {@code /proc/cpuinfo}
+     * @return new instance
+     * @throws IllegalArgumentException if no CPUs provided or an index is negative
+     */
+    public Placement cpus(@NonNull int... cpus) {
+        List<Integer> boxed = new ArrayList<>(cpus.length);
+        for (int cpu : cpus) {
+            boxed.add(cpu);
+        }
+        return cpus(boxed);
+    }
+
+    /**
+     * Pins the program to a set of CPUs.
+     * @param cpus CPU indexes, as listed in {@code /proc/cpuinfo}
+     * @return new instance
+     * @throws IllegalArgumentException if no CPUs provided or an index is negative
+     */
+    public Placement cpus(@NonNull Collection<Integer> cpus) {
+        if (cpus.isEmpty()) {
+            throw new IllegalArgumentException("cpu set is empty");
+        }
+        if (cpus.stream().anyMatch(cpu -> cpu == null || cpu < 0)) {
+            throw new IllegalArgumentException("cpu indexes must not be negative");
+        }
+        return new Placement(Collections.unmodifiableSortedSet(new TreeSet<>(cpus)), policy, priority);
+    }
+
+    /**
+     * Sets a non-real-time scheduling policy.
+     * @param policy policy
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided or the policy is a real-time one
+     */
+    public Placement policy(@NonNull Policy policy) {
+        if (policy.isRealtime()) {
+            throw new IllegalArgumentException("real-time policy requires a priority");
+        }
+        return new Placement(cpus, policy, 0);
+    }
+
+    /**
+     * Sets a real-time scheduling policy.
+     * @param policy policy
+     * @param priority static priority, within {@code [1, 99]}
+     * @return new instance
+     * @throws IllegalArgumentException if no policy provided, the policy
+     *  is not a real-time one or the priority is out of range
+     */
+    public Placement policy(@NonNull Policy policy, int priority) {
+        if (!policy.isRealtime()) {
+            throw new IllegalArgumentException("only real-time policies take a priority");
+        }
+        if (priority < 1 || priority > 99) {
+            throw new IllegalArgumentException("priority must be within [1, 99]");
+        }
+        return new Placement(cpus, policy, priority);
+    }
+
+    /**
+     * CPUs the program is pinned to.
+     * @return CPU indexes in ascending order; empty if not pinned
+     */
+    public SortedSet<Integer> cpus() {
+        return cpus;
+    }
+
+    /**
+     * Scheduling policy of the program.
+     * @return optional policy; empty if inherited from the JVM
+     */
+    public Optional<Policy> policy() {
+        return Optional.ofNullable(policy);
+    }
+
+    /**
+     * Static priority of a real-time policy.
+     * @return priority; zero for non-real-time policies
+     */
+    public int priority() {
+        return priority;
+    }
+
+    /**
+     * Checks if {@code this} instance leaves placement up to the OS.
+     * @return {@code true} if nothing is set; {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return cpus.isEmpty() && policy == null;
+    }
+
+    /**
+     * Builds the command line prefix that applies the placement.
+     * @return prefix, empty if there is nothing to apply
+     */
+    List<String> prefix() {
+        List<String> prefix = new ArrayList<>();
+        if (!cpus.isEmpty()) {
+            prefix.addAll(List.of("taskset", "-c", cpuList()));
+        }
+        if (policy != null) {
+            prefix.addAll(List.of("chrt", policy.flag, String.valueOf(priority)));
+        }
+        return prefix;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param o other object
+     * @return {@code true} if both instances describe the same placement
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Placement other)) {
+            return false;
+        }
+        return priority == other.priority && cpus.equals(other.cpus) && policy == other.policy;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return hash code
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(cpus, policy, priority);
+    }
+
+    /**
+     * Renders the placement, e.g. {@code cpus=0-3,8 policy=BATCH}.
+     * @return text representation
+     */
+    @Override
+    public String toString() {
+        List<String> parts = new ArrayList<>();
+        parts.add("cpus=" + (cpus.isEmpty() ? "any" : cpuList()));
+        if (policy != null) {
+            parts.add("policy=" + policy + (policy.isRealtime() ? "/" + priority : ""));
+        }
+        return String.join(" ", parts);
+    }
+
+    private String cpuList() {
+        // collapses consecutive indexes into ranges, as accepted by 'taskset -c'
+        List<int[]> ranges = new ArrayList<>();
+        for (int cpu : cpus) {
+            int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[1] + 1 == cpu) {
+                last[1] = cpu;
+            } else {
+                ranges.add(new int[]{ cpu, cpu });
+            }
+        }
+        return ranges.stream()
+                .map(range -> range[0] == range[1] ? String.valueOf(range[0]) : range[0] + "-" + range[1])
+                .collect(Collectors.joining(","));
+    }
+
+    private Placement(SortedSet<Integer> cpus, Policy policy, int priority) {
+        this.cpus = cpus;
+        this.policy = policy;
+        this.priority = priority;
+    }
+}
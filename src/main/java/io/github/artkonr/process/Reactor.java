@@ -0,0 +1,502 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.github.artkonr.process.Util.readByteArray;
+
+/**
+ * Shared I/O reactor that drains stdout and stderr of many
+ *  running programs over a fixed number of threads.
+ * <p>Attached streams are serviced round-robin: a worker takes
+ *  the next stream from a shared queue, reads at most one
+ *  {@link Reactor#QUANTUM quantum} of what is already buffered
+ *  in the pipe without blocking, and puts the stream back to the
+ *  tail of the queue. A stream whose program has exited is read
+ *  to EOF and detached. When a full round yields no data, the
+ *  worker backs off for a short while, so an idle reactor does
+ *  not spin.
+ * <p>Thread count therefore stays constant regardless of how
+ *  many programs are being drained concurrently.
+ */
+public class Reactor implements AutoCloseable {
+
+    /**
+     * Maximum amount of bytes read from a stream in a single turn.
+     */
+    static final int QUANTUM = 8192;
+
+    private static final long MIN_BACKOFF = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_BACKOFF = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final LinkedBlockingQueue<Sink> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger attached = new AtomicInteger();
+    private final List<Thread> workers;
+    private volatile boolean closed;
+
+    /**
+     * Factory method. Creates a new {@link Reactor} with
+     *  the specified number of daemon worker threads.
+     * @param threads number of worker threads
+     * @return new instance
+     * @throws IllegalArgumentException if thread count is not positive
+     */
+    public static Reactor create(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("reactor needs at least 1 thread");
+        }
+        return new Reactor(threads);
+    }
+
+    /**
+     * Returns a lazily created, process-wide {@link Reactor}
+     *  with a thread per available CPU, capped at 4. The shared
+     *  reactor is never closed.
+     * @return shared instance
+     */
+    public static Reactor shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Number of worker threads.
+     * @return thread count
+     */
+    public int threads() {
+        return workers.size();
+    }
+
+    /**
+     * Number of streams currently being drained.
+     * @return stream count
+     */
+    public int streams() {
+        return attached.get();
+    }
+
+    /**
+     * Checks if {@code this} instance was closed.
+     * @return {@code true} if closed; {@code false} otherwise
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops the worker threads. Streams that are still
+     *  attached, or get attached while closing, are failed.
+     * <p>Workers are interrupted, which does not unblock a read:
+     *  a worker that is reading a stream to EOF after its program
+     *  has exited, while the pipe is still held open by some other
+     *  process, e.g. a background child of the program, stops only
+     *  once that read returns.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Attaches streams of a running program. Streams that are
+     *  not captured according to the spec are not attached
+     *  and yield no data.
+     * @param process running program
+     * @param spec invocation spec
+     * @return attached streams
+     */
+    Streams attach(Process process, Cmd.Spec spec) {
+        return attach(process, spec, 0);
+    }
+
+    /**
+     * Attaches streams of a running program, keeping only the
+     *  latest data of each stream in a ring buffer.
+     * @param process running program
+     * @param spec invocation spec
+     * @param capacity ring buffer size, bytes; {@code 0} for unbounded
+     * @return attached streams
+     */
+    Streams attach(Process process, Cmd.Spec spec, int capacity) {
+        return new Streams(
+                spec.stdout() ? attach(process, process.getInputStream(), capacity, spec.cmd(), "stdout") : skip(process),
+                spec.stderr() ? attach(process, process.getErrorStream(), capacity, spec.cmd(), "stderr") : skip(process)
+        );
+    }
+
+    /**
+     * Attaches a single stream of a running program.
+     * @param process running program
+     * @param source stream to drain
+     * @return attached stream
+     */
+    Sink attach(Process process, InputStream source) {
+        return attach(process, source, 0, null, null);
+    }
+
+    private Sink attach(Process process, InputStream source, int capacity, String cmd, String stream) {
+        if (closed) {
+            Sink sink = new Sink(process, source, () -> { });
+            sink.fail(new CmdException("reactor is closed"));
+            return sink;
+        }
+
+        Sink sink = new Sink(process, source, attached::decrementAndGet, capacity);
+        if (cmd != null) {
+            sink.trace(cmd, stream);
+        }
+        attached.incrementAndGet();
+        queue.offer(sink);
+        // the workers may have drained the queue for the last time before the offer
+        if (closed && queue.remove(sink)) {
+            sink.fail(new CmdException("reactor is closed"));
+        }
+        return sink;
+    }
+
+    private Sink skip(Process process) {
+        Sink sink = new Sink(process, InputStream.nullInputStream(), () -> { });
+        sink.finish();
+        return sink;
+    }
+
+    private void work() {
+        byte[] scratch = new byte[QUANTUM];
+        int idle = 0;
+        long backoff = MIN_BACKOFF;
+        while (!closed) {
+            Sink sink;
+            try {
+                sink = queue.take();
+            } catch (InterruptedException ex) {
+                break;
+            }
+
+            Sink.State state = sink.pump(scratch);
+            if (state == Sink.State.DONE) {
+                continue;
+            }
+
+            queue.offer(sink);
+            if (state == Sink.State.PROGRESS) {
+                idle = 0;
+                backoff = MIN_BACKOFF;
+            } else if (++idle >= queue.size()) {
+                LockSupport.parkNanos(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF);
+                idle = 0;
+            }
+        }
+
+        Sink abandoned;
+        while ((abandoned = queue.poll()) != null) {
+            abandoned.fail(new CmdException("reactor is closed"));
+        }
+    }
+
+    private Reactor(int threads) {
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::work, "process-reactor-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        this.workers = List.copyOf(workers);
+        this.workers.forEach(Thread::start);
+    }
+
+    /**
+     * Pair of attached stdout and stderr streams.
+     * @param stdout attached stdout
+     * @param stderr attached stderr
+     */
+    record Streams(Sink stdout, Sink stderr) { }
+
+    /**
+     * A single attached stream along with the data read from it.
+     */
+    static class Sink {
+
+        /**
+         * Outcome of a single turn.
+         */
+        enum State {
+            /**
+             * Some data was read.
+             */
+            PROGRESS,
+            /**
+             * No data was available.
+             */
+            IDLE,
+            /**
+             * Stream is exhausted or failed.
+             */
+            DONE
+        }
+
+        private final Process process;
+        private final InputStream source;
+        private final Runnable detach;
+        private final CompletableFuture<byte[]> completion = new CompletableFuture<>();
+        private final int capacity;
+        private byte[] buf;
+        private int start;
+        private int size;
+        private volatile long total;
+        private boolean ended;
+        private Flight.FirstOutput first;
+        private Flight.Drain drain;
+
+        /**
+         * Awaits the stream to be exhausted.
+         * @return trimmed stream data wrapped in a {@link Result}
+         */
+        Result<byte[], Exception> await() {
+            return Result.wrap(() -> {
+                try {
+                    return completion.get();
+                } catch (ExecutionException ex) {
+                    throw (Exception) ex.getCause();
+                }
+            });
+        }
+
+        /**
+         * Amount of bytes read so far.
+         * @return byte count
+         */
+        long bytes() {
+            return total;
+        }
+
+        /**
+         * Starts emitting {@link Flight} events of the stream,
+         *  if they are enabled.
+         * @param cmd invoked command
+         * @param stream stream name
+         */
+        synchronized void trace(String cmd, String stream) {
+            first = Flight.firstOutput(cmd, process.pid(), stream);
+            drain = Flight.drain(cmd, process.pid(), stream);
+        }
+
+        /**
+         * Copies the data read so far; for a ring buffer,
+         *  only the latest data that fits it.
+         * @return untrimmed data
+         */
+        synchronized byte[] snapshot() {
+            if (start + size <= buf.length) {
+                return Arrays.copyOfRange(buf, start, start + size);
+            }
+            byte[] data = new byte[size];
+            int head = buf.length - start;
+            System.arraycopy(buf, start, data, 0, head);
+            System.arraycopy(buf, 0, data, head, size - head);
+            return data;
+        }
+
+        /**
+         * Scans the data read so far and then the data read later
+         *  on, as they arrive, until the scanner matches or the
+         *  stream ends. The scanner is run on the calling thread,
+         *  never on the draining one, so several threads can scan
+         *  the same stream at once. For a ring buffer, data that
+         *  are overwritten before the scanner gets to them are
+         *  skipped.
+         * @param scanner scanner
+         * @param nanos time to wait for the data, nanoseconds;
+         *              {@link Long#MAX_VALUE} to wait indefinitely
+         * @return {@code true} if the scanner matches, {@code false}
+         *  if the stream ends first, or {@code null} if time runs out
+         * @throws InterruptedException if interrupted while waiting
+         */
+        Boolean scan(Until.Scanner scanner, long nanos) throws InterruptedException {
+            long deadline = System.nanoTime() + nanos;
+            long position = 0;
+            while (true) {
+                byte[] data;
+                boolean over;
+                synchronized (this) {
+                    while (total == position && !ended) {
+                        if (nanos == Long.MAX_VALUE) {
+                            wait();
+                            continue;
+                        }
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            return null;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                    data = since(position);
+                    position = total;
+                    over = ended;
+                }
+                if (data.length > 0 && scanner.scan(data, 0, data.length)) {
+                    return true;
+                }
+                if (over) {
+                    return scanner.end();
+                }
+            }
+        }
+
+        private byte[] since(long position) {
+            int length = (int) Math.min(total - position, size);
+            byte[] data = new byte[length];
+            int from = (start + size - length) % buf.length;
+            int head = Math.min(length, buf.length - from);
+            System.arraycopy(buf, from, data, 0, head);
+            System.arraycopy(buf, 0, data, head, length - head);
+            return data;
+        }
+
+        /**
+         * Future that completes once the stream is exhausted.
+         * @return completion
+         */
+        CompletableFuture<byte[]> completion() {
+            return completion;
+        }
+
+        /**
+         * Performs a single turn: reads whatever is available
+         *  up to the size of the scratch buffer.
+         * @param scratch scratch buffer
+         * @return turn outcome
+         */
+        State pump(byte[] scratch) {
+            try {
+                int available = source.available();
+                if (available == 0 && process.isAlive()) {
+                    return State.IDLE;
+                }
+
+                // once the program has exited, the pipe can no longer block
+                int read = available > 0
+                        ? source.read(scratch, 0, Math.min(available, scratch.length))
+                        : source.read(scratch);
+                if (read < 0) {
+                    finish();
+                    return State.DONE;
+                }
+
+                append(scratch, read);
+                return State.PROGRESS;
+            } catch (IOException ex) {
+                fail(new CmdException("failed to read stdout/stderr", ex));
+                return State.DONE;
+            }
+        }
+
+        /**
+         * Fails the stream.
+         * @param ex failure
+         */
+        void fail(Exception ex) {
+            closeQuietly();
+            end(true);
+            detach.run();
+            completion.completeExceptionally(ex);
+        }
+
+        private synchronized void append(byte[] chunk, int length) {
+            if (capacity == 0) {
+                if (size + length > buf.length) {
+                    buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + length));
+                }
+                System.arraycopy(chunk, 0, buf, size, length);
+                size += length;
+            } else {
+                // only the latest bytes of a chunk larger than the ring are kept
+                int from = Math.max(0, length - capacity);
+                int kept = length - from;
+                int at = (start + size) % capacity;
+                int head = Math.min(kept, capacity - at);
+                System.arraycopy(chunk, from, buf, at, head);
+                System.arraycopy(chunk, from + head, buf, 0, kept - head);
+                int overwritten = Math.max(0, size + kept - capacity);
+                start = (start + overwritten) % capacity;
+                size = Math.min(size + kept, capacity);
+            }
+            if (total == 0) {
+                Flight.output(first);
+                first = null;
+            }
+            total += length;
+            notifyAll();
+        }
+
+        private synchronized void end(boolean failed) {
+            if (!ended) {
+                Flight.drained(drain, total, failed);
+                drain = null;
+            }
+            ended = true;
+            notifyAll();
+        }
+
+        /**
+         * Completes the stream with whatever was read so far.
+         */
+        void finish() {
+            closeQuietly();
+            end(false);
+            byte[] data = snapshot();
+            detach.run();
+            completion.complete(readByteArray(data));
+        }
+
+        private void closeQuietly() {
+            try {
+                source.close();
+            } catch (IOException ignored) {
+                // the stream is abandoned either way
+            }
+        }
+
+        /**
+         * Default constructor.
+         * @param process running program
+         * @param source stream to drain
+         * @param detach callback to run once the stream is done
+         */
+        Sink(Process process, InputStream source, Runnable detach) {
+            this(process, source, detach, 0);
+        }
+
+        /**
+         * Creates a sink that keeps only the latest data in a ring buffer.
+         * @param process running program
+         * @param source stream to drain
+         * @param detach callback to run once the stream is done
+         * @param capacity ring buffer size, bytes; {@code 0} for unbounded
+         */
+        Sink(Process process, InputStream source, Runnable detach, int capacity) {
+            this.process = process;
+            this.source = source;
+            this.detach = detach;
+            this.capacity = capacity;
+            this.buf = new byte[capacity == 0 ? 256 : capacity];
+        }
+    }
+
+    private static final class Shared {
+        private static final Reactor INSTANCE = new Reactor(
+                Math.min(4, Runtime.getRuntime().availableProcessors())
+        );
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Err;
+import io.github.artkonr.result.Ok;
+import io.github.artkonr.result.Result;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Condition that tells a {@link Service background program}
+ *  is ready to serve: a log line, a TCP port on localhost
+ *  accepting connections or a file appearing.
+ * <p>Conditions that cannot be observed as they happen are
+ *  polled every {@value POLL} ms. A program that is not ready
+ *  {@link Readiness#within(Duration) in time} or exits before it
+ *  is ready fails to start.
+ */
+public final class Readiness {
+
+    /**
+     * Default time a program is given to get ready.
+     */
+    static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Interval of polling a condition, in milliseconds.
+     */
+    static final long POLL = 50;
+
+    private final Until log;
+    private final BooleanSupplier probe;
+    private final Duration timeout;
+
+    /**
+     * Factory method. The program is ready as soon as it is spawned.
+     * @return new instance
+     */
+    public static Readiness immediate() {
+        return new Readiness(null, () -> true, TIMEOUT);
+    }
+
+    /**
+     * Factory method. The program is ready once its output matches a condition.
+     *  The condition may only {@link Until#onStderr() choose the stream}, as
+     *  the program is never killed once it is ready.
+     * @param until output condition
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public static Readiness log(@NonNull Until until) {
+        return new Readiness(until, null, TIMEOUT);
+    }
+
+    /**
+     * Factory method. The program is ready once a TCP port
+     *  on the loopback interface accepts connections.
+     * @param port port
+     * @return new instance
+     * @throws IllegalArgumentException if the port is not within {@code [1, 65535]}
+     */
+    public static Readiness port(int port) {
+        if (port < 1 || port > 65535) {
+            throw new IllegalArgumentException("port must be within [1, 65535]");
+        }
+        return new Readiness(null, () -> accepts(port), TIMEOUT);
+    }
+
+    /**
+     * Factory method. The program is ready once a file exists,
+     *  e.g. a PID file or a UNIX socket.
+     * @param file file
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public static Readiness file(@NonNull Path file) {
+        return new Readiness(null, () -> Files.exists(file), TIMEOUT);
+    }
+
+    /**
+     * Derives a condition with a different deadline.
+     * @param timeout time the program is given to get ready
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided or it is not positive
+     */
+    public Readiness within(@NonNull Duration timeout) {
+        if (timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        return new Readiness(log, probe, timeout);
+    }
+
+    /**
+     * Blocks until a running program is ready.
+     * @param process running program
+     * @param streams attached streams of the program
+     * @param cmd invoked command
+     * @return empty {@link Result} once the program is ready; an error
+     *  if it is not ready in time or has exited
+     */
+    Result<Void, CmdException> await(Process process, Reactor.Streams streams, String cmd) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        if (log != null) {
+            Reactor.Sink sink = log.stderr() ? streams.stderr() : streams.stdout();
+            try {
+                Boolean matched = sink.scan(log.scanner(), timeout.toNanos());
+                if (matched == null) {
+                    return new Err<>(late(cmd));
+                }
+                return matched ? new Ok<>(null) : new Err<>(exited(cmd));
+            } catch (RuntimeException ex) {
+                return new Err<>(new CmdException("failed to scan output: " + cmd, ex));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return new Err<>(new CmdException("interrupted while waiting for readiness: " + cmd, ex));
+            }
+        }
+
+        while (!probe.getAsBoolean()) {
+            if (!process.isAlive()) {
+                return new Err<>(exited(cmd));
+            }
+            if (System.nanoTime() - deadline > 0) {
+                return new Err<>(late(cmd));
+            }
+            try {
+                Thread.sleep(POLL);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return new Err<>(new CmdException("interrupted while waiting for readiness: " + cmd, ex));
+            }
+        }
+        return new Ok<>(null);
+    }
+
+    private CmdException late(String cmd) {
+        return new CmdException("program is not ready within %s: %s".formatted(timeout, cmd));
+    }
+
+    private static CmdException exited(String cmd) {
+        return new CmdException("program has exited before it was ready: " + cmd);
+    }
+
+    private static boolean accepts(int port) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), (int) POLL);
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private Readiness(Until log, BooleanSupplier probe, Duration timeout) {
+        this.log = log;
+        this.probe = probe;
+        this.timeout = timeout;
+    }
+}
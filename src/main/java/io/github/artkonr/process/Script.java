@@ -0,0 +1,349 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Err;
+import io.github.artkonr.result.Ok;
+import io.github.artkonr.result.Result;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Invocation of several independent {@link Cmd commands} in a
+ *  single {@code sh} process, which spares a fork of the JVM per
+ *  command when the commands themselves are tiny.
+ * <p>The commands run one after another, each in a subshell of
+ *  its own with the working directory, environment and redirects
+ *  of its {@link ProcessBuilder}. After every command, a boundary
+ *  unique to the invocation is written into both streams along
+ *  with the exitcode, so that the streams can be split back into
+ *  an {@link io.github.artkonr.process.Output Output} per command.
+ * <p>Unlike a separate invocation:
+ * <ul>
+ *     <li>stdin of a command is {@code /dev/null} unless
+ *      redirected from a file;</li>
+ *     <li>a program that cannot be started makes its command
+ *      exit with {@code 127} instead of failing to spawn;</li>
+ *     <li>all outputs bear the PID of the shell and no resource
+ *      {@link Usage usage}.</li>
+ * </ul>
+ */
+public class Script {
+
+    /**
+     * Writes the exitcode of the last command and the boundary
+     *  held by {@code $B} into both streams.
+     */
+    static final String FRAME = "printf '\\n%s %d\\n' \"$B\" $?; printf '\\n%s\\n' \"$B\" >&2\n";
+
+    private final List<Cmd> commands;
+
+    /**
+     * Factory method. Creates a new {@link Script}.
+     * @param commands commands to invoke, in order
+     * @return new instance
+     * @throws IllegalArgumentException if no commands provided, any of them is
+     *  {@code null}, has {@link Limits limits} or a {@link Placement placement},
+     *  or inherits a stream of the JVM
+     */
+    public static Script of(@NonNull Cmd... commands) {
+        return of(Arrays.asList(commands));
+    }
+
+    /**
+     * Factory method. Creates a new {@link Script}.
+     * @param commands commands to invoke, in order
+     * @return new instance
+     * @throws IllegalArgumentException if no commands provided, any of them is
+     *  {@code null}, has {@link Limits limits} or a {@link Placement placement},
+     *  or inherits a stream of the JVM
+     */
+    public static Script of(@NonNull Collection<Cmd> commands) {
+        if (commands.isEmpty()) {
+            throw new IllegalArgumentException("no commands provided");
+        }
+        commands.forEach(Script::check);
+        return new Script(List.copyOf(commands));
+    }
+
+    /**
+     * Invokes the script, draining the shell streams
+     *  on the {@link Reactor#shared() shared} reactor.
+     * @return invocation {@link Result}
+     */
+    public Result<Output, CmdException> invoke() {
+        return invoke(Reactor.shared());
+    }
+
+    /**
+     * Invokes the script. Every command is invoked even
+     *  if some of them fail.
+     * @param reactor reactor to drain the shell streams on
+     * @return invocation {@link Result}; an error only if the shell
+     *  itself has failed, while failures of the commands are
+     *  reported by the {@link Output}
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Result<Output, CmdException> invoke(@NonNull Reactor reactor) {
+        String boundary = "--process-" + UUID.randomUUID();
+        Chain shell = Chain.lift(Cmd.from(new ProcessBuilder("sh", "-s")
+                .redirectError(ProcessBuilder.Redirect.PIPE)));
+        byte[] text = render(boundary).getBytes(StandardCharsets.UTF_8);
+
+        // the script goes through stdin, so that its size is not limited by ARG_MAX
+        return shell.spawn()
+                .<CmdException>stack(ex -> new CmdException("command failed", ex))
+                .then(processes -> {
+                    Map<Process, Reactor.Streams> attached = Chain.attach(processes, shell.specs(), reactor);
+                    try (OutputStream sink = processes.get(0).getOutputStream()) {
+                        sink.write(text);
+                    } catch (IOException ignored) {
+                        // the shell has exited prematurely; the framing tells the rest
+                    }
+                    return shell.await(processes, attached);
+                })
+                .then(output -> split(output, boundary));
+    }
+
+    /**
+     * Renders the script.
+     * @param boundary boundary that separates outputs of the commands
+     * @return script text
+     */
+    String render(String boundary) {
+        StringBuilder script = new StringBuilder("B=").append(quote(boundary)).append('\n');
+        for (Cmd command : commands) {
+            script.append(line(command.handle, true)).append('\n').append(FRAME);
+        }
+        return script.append("exit 0\n").toString();
+    }
+
+    /**
+     * Renders a program invocation as a line of a script. The
+     *  program runs in a subshell of its own if it is isolated or
+     *  has a working directory or environment of its own, and in
+     *  the shell itself otherwise, so that builtins like {@code cd}
+     *  or {@code export} take effect on the shell.
+     * @param pb invoked program
+     * @param isolated whether the program always runs in a subshell
+     * @return script line, with no trailing newline
+     */
+    static String line(ProcessBuilder pb, boolean isolated) {
+        StringBuilder prelude = new StringBuilder();
+        Map<String, String> inherited = System.getenv();
+        Map<String, String> environment = pb.environment();
+        for (String name : inherited.keySet()) {
+            if (!environment.containsKey(name)) {
+                prelude.append("unset ").append(quote(name)).append("; ");
+            }
+        }
+        environment.forEach((name, value) -> {
+            if (!value.equals(inherited.get(name))) {
+                prelude.append("export ").append(quote(name + "=" + value)).append("; ");
+            }
+        });
+        if (pb.directory() != null) {
+            prelude.append("cd ").append(quote(pb.directory().getPath())).append(" && ");
+        }
+
+        StringBuilder line = new StringBuilder();
+        boolean subshell = isolated || !prelude.isEmpty();
+        if (subshell) {
+            line.append("( ").append(prelude).append("exec ");
+        }
+        line.append(pb.command().stream().map(Script::quote).collect(Collectors.joining(" ")));
+        if (subshell) {
+            line.append(" )");
+        }
+        line.append(redirect("<", pb.redirectInput(), "/dev/null"))
+                .append(redirect(">", pb.redirectOutput(), null));
+        if (pb.redirectErrorStream()) {
+            line.append(" 2>&1");
+        } else {
+            line.append(redirect("2>", pb.redirectError(), null));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Checks if a command can run in a shell of its own.
+     * @param command command
+     * @throws IllegalArgumentException if the command is {@code null}, has
+     *  {@link Limits limits} or a {@link Placement placement}, or
+     *  inherits a stream of the JVM
+     */
+    static void check(Cmd command) {
+        if (command == null) {
+            throw new IllegalArgumentException("command is null");
+        }
+        if (!command.limits.isEmpty() || !command.placement.isEmpty()) {
+            throw new IllegalArgumentException("limited or placed commands cannot be scripted: "
+                    + Util.getCmd(command.handle));
+        }
+        if (command.handle.redirectOutput().type() == ProcessBuilder.Redirect.Type.INHERIT
+                || command.handle.redirectError().type() == ProcessBuilder.Redirect.Type.INHERIT) {
+            throw new IllegalArgumentException("commands that inherit streams cannot be scripted: "
+                    + Util.getCmd(command.handle));
+        }
+    }
+
+    /**
+     * Splits the shell output into outputs of the commands.
+     * @param shell shell output
+     * @param boundary boundary that separates outputs of the commands
+     * @return {@link Result} bearing the script output; an error
+     *  if the shell output is not framed properly
+     */
+    Result<Output, CmdException> split(io.github.artkonr.process.Output shell, String boundary) {
+        byte[] stdout = shell.stdout().get().orElse(new byte[0]);
+        byte[] stderr = shell.stderr().get().orElse(new byte[0]);
+        byte[] outMark = ("\n" + boundary + " ").getBytes(StandardCharsets.UTF_8);
+        byte[] errMark = ("\n" + boundary).getBytes(StandardCharsets.UTF_8);
+
+        List<io.github.artkonr.process.Output> outputs = new ArrayList<>();
+        int outAt = 0;
+        int errAt = 0;
+        for (Cmd command : commands) {
+            int outEnd = indexOf(stdout, outMark, outAt);
+            int errEnd = indexOf(stderr, errMark, errAt);
+            if (outEnd < 0 || errEnd < 0) {
+                return new Err<>(new CmdException("script output is not framed: " + shell.command()));
+            }
+
+            int codeAt = outEnd + outMark.length;
+            int codeEnd = codeAt;
+            while (codeEnd < stdout.length && stdout[codeEnd] != '\n') {
+                codeEnd++;
+            }
+            int exitcode;
+            try {
+                exitcode = Integer.parseInt(new String(stdout, codeAt, codeEnd - codeAt, StandardCharsets.UTF_8));
+            } catch (NumberFormatException ex) {
+                return new Err<>(new CmdException("script output is not framed: " + shell.command(), ex));
+            }
+
+            Cmd.Spec spec = Cmd.Spec.of(command.handle, command.stackless);
+            outputs.add(Cmd.Output.from(
+                    shell.pid(),
+                    spec.cmd(),
+                    exitcode,
+                    spec.stdout() ? Util.readByteArray(Arrays.copyOfRange(stdout, outAt, outEnd)) : null,
+                    spec.stderr() ? Util.readByteArray(Arrays.copyOfRange(stderr, errAt, errEnd)) : null,
+                    spec.merged()
+            ));
+            outAt = Math.min(codeEnd + 1, stdout.length);
+            errAt = Math.min(errEnd + errMark.length + 1, stderr.length);
+        }
+        return new Ok<>(new Output(commands, outputs));
+    }
+
+    /**
+     * Quotes a string for {@code sh}.
+     * @param text text
+     * @return single-quoted text
+     */
+    static String quote(String text) {
+        return "'" + text.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * {@link io.github.artkonr.process.Output Outputs} of a {@link Script}.
+     */
+    public static class Output {
+
+        private final List<Cmd> commands;
+        private final List<io.github.artkonr.process.Output> outputs;
+
+        /**
+         * Outputs of every command, in order.
+         * @return command outputs
+         */
+        public List<io.github.artkonr.process.Output> outputs() {
+            return outputs;
+        }
+
+        /**
+         * Output of a single command.
+         * @param index command index
+         * @return command output
+         * @throws IndexOutOfBoundsException if there is no such command
+         */
+        public io.github.artkonr.process.Output output(int index) {
+            return outputs.get(index);
+        }
+
+        /**
+         * Results of every command, in order, as if every
+         *  command was {@link Cmd#invoke() invoked} separately.
+         * @return command results
+         */
+        public List<Result<io.github.artkonr.process.Output, CmdException>> results() {
+            List<Result<io.github.artkonr.process.Output, CmdException>> results = new ArrayList<>();
+            for (int i = 0; i < outputs.size(); i++) {
+                io.github.artkonr.process.Output output = outputs.get(i);
+                results.add(output.exitedNormally()
+                        ? new Ok<>(output)
+                        : new Err<>(CmdException.errorExitCode(0, output, commands.get(i).stackless)));
+            }
+            return results;
+        }
+
+        /**
+         * Checks if every command has exited normally.
+         * @return {@code true} if all commands returned exitcode 0;
+         *  {@code false} if otherwise
+         */
+        public boolean exitedNormally() {
+            return error().isEmpty();
+        }
+
+        /**
+         * Returns the first command that did not exit normally.
+         * @return optional {@link io.github.artkonr.process.Output error}
+         */
+        public Optional<io.github.artkonr.process.Output> error() {
+            return outputs.stream()
+                    .filter(output -> !output.exitedNormally())
+                    .findFirst();
+        }
+
+        private Output(List<Cmd> commands, List<io.github.artkonr.process.Output> outputs) {
+            this.commands = commands;
+            this.outputs = List.copyOf(outputs);
+        }
+    }
+
+    private static String redirect(String operator, ProcessBuilder.Redirect redirect, String fallback) {
+        return switch (redirect.type()) {
+            case READ, WRITE -> " " + operator + quote(redirect.file().getPath());
+            case APPEND -> " " + operator + ">" + quote(redirect.file().getPath());
+            case PIPE, INHERIT -> fallback == null ? "" : " " + operator + fallback;
+        };
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        outer:
+        for (int i = from; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private Script(List<Cmd> commands) {
+        this.commands = commands;
+    }
+}
@@ -0,0 +1,171 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Err;
+import io.github.artkonr.result.Ok;
+import io.github.artkonr.result.Result;
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.artkonr.process.Util.readByteArray;
+
+/**
+ * Handle of a program running in the background, e.g. a local
+ *  database or a mock server, that was started once it was
+ *  {@link Readiness ready}.
+ * <p>Output of the program is drained on a {@link Reactor} into
+ *  ring buffers, so that only the latest output is kept however
+ *  long the program runs.
+ * <p>A service is stopped gracefully: it is asked to terminate
+ *  and killed only if it does not exit by the deadline.
+ * @see Cmd#spawnBackground(Readiness)
+ */
+public class Service implements AutoCloseable {
+
+    /**
+     * Default size of the ring buffer of each stream, bytes.
+     */
+    static final int BUFFER = 64 * 1024;
+
+    /**
+     * Default time given to the program to exit gracefully.
+     */
+    static final Duration GRACE = Duration.ofSeconds(10);
+
+    private final Process process;
+    private final Cmd.Spec spec;
+    private final Reactor.Streams streams;
+
+    /**
+     * PID of the program.
+     * @return PID
+     */
+    public long pid() {
+        return process.pid();
+    }
+
+    /**
+     * Checks if the program is still running.
+     * @return {@code true} if running; {@code false} otherwise
+     */
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Latest stdout of the program, as much as fits the ring buffer.
+     * @return stdout snapshot
+     */
+    public Data stdout() {
+        return new Data(readByteArray(streams.stdout().snapshot()));
+    }
+
+    /**
+     * Latest stderr of the program, as much as fits the ring buffer.
+     * @return stderr snapshot
+     */
+    public Data stderr() {
+        return new Data(readByteArray(streams.stderr().snapshot()));
+    }
+
+    /**
+     * Stops the program, giving it {@link Service#GRACE 10 seconds} to exit.
+     * @return {@link Result} bearing the final output
+     * @see Service#stop(Duration)
+     */
+    public Result<io.github.artkonr.process.Output, CmdException> stop() {
+        return stop(GRACE);
+    }
+
+    /**
+     * Stops the program: asks it to terminate and kills it if it
+     *  does not exit by the deadline. If the program has already
+     *  exited, only its output is collected.
+     * @param deadline time given to the program to exit gracefully;
+     *                 zero to kill it right away
+     * @return {@link Result} bearing the final output, which bears
+     *  the latest output and the actual exitcode, e.g. {@code 143}
+     *  if the program has exited on {@code SIGTERM}; an error only if
+     *  the wait has been interrupted
+     * @throws IllegalArgumentException if no argument provided or it is negative
+     */
+    public Result<io.github.artkonr.process.Output, CmdException> stop(@NonNull Duration deadline) {
+        if (deadline.isNegative()) {
+            throw new IllegalArgumentException("deadline must not be negative");
+        }
+
+        // signalled through the handle, as Process#destroy closes the streams left to drain
+        ProcessHandle handle = process.toHandle();
+        if (deadline.isZero()) {
+            handle.destroyForcibly();
+        } else {
+            handle.destroy();
+        }
+        return Result
+                .wrap(InterruptedException.class, () -> {
+                    if (!process.waitFor(deadline.toNanos(), TimeUnit.NANOSECONDS)) {
+                        handle.destroyForcibly();
+                    }
+                    int exitcode = process.waitFor();
+                    streams.stdout().completion().exceptionally(ex -> null).join();
+                    streams.stderr().completion().exceptionally(ex -> null).join();
+                    return exitcode;
+                })
+                .<CmdException>stack(ex -> new CmdException("interrupted while stopping: " + spec.cmd(), ex))
+                .map(exitcode -> Cmd.Output.from(
+                        process.pid(),
+                        spec.cmd(),
+                        exitcode,
+                        readByteArray(streams.stdout().snapshot()),
+                        readByteArray(streams.stderr().snapshot()),
+                        spec.merged(),
+                        MeteredProcess.usage(process),
+                        spec.placement()
+                ));
+    }
+
+    /**
+     * Stops the program.
+     * @see Service#stop()
+     */
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * Factory method. Waits for a spawned program to get ready.
+     *  A program that does not is killed.
+     * @param process spawned program
+     * @param spec invocation spec
+     * @param streams streams of the program attached to ring buffers
+     * @param readiness readiness condition
+     * @return {@link Result} bearing the handle of a ready program;
+     *  an exitcode error if the program has exited abnormally before
+     *  it was ready, or another error if it was not ready in time
+     */
+    static Result<Service, CmdException> start(Process process,
+                                               Cmd.Spec spec,
+                                               Reactor.Streams streams,
+                                               Readiness readiness) {
+        Service service = new Service(process, spec, streams);
+        Result<Void, CmdException> ready = readiness.await(process, streams, spec.cmd());
+        if (ready.isOk()) {
+            return new Ok<>(service);
+        }
+
+        boolean exited = !process.isAlive();
+        return service.stop(Duration.ZERO).then(output -> new Err<>(
+                exited && !output.exitedNormally()
+                        ? CmdException.errorExitCode(0, output, spec.stackless())
+                        : ready.err()
+        ));
+    }
+
+    private Service(Process process, Cmd.Spec spec, Reactor.Streams streams) {
+        this.process = process;
+        this.spec = spec;
+        this.streams = streams;
+    }
+}
@@ -0,0 +1,270 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Err;
+import io.github.artkonr.result.Ok;
+import io.github.artkonr.result.Result;
+import lombok.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long-lived shell that {@link Cmd commands} are sent through
+ *  one at a time, which spares a fork of the JVM per command
+ *  and keeps the shell state between commands.
+ * <p>A command runs in the shell itself, so builtins like
+ *  {@code cd} or {@code export} change the working directory
+ *  and environment of the commands that follow. A command that
+ *  has a working directory or environment of its own runs in a
+ *  subshell instead, leaving the session intact.
+ * <p>After every command, a boundary unique to the session is
+ *  written into both streams along with the exitcode, which
+ *  delimits the output of the command. Stdin of a command is
+ *  {@code /dev/null} unless redirected from a file, as stdin of
+ *  the shell carries the commands.
+ * <p>Commands are sent one at a time even if the session is
+ *  shared by several threads. Stderr of a command is read on
+ *  a thread of the session's own.
+ */
+public class Session implements AutoCloseable {
+
+    /**
+     * Time given to the shell to exit on {@link Session#close()}
+     *  before it is killed, in milliseconds.
+     */
+    static final long GRACE = 1000;
+
+    private final Process shell;
+    private final String cmd;
+    private final OutputStream stdin;
+    private final InputStream stdout;
+    private final InputStream stderr;
+    private final byte[] outMark;
+    private final byte[] errMark;
+    private final ThreadPoolExecutor reader;
+    private boolean ended;
+
+    /**
+     * Factory method. Opens a session of {@code sh}.
+     * @return {@link Result} bearing the session
+     */
+    public static Result<Session, CmdException> open() {
+        return open("sh");
+    }
+
+    /**
+     * Factory method. Opens a session of a POSIX shell,
+     *  e.g. {@code bash} or {@code dash}.
+     * @param shell shell program name
+     * @return {@link Result} bearing the session
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public static Result<Session, CmdException> open(@NonNull String shell) {
+        String boundary = "--process-" + UUID.randomUUID();
+        ProcessBuilder pb = new ProcessBuilder(shell, "-s");
+        return Result.wrap(IOException.class, pb::start)
+                .<CmdException>stack(ex -> new CmdException("command failed", ex))
+                .then(process -> {
+                    Session session = new Session(process, shell, boundary);
+                    return session.send("B=" + Script.quote(boundary) + "\n")
+                            .map(ignored -> session);
+                });
+    }
+
+    /**
+     * Invokes a command in the session. Blocks until the command
+     *  exits; the commands of other threads wait meanwhile.
+     * @param command command to invoke
+     * @return invocation {@link Result}; an error if the command
+     *  exits abnormally or the session has ended, e.g. as the
+     *  command was {@code exit}
+     * @throws IllegalArgumentException if no command provided, it has
+     *  {@link Limits limits} or a {@link Placement placement}, or
+     *  inherits a stream of the JVM
+     */
+    public synchronized Result<io.github.artkonr.process.Output, CmdException> invoke(@NonNull Cmd command) {
+        Script.check(command);
+        if (ended) {
+            return new Err<>(new CmdException("session has ended: " + cmd));
+        }
+
+        Cmd.Spec spec = Cmd.Spec.of(command.handle, command.stackless);
+        Result<Void, CmdException> sent = send(Script.line(command.handle, false) + "\n" + Script.FRAME);
+        if (sent.isErr()) {
+            return new Err<>(sent.err());
+        }
+
+        // stderr is read concurrently, so that neither pipe can fill up and block the command
+        CompletableFuture<byte[]> err = CompletableFuture.supplyAsync(() -> {
+            try {
+                byte[] data = until(stderr, errMark);
+                if (stderr.read() != '\n') {
+                    throw new IOException("stderr is not framed");
+                }
+                return data;
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+        }, reader);
+
+        Result<io.github.artkonr.process.Output, CmdException> result = Result
+                .wrap(IOException.class, () -> until(stdout, outMark))
+                .fuse(Result.wrap(IOException.class, this::exitcode))
+                .upcast()
+                .fuse(Result.wrap(() -> {
+                    try {
+                        return err.join();
+                    } catch (CompletionException ex) {
+                        throw (Exception) ex.getCause();
+                    }
+                }))
+                .<CmdException>stack(ex -> {
+                    end();
+                    return new CmdException("session has ended: " + cmd, ex);
+                })
+                .map(fuse -> Cmd.Output.from(
+                        shell.pid(),
+                        spec.cmd(),
+                        fuse.left().right(),
+                        spec.stdout() ? Util.readByteArray(fuse.left().left()) : null,
+                        spec.stderr() ? Util.readByteArray(fuse.right()) : null,
+                        spec.merged()
+                ));
+        return result.taint(
+                output -> !output.exitedNormally(),
+                output -> CmdException.errorExitCode(0, output, spec.stackless())
+        );
+    }
+
+    /**
+     * PID of the shell.
+     * @return PID
+     */
+    public long pid() {
+        return shell.pid();
+    }
+
+    /**
+     * Checks if the session is still usable.
+     * @return {@code true} if the shell is running; {@code false} otherwise
+     */
+    public synchronized boolean isAlive() {
+        return !ended && shell.isAlive();
+    }
+
+    /**
+     * Ends the session: the shell is asked to exit and
+     *  killed if it does not within {@value GRACE} ms.
+     */
+    @Override
+    public synchronized void close() {
+        if (!ended) {
+            send("exit\n");
+        }
+        end();
+    }
+
+    private Result<Void, CmdException> send(String text) {
+        try {
+            stdin.write(text.getBytes(StandardCharsets.UTF_8));
+            stdin.flush();
+            return new Ok<>(null);
+        } catch (IOException ex) {
+            end();
+            return new Err<>(new CmdException("session has ended: " + cmd, ex));
+        }
+    }
+
+    private int exitcode() throws IOException {
+        StringBuilder code = new StringBuilder();
+        int next;
+        while ((next = stdout.read()) != '\n') {
+            if (next < 0) {
+                throw new IOException("stdout is not framed");
+            }
+            code.append((char) next);
+        }
+        try {
+            return Integer.parseInt(code.toString());
+        } catch (NumberFormatException ex) {
+            throw new IOException("stdout is not framed", ex);
+        }
+    }
+
+    private void end() {
+        ended = true;
+        reader.shutdown();
+        try {
+            stdin.close();
+        } catch (IOException ignored) {
+            // the shell has already exited
+        }
+        try {
+            if (!shell.waitFor(GRACE, TimeUnit.MILLISECONDS)) {
+                shell.destroyForcibly();
+            }
+        } catch (InterruptedException ex) {
+            shell.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads a stream up to a mark. The mark starts with the
+     *  only newline in it, so a partial match can only restart
+     *  at a newline.
+     * @param in stream
+     * @param mark mark
+     * @return data preceding the mark
+     * @throws IOException if the stream ends before the mark
+     */
+    private static byte[] until(InputStream in, byte[] mark) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < mark.length) {
+            int next = in.read();
+            if (next < 0) {
+                throw new IOException("stream has ended before the mark");
+            }
+            if (next == (mark[matched] & 0xFF)) {
+                matched++;
+                continue;
+            }
+            data.write(mark, 0, matched);
+            if (next == mark[0]) {
+                matched = 1;
+            } else {
+                data.write(next);
+                matched = 0;
+            }
+        }
+        return data.toByteArray();
+    }
+
+    private Session(Process shell, String cmd, String boundary) {
+        this.shell = shell;
+        this.cmd = cmd;
+        this.stdin = shell.getOutputStream();
+        this.stdout = new BufferedInputStream(shell.getInputStream());
+        this.stderr = new BufferedInputStream(shell.getErrorStream());
+        this.outMark = ("\n" + boundary + " ").getBytes(StandardCharsets.UTF_8);
+        this.errMark = ("\n" + boundary).getBytes(StandardCharsets.UTF_8);
+        // a single thread suffices, as commands run one at a time; it is let go while idle
+        this.reader = new ThreadPoolExecutor(1, 1, GRACE, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "process-session");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reader.allowCoreThreadTimeOut(true);
+    }
+}
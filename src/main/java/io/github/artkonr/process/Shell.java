@@ -2,10 +2,15 @@ package io.github.artkonr.process;
 
 import io.github.artkonr.result.Result;
 
+import java.util.concurrent.Executor;
+
 /**
  * An abstract interface to interact with a CLI.
+ * <p>The interface is sealed: it is implemented by {@link Cmd}
+ *  and {@link Chain} only, so that invocation modes can be added
+ *  to it without breaking third-party implementations.
  */
-public interface Shell {
+public sealed interface Shell permits Cmd, Chain {
 
     /**
      * Invokes the program with all arguments and collects its output.
@@ -13,6 +18,84 @@ public interface Shell {
      */
     Result<Output, CmdException> invoke();
 
+    /**
+     * Invokes the program with all arguments and collects its output,
+     *  draining stdout and stderr on a shared {@link Reactor} while
+     *  the program runs.
+     * @param reactor reactor to drain the streams on
+     * @return {@link Result} bearing command's output
+     */
+    Result<Output, CmdException> invoke(Reactor reactor);
+
+    /**
+     * Starts the program and returns a {@link Job handle} to it
+     *  right away. Output is drained on the provided {@link Reactor}.
+     * @param reactor reactor to drain the streams on
+     * @return {@link Result} bearing the handle of a running program
+     */
+    Result<Job, CmdException> start(Reactor reactor);
+
+    /**
+     * Starts the program and returns a {@link Job handle} to it
+     *  right away. Output is drained on the {@link Reactor#shared() shared reactor}.
+     * @return {@link Result} bearing the handle of a running program
+     */
+    default Result<Job, CmdException> start() {
+        return start(Reactor.shared());
+    }
+
+    /**
+     * Invokes the program until its output matches a condition,
+     *  draining the output on the {@link Reactor#shared() shared reactor}.
+     * @param until condition
+     * @return {@link Result} bearing the output read until the match
+     * @see Job#await(Until)
+     */
+    default Result<Until.Match, CmdException> invokeUntil(Until until) {
+        return invokeUntil(until, Reactor.shared());
+    }
+
+    /**
+     * Invokes the program until its output matches a condition.
+     *  Once it does, the program is killed or left running, as
+     *  the condition says, and the output read so far is returned
+     *  right away instead of waiting for the program to exit.
+     * @param until condition
+     * @param reactor reactor to drain the streams on
+     * @return {@link Result} bearing the output read until the match
+     * @see Job#await(Until)
+     */
+    default Result<Until.Match, CmdException> invokeUntil(Until until, Reactor reactor) {
+        return start(reactor).then(job -> job.await(until));
+    }
+
+    /**
+     * Invokes the program only to learn its exitcode. No output
+     *  is captured, read or decoded, and a non-zero exitcode is
+     *  not considered a failure.
+     * @return {@link Result} bearing the exitcode
+     */
+    Result<Integer, CmdException> status();
+
+    /**
+     * Starts the program and exposes its output as a {@link Feed}
+     *  instead of collecting it. Streams are read on the provided
+     *  {@link Executor} only as fast as subscribers demand data.
+     * @param executor executor to read the streams on
+     * @return {@link Result} bearing the {@link Feed} of a running program
+     */
+    Result<Feed, CmdException> publish(Executor executor);
+
+    /**
+     * Starts the program and exposes its output as a {@link Feed}
+     *  instead of collecting it. Streams are read on a shared pool
+     *  of daemon threads.
+     * @return {@link Result} bearing the {@link Feed} of a running program
+     */
+    default Result<Feed, CmdException> publish() {
+        return publish(Feed.defaultExecutor());
+    }
+
     /**
      * Pipes {@code this} instance into an invocation of another program.
      * @param pb program
@@ -35,4 +118,12 @@ public interface Shell {
      */
     Chain pipeTo(Cmd command);
 
+    /**
+     * Duplicates stdout of {@code this} instance into
+     *  several other programs or pipelines.
+     * @param branches programs or pipelines to feed
+     * @return {@link Tee fan-out} invocation
+     */
+    Tee teeTo(Shell... branches);
+
 }
@@ -0,0 +1,270 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Err;
+import io.github.artkonr.result.Result;
+import io.github.artkonr.result.TakeFrom;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * Fan-out invocation: stdout of a single source program (or
+ *  {@link Chain pipeline}) is duplicated into the stdin of
+ *  several branches, each of them a program or a pipeline.
+ * <p>The source is read once. Every branch has a bounded buffer
+ *  of {@link Tee#buffer(int) chunks}, so the slowest branch
+ *  throttles the source instead of output piling up in memory.
+ *  A branch that exits before consuming all of its input is
+ *  detached and the rest keep going, much like {@code tee -p};
+ *  once all branches are gone, the source is no longer read.
+ * <p>Streams of all programs are drained on a {@link Reactor}.
+ */
+public class Tee {
+
+    /**
+     * Default branch buffer size, in chunks.
+     */
+    static final int BUFFER = 16;
+
+    /**
+     * Runs every copying task on a dedicated daemon thread: the tasks
+     *  block for as long as the invocation runs and depend on each
+     *  other, so a pool of fewer threads could stall them for good.
+     */
+    private static final Executor THREADS = task -> {
+        Thread thread = new Thread(task, "process-tee");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    private final Chain source;
+    private final List<Chain> branches;
+    private int buffer = BUFFER;
+
+    /**
+     * Factory method. Creates a new {@link Tee}.
+     * @param source program or pipeline whose stdout is duplicated
+     * @param branches programs or pipelines fed with the source stdout
+     * @return new instance
+     * @throws IllegalArgumentException if no source or branches provided, or the
+     *  source stdout / branch stdin is redirected away from a pipe
+     */
+    static Tee from(@NonNull Shell source, @NonNull Shell... branches) {
+        if (branches.length == 0) {
+            throw new IllegalArgumentException("no branches provided");
+        }
+
+        Chain lifted = Chain.lift(source);
+        ProcessBuilder last = lifted.pipeline.get(lifted.pipeline.size() - 1);
+        if (last.redirectOutput().type() != ProcessBuilder.Redirect.Type.PIPE) {
+            throw new IllegalArgumentException("source stdout must be piped");
+        }
+
+        List<Chain> lanes = new ArrayList<>();
+        for (Shell branch : branches) {
+            if (branch == null) {
+                throw new IllegalArgumentException("branch is null");
+            }
+            Chain lane = Chain.lift(branch);
+            if (lane.pipeline.get(0).redirectInput().type() != ProcessBuilder.Redirect.Type.PIPE) {
+                throw new IllegalArgumentException("branch stdin must be piped");
+            }
+            lanes.add(lane);
+        }
+        return new Tee(lifted, lanes);
+    }
+
+    /**
+     * Sets the buffer size of each branch.
+     * @param chunks buffer size, in chunks of up to {@link Feed#CHUNK} bytes
+     * @return this instance
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public Tee buffer(int chunks) {
+        if (chunks <= 0) {
+            throw new IllegalArgumentException("buffer size must be positive");
+        }
+        this.buffer = chunks;
+        return this;
+    }
+
+    /**
+     * Invokes the source along with all branches, draining
+     *  their streams on the {@link Reactor#shared() shared} reactor.
+     * @return invocation {@link Result}
+     */
+    public Result<Output, CmdException> invoke() {
+        return invoke(Reactor.shared());
+    }
+
+    /**
+     * Invokes the source along with all branches. The source
+     *  stdout is copied into the branches on dedicated threads.
+     * @param reactor reactor to drain the streams on
+     * @return invocation {@link Result}; if any program fails,
+     *  the error of the source or the first failed branch
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Result<Output, CmdException> invoke(@NonNull Reactor reactor) {
+        return invoke(reactor, THREADS);
+    }
+
+    /**
+     * Invokes the source along with all branches.
+     * @param reactor reactor to drain the streams on
+     * @param executor executor to copy the source stdout into the
+     *                 branches on; it must be able to run a task per
+     *                 branch plus one concurrently, for the whole
+     *                 duration of the invocation
+     * @return invocation {@link Result}; if any program fails,
+     *  the error of the source or the first failed branch
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Result<Output, CmdException> invoke(@NonNull Reactor reactor, @NonNull Executor executor) {
+        List<List<Process>> lanes = new ArrayList<>();
+        for (Chain branch : branches) {
+            Result<List<Process>, Exception> spawned = branch.spawn();
+            if (spawned.isErr()) {
+                lanes.forEach(Tee::kill);
+                return new Err<>(new CmdException("command failed", spawned.err()));
+            }
+            lanes.add(spawned.value());
+        }
+
+        Result<List<Process>, Exception> spawned = source.spawn();
+        if (spawned.isErr()) {
+            lanes.forEach(Tee::kill);
+            return new Err<>(new CmdException("command failed", spawned.err()));
+        }
+        List<Process> producer = spawned.value();
+
+        List<Map<Process, Reactor.Streams>> attached = new ArrayList<>();
+        for (int i = 0; i < branches.size(); i++) {
+            attached.add(Chain.attach(lanes.get(i), branches.get(i).specs(), reactor));
+        }
+        List<Cmd.Spec> specs = new ArrayList<>(source.specs());
+        specs.set(specs.size() - 1, specs.get(specs.size() - 1).skipStdout());
+        Map<Process, Reactor.Streams> produced = Chain.attach(producer, specs, reactor);
+
+        pump(
+                producer.get(producer.size() - 1).getInputStream(),
+                lanes.stream().map(processes -> processes.get(0).getOutputStream()).toList(),
+                executor
+        );
+
+        var head = source.await(producer, produced);
+        List<Result<io.github.artkonr.process.Output, CmdException>> tail = new ArrayList<>();
+        for (int i = 0; i < branches.size(); i++) {
+            tail.add(branches.get(i).await(lanes.get(i), attached.get(i)));
+        }
+        return head
+                .fuse(Result.join(tail, TakeFrom.HEAD), TakeFrom.HEAD)
+                .map(fuse -> new Output(fuse.left(), fuse.right()));
+    }
+
+    /**
+     * {@link io.github.artkonr.process.Output Outputs} of a fan-out invocation.
+     */
+    public static class Output {
+
+        private final io.github.artkonr.process.Output source;
+        private final List<io.github.artkonr.process.Output> branches;
+
+        /**
+         * Output of the source. Its stdout is always empty,
+         *  as it went to the branches.
+         * @return source output
+         */
+        public io.github.artkonr.process.Output source() {
+            return source;
+        }
+
+        /**
+         * Outputs of the branches, in the order they were declared.
+         * @return branch outputs
+         */
+        public List<io.github.artkonr.process.Output> branches() {
+            return branches;
+        }
+
+        /**
+         * Output of a single branch.
+         * @param index branch index
+         * @return branch output
+         * @throws IndexOutOfBoundsException if there is no such branch
+         */
+        public io.github.artkonr.process.Output branch(int index) {
+            return branches.get(index);
+        }
+
+        /**
+         * Checks if the source and all branches have exited normally.
+         * @return {@code true} if all programs returned exitcode 0;
+         *  {@code false} if otherwise
+         */
+        public boolean exitedNormally() {
+            return error().isEmpty();
+        }
+
+        /**
+         * Returns the first output that did not exit normally,
+         *  the source being introspected first.
+         * @return optional {@link io.github.artkonr.process.Output error}
+         */
+        public Optional<io.github.artkonr.process.Output> error() {
+            return Stream.concat(Stream.of(source), branches.stream())
+                    .map(io.github.artkonr.process.Output::error)
+                    .flatMap(Optional::stream)
+                    .findFirst();
+        }
+
+        private Output(io.github.artkonr.process.Output source,
+                       List<io.github.artkonr.process.Output> branches) {
+            this.source = source;
+            this.branches = List.copyOf(branches);
+        }
+    }
+
+    private void pump(InputStream in, List<OutputStream> sinks, Executor executor) {
+        List<Lane> lanes = sinks.stream()
+                .map(sink -> new Lane(sink, buffer, 1))
+                .toList();
+        lanes.forEach(lane -> executor.execute(lane::drain));
+        executor.execute(() -> {
+            byte[] chunk = new byte[Feed.CHUNK];
+            try (in) {
+                int read;
+                while (lanes.stream().anyMatch(lane -> !lane.isBroken()) && (read = in.read(chunk)) >= 0) {
+                    byte[] copy = Arrays.copyOf(chunk, read);
+                    for (Lane lane : lanes) {
+                        lane.put(copy);
+                    }
+                }
+            } catch (IOException ignored) {
+                // the source is gone; its exitcode tells the rest
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lanes.forEach(Lane::end);
+            }
+        });
+    }
+
+    private static void kill(List<Process> processes) {
+        processes.forEach(Process::destroyForcibly);
+    }
+
+    private Tee(Chain source, List<Chain> branches) {
+        this.source = source;
+        this.branches = branches;
+    }
+}
@@ -0,0 +1,301 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import lombok.NonNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, thread-safe template of a program invocation
+ *  (or a pipeline of them), with {@code {name}} placeholders
+ *  in arguments, environment variable values and the working
+ *  directory. A placeholder name consists of letters, digits,
+ *  {@code _}, {@code .} and {@code -}; literal braces are escaped by
+ *  doubling them, e.g. {@code awk '{{print $1}}'} is bound
+ *  to {@code awk '{print $1}'}.
+ * <p>Templates are parsed once: every call to {@link Template#bind(Map)}
+ *  only substitutes the placeholders into the precomputed
+ *  argument vector and environment overrides, so a single
+ *  template can be shared and bound concurrently on hot paths.
+ * <p>The environment of a bound program is that of the JVM with
+ *  the template overrides applied on top of it; if a template has
+ *  no overrides, the JVM environment is inherited without being copied.
+ */
+public final class Template {
+
+    private final List<Stage> stages;
+
+    /**
+     * Factory method. Creates a template of a single program.
+     * @param exec program name, may contain placeholders
+     * @param arguments program arguments, may contain placeholders
+     * @return new instance
+     * @throws IllegalArgumentException if no program name provided or any argument is {@code null}
+     */
+    public static Template of(@NonNull String exec, @NonNull String... arguments) {
+        List<String[]> argv = new ArrayList<>(arguments.length + 1);
+        argv.add(parse(exec));
+        for (String argument : arguments) {
+            if (argument == null) {
+                throw new IllegalArgumentException("arguments must not be null");
+            }
+            argv.add(parse(argument));
+        }
+        return new Template(List.of(new Stage(argv, Map.of(), List.of(), null)));
+    }
+
+    /**
+     * Derives a template that sets an environment variable
+     *  of the last program.
+     * @param name variable name
+     * @param value variable value, may contain placeholders
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Template env(@NonNull String name, @NonNull String value) {
+        Stage last = last();
+        Map<String, String[]> env = new LinkedHashMap<>(last.env());
+        env.put(name, parse(value));
+        List<String> unset = new ArrayList<>(last.unset());
+        unset.remove(name);
+        return replaceLast(new Stage(last.argv(), env, unset, last.directory()));
+    }
+
+    /**
+     * Derives a template that removes an environment
+     *  variable from the last program.
+     * @param name variable name
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Template unsetEnv(@NonNull String name) {
+        Stage last = last();
+        Map<String, String[]> env = new LinkedHashMap<>(last.env());
+        env.remove(name);
+        List<String> unset = new ArrayList<>(last.unset());
+        if (!unset.contains(name)) {
+            unset.add(name);
+        }
+        return replaceLast(new Stage(last.argv(), env, unset, last.directory()));
+    }
+
+    /**
+     * Derives a template that sets the working directory
+     *  of the last program.
+     * @param directory working directory, may contain placeholders
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Template directory(@NonNull String directory) {
+        Stage last = last();
+        return replaceLast(new Stage(last.argv(), last.env(), last.unset(), parse(directory)));
+    }
+
+    /**
+     * Derives a template that pipes stdout of {@code this}
+     *  template into another one.
+     * @param next downstream template
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public Template pipeTo(@NonNull Template next) {
+        List<Stage> stages = new ArrayList<>(this.stages);
+        stages.addAll(next.stages);
+        return new Template(stages);
+    }
+
+    /**
+     * Binds the placeholders to values.
+     * @param values placeholder values, keyed by name;
+     *               values that are not referenced are ignored
+     * @return a new {@link Cmd}, or a {@link Chain} if the
+     *  template is a pipeline
+     * @throws IllegalArgumentException if no argument provided or
+     *  a placeholder has no value
+     */
+    public Shell bind(@NonNull Map<String, String> values) {
+        ProcessBuilder first = stages.get(0).build(values);
+        if (stages.size() == 1) {
+            return Cmd.from(first);
+        }
+
+        Chain chain = Chain.from(first);
+        for (int i = 1; i < stages.size(); i++) {
+            chain.pipeTo(stages.get(i).build(values));
+        }
+        return chain;
+    }
+
+    /**
+     * Binds the placeholders and invokes the program.
+     * @param values placeholder values, keyed by name
+     * @return invocation {@link Result}
+     * @throws IllegalArgumentException if no argument provided or
+     *  a placeholder has no value
+     * @see Template#bind(Map)
+     */
+    public Result<Output, CmdException> invoke(@NonNull Map<String, String> values) {
+        return bind(values).invoke();
+    }
+
+    /**
+     * Renders the template, e.g. {@code grep {pattern} {file} | wc -l},
+     *  with literal braces escaped.
+     * @return text representation
+     */
+    @Override
+    public String toString() {
+        List<String> rendered = new ArrayList<>();
+        for (Stage stage : stages) {
+            List<String> argv = new ArrayList<>();
+            for (String[] pieces : stage.argv()) {
+                argv.add(render(pieces));
+            }
+            rendered.add(String.join(" ", argv));
+        }
+        return String.join(" | ", rendered);
+    }
+
+    /**
+     * Splits a string into literal pieces at even indexes
+     *  and placeholder names at odd indexes. Doubled braces
+     *  are unescaped into the literal pieces.
+     * @param text text
+     * @return pieces
+     */
+    static String[] parse(String text) {
+        List<String> pieces = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int at = 0;
+        while (at < text.length()) {
+            char ch = text.charAt(at);
+            if ((ch == '{' || ch == '}') && at + 1 < text.length() && text.charAt(at + 1) == ch) {
+                literal.append(ch);
+                at += 2;
+                continue;
+            }
+            if (ch == '{') {
+                int end = at + 1;
+                while (end < text.length() && isNameChar(text.charAt(end))) {
+                    end++;
+                }
+                if (end > at + 1 && end < text.length() && text.charAt(end) == '}') {
+                    pieces.add(literal.toString());
+                    pieces.add(text.substring(at + 1, end));
+                    literal.setLength(0);
+                    at = end + 1;
+                    continue;
+                }
+            }
+            literal.append(ch);
+            at++;
+        }
+        pieces.add(literal.toString());
+        return pieces.toArray(String[]::new);
+    }
+
+    /**
+     * Substitutes values into parsed pieces.
+     * @param pieces parsed pieces
+     * @param values placeholder values
+     * @return resulting string
+     * @throws IllegalArgumentException if a placeholder has no value
+     */
+    static String substitute(String[] pieces, Map<String, String> values) {
+        if (pieces.length == 1) {
+            return pieces[0];
+        }
+        if (pieces.length == 3 && pieces[0].isEmpty() && pieces[2].isEmpty()) {
+            return value(pieces[1], values);
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < pieces.length; i++) {
+            builder.append(i % 2 == 0 ? pieces[i] : value(pieces[i], values));
+        }
+        return builder.toString();
+    }
+
+    private static String value(String name, Map<String, String> values) {
+        String value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("no value for placeholder '" + name + "'");
+        }
+        return value;
+    }
+
+    private static boolean isNameChar(char ch) {
+        return ch >= 'a' && ch <= 'z'
+                || ch >= 'A' && ch <= 'Z'
+                || ch >= '0' && ch <= '9'
+                || ch == '_' || ch == '.' || ch == '-';
+    }
+
+    private static String render(String[] pieces) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < pieces.length; i++) {
+            builder.append(i % 2 == 0
+                    ? pieces[i].replace("{", "{{").replace("}", "}}")
+                    : "{" + pieces[i] + "}");
+        }
+        return builder.toString();
+    }
+
+    private Stage last() {
+        return stages.get(stages.size() - 1);
+    }
+
+    private Template replaceLast(Stage stage) {
+        List<Stage> stages = new ArrayList<>(this.stages);
+        stages.set(stages.size() - 1, stage);
+        return new Template(stages);
+    }
+
+    private Template(List<Stage> stages) {
+        this.stages = List.copyOf(stages);
+    }
+
+    /**
+     * A single parsed program of a template.
+     * @param argv parsed program name and arguments
+     * @param env parsed environment overrides
+     * @param unset removed environment variables
+     * @param directory parsed working directory, nullable
+     */
+    private record Stage(List<String[]> argv,
+                         Map<String, String[]> env,
+                         List<String> unset,
+                         String[] directory) {
+
+        Stage {
+            argv = List.copyOf(argv);
+            env = Collections.unmodifiableMap(new LinkedHashMap<>(env));
+            unset = List.copyOf(unset);
+        }
+
+        ProcessBuilder build(Map<String, String> values) {
+            String[] command = new String[argv.size()];
+            for (int i = 0; i < command.length; i++) {
+                command[i] = substitute(argv.get(i), values);
+            }
+
+            ProcessBuilder pb = new ProcessBuilder(Arrays.asList(command));
+            if (directory != null) {
+                pb.directory(new File(substitute(directory, values)));
+            }
+            if (!env.isEmpty() || !unset.isEmpty()) {
+                // the builder copies the JVM environment once; only the overrides are applied to it
+                Map<String, String> environment = pb.environment();
+                unset.forEach(environment::remove);
+                env.forEach((name, pieces) -> environment.put(name, substitute(pieces, values)));
+            }
+            return pb;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package io.github.artkonr.process;
+
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Condition on the output of a running program that ends
+ *  the wait for it early, e.g. the first match of a search
+ *  or a {@code listening on port} message.
+ * <p>Output is scanned incrementally, as it is drained, so
+ *  the condition is checked once per chunk rather than over
+ *  the whole output every time. The condition is checked on the
+ *  waiting thread rather than on the one draining the output.
+ *  Once the condition matches, the program is killed, unless the
+ *  condition {@link Until#detach() detaches} it.
+ * <p>Conditions are immutable and can be reused.
+ * @see Shell#invokeUntil(Until)
+ * @see Job#await(Until)
+ */
+public final class Until {
+
+    private final Supplier<Scanner> scanners;
+    private final boolean stderr;
+    private final boolean detach;
+
+    /**
+     * Factory method. Matches once the output contains a text.
+     * @param text text to look for, encoded as UTF-8
+     * @return new instance
+     * @throws IllegalArgumentException if no text provided or it is empty
+     */
+    public static Until contains(@NonNull String text) {
+        return contains(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Factory method. Matches once the output contains
+     *  a sequence of bytes.
+     * @param pattern bytes to look for
+     * @return new instance
+     * @throws IllegalArgumentException if no pattern provided or it is empty
+     */
+    public static Until contains(@NonNull byte[] pattern) {
+        if (pattern.length == 0) {
+            throw new IllegalArgumentException("pattern is empty");
+        }
+        byte[] copy = pattern.clone();
+        int[] fallback = fallback(copy);
+        return new Until(() -> new PatternScanner(copy, fallback), false, false);
+    }
+
+    /**
+     * Factory method. Matches once any line of the output, decoded
+     *  as UTF-8 and stripped of the line terminator, satisfies a
+     *  predicate. The last line is tested even if it is not
+     *  terminated. The predicate is run on the waiting thread.
+     * @param predicate line predicate
+     * @return new instance
+     * @throws IllegalArgumentException if no argument provided
+     */
+    public static Until line(@NonNull Predicate<String> predicate) {
+        return new Until(() -> new LineScanner(predicate), false, false);
+    }
+
+    /**
+     * Derives a condition that scans stderr instead of stdout.
+     * @return new instance
+     */
+    public Until onStderr() {
+        return new Until(scanners, true, detach);
+    }
+
+    /**
+     * Derives a condition that leaves the program running once
+     *  it matches. The output of the program keeps being drained
+     *  until it exits.
+     * @return new instance
+     */
+    public Until detach() {
+        return new Until(scanners, stderr, true);
+    }
+
+    /**
+     * Checks if stderr is scanned instead of stdout.
+     * @return {@code true} if stderr is scanned; {@code false} otherwise
+     */
+    boolean stderr() {
+        return stderr;
+    }
+
+    /**
+     * Checks if the program is left running once the condition matches.
+     * @return {@code true} if the program is detached; {@code false} if it is killed
+     */
+    boolean detached() {
+        return detach;
+    }
+
+    /**
+     * Creates a fresh scanner for a single stream.
+     * @return new scanner
+     */
+    Scanner scanner() {
+        return scanners.get();
+    }
+
+    /**
+     * Output of a program (or a {@link Chain pipeline}) read until
+     *  a condition has matched. Unlike an {@link Output}, it bears
+     *  no exitcode, as the program is not awaited: it is either killed
+     *  or left running. Its actual exit status is reported by the
+     *  {@link Match#job() job} once it exits.
+     */
+    public static final class Match {
+
+        private final Job job;
+        private final String cmd;
+        private final Data stdout;
+        private final Data stderr;
+        private final boolean detached;
+
+        /**
+         * PID of the (last) program.
+         * @return PID
+         */
+        public long pid() {
+            return job.pid();
+        }
+
+        /**
+         * Renders the invoked command, e.g. {@code ls -lah}.
+         * @return invoked command
+         */
+        public String command() {
+            return cmd;
+        }
+
+        /**
+         * Stdout read until the match, trimmed.
+         * @return stdout
+         */
+        public Data stdout() {
+            return stdout;
+        }
+
+        /**
+         * Stderr read until the match, trimmed.
+         * @return stderr
+         */
+        public Data stderr() {
+            return stderr;
+        }
+
+        /**
+         * Checks if the program was left running once the condition matched.
+         * @return {@code true} if it was left running; {@code false} if it was killed
+         */
+        public boolean detached() {
+            return detached;
+        }
+
+        /**
+         * Handle of the program. Once it exits, be it killed or not,
+         *  its {@link Job#onExit() completion} bears the actual exit
+         *  status along with the whole output.
+         * @return job
+         */
+        public Job job() {
+            return job;
+        }
+
+        /**
+         * Default constructor.
+         * @param job handle of the program
+         * @param cmd invoked command
+         * @param stdout stdout read until the match
+         * @param stderr stderr read until the match
+         * @param detached whether the program was left running
+         */
+        Match(Job job, String cmd, Data stdout, Data stderr, boolean detached) {
+            this.job = job;
+            this.cmd = cmd;
+            this.stdout = stdout;
+            this.stderr = stderr;
+            this.detached = detached;
+        }
+    }
+
+    /**
+     * Stateful incremental matcher of a single stream.
+     */
+    interface Scanner {
+
+        /**
+         * Scans the next chunk of the stream.
+         * @param data chunk buffer
+         * @param offset chunk offset
+         * @param length chunk length
+         * @return {@code true} if the condition has matched
+         */
+        boolean scan(byte[] data, int offset, int length);
+
+        /**
+         * Signals the end of the stream.
+         * @return {@code true} if the condition has matched
+         *  on the data left over
+         */
+        boolean end();
+    }
+
+    /**
+     * Builds the Knuth-Morris-Pratt failure function of a pattern.
+     * @param pattern pattern
+     * @return length of the longest proper prefix that is also a
+     *  suffix, for every prefix of the pattern
+     */
+    static int[] fallback(byte[] pattern) {
+        int[] fallback = new int[pattern.length];
+        int matched = 0;
+        for (int i = 1; i < pattern.length; i++) {
+            while (matched > 0 && pattern[i] != pattern[matched]) {
+                matched = fallback[matched - 1];
+            }
+            if (pattern[i] == pattern[matched]) {
+                matched++;
+            }
+            fallback[i] = matched;
+        }
+        return fallback;
+    }
+
+    private Until(Supplier<Scanner> scanners, boolean stderr, boolean detach) {
+        this.scanners = scanners;
+        this.stderr = stderr;
+        this.detach = detach;
+    }
+
+    /**
+     * Matches a byte pattern that may span chunks.
+     */
+    private static class PatternScanner implements Scanner {
+
+        private final byte[] pattern;
+        private final int[] fallback;
+        private int matched;
+
+        @Override
+        public boolean scan(byte[] data, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                while (matched > 0 && data[i] != pattern[matched]) {
+                    matched = fallback[matched - 1];
+                }
+                if (data[i] == pattern[matched] && ++matched == pattern.length) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean end() {
+            return false;
+        }
+
+        PatternScanner(byte[] pattern, int[] fallback) {
+            this.pattern = pattern;
+            this.fallback = fallback;
+        }
+    }
+
+    /**
+     * Splits a stream into lines and tests each of them.
+     */
+    private static class LineScanner implements Scanner {
+
+        private final Predicate<String> predicate;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        @Override
+        public boolean scan(byte[] data, int offset, int length) {
+            int from = offset;
+            for (int i = offset; i < offset + length; i++) {
+                if (data[i] == '\n') {
+                    line.write(data, from, i - from);
+                    from = i + 1;
+                    if (test()) {
+                        return true;
+                    }
+                }
+            }
+            line.write(data, from, offset + length - from);
+            return false;
+        }
+
+        @Override
+        public boolean end() {
+            return line.size() > 0 && test();
+        }
+
+        private boolean test() {
+            byte[] bytes = line.toByteArray();
+            line.reset();
+            int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+            return predicate.test(new String(Arrays.copyOf(bytes, length), StandardCharsets.UTF_8));
+        }
+
+        LineScanner(Predicate<String> predicate) {
+            this.predicate = predicate;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.artkonr.process;
+
+import java.time.Duration;
+
+/**
+ * Resources consumed by a single program invocation.
+ * <p>CPU time and peak RSS are sampled from {@code /proc/<pid>}
+ *  while the program runs, so they reflect the last sample taken
+ *  before the program exited and should be treated as lower bounds;
+ *  programs that exit before the first sample report zeroes. Where
+ *  {@code /proc} is not available, the total CPU time reported by
+ *  {@link ProcessHandle.Info} is accounted as user time, and peak
+ *  RSS is zero.
+ * @param wall wall-clock time from spawn to exit
+ * @param user CPU time spent in user mode
+ * @param system CPU time spent in kernel mode
+ * @param peakRss peak resident set size, bytes
+ */
+public record Usage(Duration wall, Duration user, Duration system, long peakRss) {
+
+    /**
+     * Total CPU time.
+     * @return user and system time combined
+     */
+    public Duration cpu() {
+        return user.plus(system);
+    }
+
+    /**
+     * Combines usage of programs that ran concurrently, e.g.
+     *  in a {@link Chain pipeline}: wall time is the longest of
+     *  the two, while CPU time and peak RSS are summed up.
+     * @param other usage to combine with
+     * @return combined usage
+     */
+    public Usage combine(Usage other) {
+        return new Usage(
+                wall.compareTo(other.wall) >= 0 ? wall : other.wall,
+                user.plus(other.user),
+                system.plus(other.system),
+                peakRss + other.peakRss
+        );
+    }
+}
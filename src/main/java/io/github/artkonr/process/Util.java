@@ -11,6 +11,7 @@ import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -80,6 +81,68 @@ class Util {
                 .redirectError(ProcessBuilder.Redirect.PIPE);
     }
 
+    /**
+     * Creates an independent copy of a {@link ProcessBuilder}:
+     *  command, working directory, environment and redirects.
+     * @param pb process builder
+     * @return copy
+     */
+    static ProcessBuilder copy(ProcessBuilder pb) {
+        ProcessBuilder copy = new ProcessBuilder(new ArrayList<>(pb.command()))
+                .directory(pb.directory())
+                .redirectInput(pb.redirectInput())
+                .redirectOutput(pb.redirectOutput())
+                .redirectError(pb.redirectError())
+                .redirectErrorStream(pb.redirectErrorStream());
+        Map<String, String> environment = copy.environment();
+        environment.clear();
+        environment.putAll(pb.environment());
+        return copy;
+    }
+
+    /**
+     * Creates a status probe of a {@link ProcessBuilder}: a builder
+     *  that shares its command and has the same working directory,
+     *  stdin and stdout, with stderr discarded. Unlike a
+     *  {@link Util#copy(ProcessBuilder) copy}, the environment is only
+     *  copied if it differs from that of the JVM; otherwise the probe
+     *  inherits the JVM environment as is.
+     * @param pb process builder
+     * @return probe
+     */
+    static ProcessBuilder probe(ProcessBuilder pb) {
+        return derive(pb, pb.command())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .redirectErrorStream(false);
+    }
+
+    /**
+     * Creates a builder that runs another command in the same
+     *  setting as a {@link ProcessBuilder}: working directory,
+     *  redirects and environment. The command list is used as is,
+     *  and the environment is only copied if it differs from that
+     *  of the JVM; otherwise the builder inherits the JVM
+     *  environment as is.
+     * @param pb process builder
+     * @param command command to run
+     * @return new builder
+     */
+    static ProcessBuilder derive(ProcessBuilder pb, List<String> command) {
+        ProcessBuilder derived = new ProcessBuilder(command)
+                .directory(pb.directory())
+                .redirectInput(pb.redirectInput())
+                .redirectOutput(pb.redirectOutput())
+                .redirectError(pb.redirectError())
+                .redirectErrorStream(pb.redirectErrorStream());
+        Map<String, String> environment = pb.environment();
+        if (!environment.equals(System.getenv())) {
+            Map<String, String> custom = derived.environment();
+            custom.clear();
+            custom.putAll(environment);
+        }
+        return derived;
+    }
+
     /**
      * Extracts command text from a {@link ProcessBuilder}.
      * @param pb process builder
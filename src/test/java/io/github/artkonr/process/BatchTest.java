@@ -0,0 +1,128 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchTest {
+
+    @Test
+    void split__max_args() {
+        List<List<String>> batches = Cmd.from("echo")
+                .xargs(List.of("a", "b", "c", "d", "e"))
+                .maxArgs(2)
+                .split()
+                .unwrap();
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d"), List.of("e")), batches);
+    }
+
+    @Test
+    void split__max_bytes() {
+        ProcessBuilder pb = new ProcessBuilder("echo");
+        pb.environment().clear();
+        // 'echo' costs 5 + 8 bytes; every single-char argument costs 2 + 8 bytes
+        List<List<String>> batches = Cmd.from(pb)
+                .xargs(List.of("a", "b", "c", "d", "e"))
+                .maxBytes(13 + 20)
+                .split()
+                .unwrap();
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d"), List.of("e")), batches);
+    }
+
+    @Test
+    void split__too_long() {
+        ProcessBuilder pb = new ProcessBuilder("echo");
+        pb.environment().clear();
+        Result<List<List<String>>, CmdException> result = Cmd.from(pb)
+                .xargs(List.of("a", "too-long"))
+                .maxBytes(25)
+                .split();
+        assertTrue(result.isErr());
+        assertTrue(Cmd.from("echo").xargs(List.of("x".repeat(200_000))).split().isErr());
+    }
+
+    @Test
+    void split__no_args() {
+        assertEquals(List.of(List.of()), Cmd.from("echo").xargs(List.of()).split().unwrap());
+    }
+
+    @Test
+    void argMax__queried() {
+        assertTrue(Batch.argMax() >= 4096);
+    }
+
+    @Test
+    void invoke__ordered() {
+        List<String> numbers = IntStream.range(0, 1000).mapToObj(String::valueOf).toList();
+        Result<Output, CmdException> result = Cmd.from("sh", "-c", "sleep 0.0$(( $1 % 7 )); printf '%s\\n' \"$@\"", "sh")
+                .xargs(numbers)
+                .maxArgs(50)
+                .parallel(4)
+                .invoke();
+        assertTrue(result.isOk());
+
+        Batch.Output output = (Batch.Output) result.value();
+        assertEquals(20, output.batches().size());
+        assertEquals(String.join("\n", numbers), output.stdout().encode().orElseThrow());
+        assertTrue(output.stderr().isEmpty());
+        assertTrue(output.command().startsWith("xargs sh -c"));
+    }
+
+    @Test
+    void invoke__joined_as_read() {
+        Result<Output, CmdException> result = Cmd.from("sh", "-c", "printf '%s, ' \"$@\"; printf '%s ' \"$@\" >&2", "sh")
+                .xargs(List.of("a", "b", "c"))
+                .maxArgs(2)
+                .invoke();
+        assertTrue(result.isOk());
+
+        Batch.Output output = (Batch.Output) result.value();
+        assertEquals("a, b,", output.batches().get(0).stdout().encode().orElseThrow());
+        assertEquals("a, b, c,", output.stdout().encode().orElseThrow());
+        assertEquals("a b c", output.stderr().encode().orElseThrow());
+    }
+
+    @Test
+    void invoke__over_arg_max() {
+        String padding = "x".repeat(1000);
+        List<String> arguments = IntStream.range(0, 5000).mapToObj(i -> padding + i).toList();
+        Result<Output, CmdException> result = Cmd.from("sh", "-c", "echo $#", "sh")
+                .xargs(arguments)
+                .parallel(2)
+                .invoke();
+        assertTrue(result.isOk());
+
+        Batch.Output output = (Batch.Output) result.value();
+        assertTrue(output.batches().size() > 1);
+        int total = output.batches().stream()
+                .mapToInt(batch -> Integer.parseInt(batch.stdout().encode().orElseThrow()))
+                .sum();
+        assertEquals(5000, total);
+    }
+
+    @Test
+    void invoke__err() {
+        Result<Output, CmdException> result = Cmd.from("sh", "-c", "[ \"$1\" != c ] || exit 3; echo \"$@\"", "sh")
+                .xargs(List.of("a", "b", "c", "d"))
+                .maxArgs(1)
+                .parallel(2)
+                .invoke();
+        assertTrue(result.isErr());
+        assertEquals(3, result.err().output().orElseThrow().exitcode());
+        assertEquals("sh -c [ \"$1\" != c ] || exit 3; echo \"$@\" sh c", result.err().output().orElseThrow().command());
+    }
+
+    @Test
+    void xargs__invalid() {
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("echo").xargs(null));
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("echo").xargs(java.util.Arrays.asList("a", null)));
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("echo").xargs(List.of()).maxArgs(0));
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("echo").xargs(List.of()).maxBytes(0));
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("echo").xargs(List.of()).parallel(0));
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuiltinsTest {
+
+    private static final long JVM = ProcessHandle.current().pid();
+
+    @Test
+    void echo__identical() {
+        identical("echo", "hello", "world");
+        identical("echo", "-n", "no", "newline");
+        identical("echo");
+        identical("echo", "a\\nb", "-n");
+    }
+
+    @Test
+    void echo__fallback() {
+        fallback("echo", "-e", "a\\nb");
+        fallback("echo", "--help");
+    }
+
+    @Test
+    void printf__identical() {
+        identical("printf", "%s=%d\\n", "a", "1", "b", "-2");
+        identical("printf", "100%%\\t%s", "done");
+        identical("printf", "[%s]");
+        identical("printf", "plain");
+        identical("printf", "%d", "010");
+        identical("printf", "%d\\n", "-07", "+5", "0", "-0", "0777");
+    }
+
+    @Test
+    void printf__fallback() {
+        fallback("printf", "%5.2f", "1");
+        fallback("printf", "%d", "x");
+        fallback("printf", "%d", "08");
+        fallback("printf", "%d", "0x10");
+        fallback("printf", "plain", "extra");
+        fallback("printf", "\\x41");
+    }
+
+    @Test
+    void cat__identical(@TempDir Path dir) throws Exception {
+        Path file = Files.writeString(dir.resolve("a.txt"), "line 1\nline 2\n");
+        identical("cat", file.toString());
+        identical("cat", file.toString(), file.toString());
+        identical("cat", dir.resolve("missing").toString(), file.toString());
+        identical("cat", dir.toString());
+        identical(Cmd.from(new ProcessBuilder("cat", "a.txt").directory(dir.toFile())));
+        identical(Cmd.from(new ProcessBuilder("cat").redirectInput(file.toFile())));
+    }
+
+    @Test
+    void cat__fallback() {
+        // stdin of a command is never written
+        fallback("cat");
+        fallback("cat", "-n", "file");
+    }
+
+    @Test
+    void head__identical(@TempDir Path dir) throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        Path file = Files.writeString(dir.resolve("lines.txt"), text);
+        identical("head", file.toString());
+        identical("head", "-n", "3", file.toString());
+        identical("head", "-n3", file.toString());
+        identical("head", "-5", file.toString());
+        identical("head", "-c", "7", file.toString());
+        identical("head", "-n", "0", file.toString());
+        identical("head", dir.resolve("missing").toString());
+        identical("head", dir.toString());
+    }
+
+    @Test
+    void head__fallback() {
+        fallback("head", "-n", "-2", "file");
+        fallback("head", "a", "b");
+        fallback("head", "-c", "1K", "file");
+    }
+
+    @Test
+    void true_false__identical() {
+        identical("true");
+        identical("true", "ignored");
+        identical("false");
+    }
+
+    @Test
+    void pwd__identical(@TempDir Path dir) {
+        identical("pwd");
+        identical(Cmd.from(new ProcessBuilder("pwd").directory(dir.toFile())));
+        fallback("pwd", "-L");
+    }
+
+    @Test
+    void chain__identical(@TempDir Path dir) throws Exception {
+        Path file = Files.writeString(dir.resolve("a.txt"), "a-b-c\nd-e-f\ng-h-i\n");
+        identical(() -> Chain.from("pwd").pipeTo("tr", "-d", "/"));
+        identical(() -> Chain.from("cat", file.toString()).pipeTo("tr", "-d", "a-e\\n").pipeTo("head", "-c", "4"));
+        identical(() -> Chain.from("cat", file.toString()).pipeTo("head", "-n", "2").pipeTo("cat", "-"));
+        identical(() -> Chain.from("false").pipeTo("echo", "after"));
+        identical(() -> Chain.from("cat", dir.resolve("missing").toString()).pipeTo("tr", "-d", "x"));
+    }
+
+    @Test
+    void chain__fallback() {
+        Chain chain = Chain.from("echo", "abc").pipeTo("sort");
+        assertTrue(Builtins.standard().invoke(chain).isEmpty());
+        assertEquals("abc", chain.builtins(Builtins.standard()).invoke().unwrap().stdout().encode().orElseThrow());
+        assertTrue(Builtins.standard().invoke(Chain.from("echo", "abc").pipeTo("tr", "-d", "[:alpha:]")).isEmpty());
+    }
+
+    @Test
+    void invoke__emulated() {
+        Output output = Cmd.from("echo", "hi").builtins(Builtins.standard()).invoke().unwrap();
+        assertEquals(JVM, output.pid());
+        assertEquals("hi", output.stdout().encode().orElseThrow());
+
+        Output merged = Cmd.from("cat", "/definitely/missing").mergeStderr().builtins(Builtins.standard())
+                .invoke()
+                .err()
+                .output()
+                .orElseThrow();
+        assertEquals(JVM, merged.pid());
+        assertTrue(merged.merged());
+        assertEquals("cat: /definitely/missing: No such file or directory", merged.stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void invoke__not_emulated() {
+        assertNotEquals(JVM, Cmd.from("echo", "hi").invoke().unwrap().pid());
+        assertNotEquals(JVM, Cmd.from("echo", "hi").builtins(Builtins.standard().without("echo")).invoke().unwrap().pid());
+        assertNotEquals(JVM, Cmd.from("echo", "hi").account().builtins(Builtins.standard()).invoke().unwrap().pid());
+        assertFalse(Builtins.standard().without("echo").names().contains("echo"));
+        assertTrue(Builtins.standard().names().contains("echo"));
+    }
+
+    private static void identical(String exec, String... arguments) {
+        identical(() -> Cmd.from(exec, arguments));
+    }
+
+    private static void identical(Cmd cmd) {
+        identical(() -> cmd);
+    }
+
+    private static void identical(java.util.function.Supplier<Shell> shell) {
+        Shell real = shell.get();
+        Optional<Result<Output, CmdException>> emulated = real instanceof Cmd cmd
+                ? Builtins.standard().invoke(cmd)
+                : Builtins.standard().invoke((Chain) real);
+        assertTrue(emulated.isPresent(), "not emulated: " + real);
+
+        Result<Output, CmdException> expected = shell.get().invoke();
+        Result<Output, CmdException> actual = emulated.get();
+        assertEquals(expected.isOk(), actual.isOk());
+        Output left = expected.isOk() ? expected.value() : expected.err().output().orElseThrow();
+        Output right = actual.isOk() ? actual.value() : actual.err().output().orElseThrow();
+        assertEquals(left.command(), right.command());
+        assertEquals(left.exitcode(), right.exitcode());
+        assertEquals(left.stdout().encode(), right.stdout().encode());
+        assertEquals(left.stderr().encode(), right.stderr().encode());
+        if (!expected.isOk()) {
+            assertEquals(expected.err().getMessage(), actual.err().getMessage());
+        }
+    }
+
+    private static void fallback(String exec, String... arguments) {
+        assertTrue(Builtins.standard().invoke(Cmd.from(exec, arguments)).isEmpty());
+    }
+}
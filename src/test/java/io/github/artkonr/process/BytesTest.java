@@ -0,0 +1,106 @@
+package io.github.artkonr.process;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BytesTest {
+
+    @Test
+    void indexOf__byte__every_position() {
+        for (int length = 0; length < 40; length++) {
+            for (int at = 0; at < length; at++) {
+                byte[] data = new byte[length];
+                data[at] = 7;
+                assertEquals(at, Bytes.indexOf(data, 0, length, (byte) 7));
+                assertEquals(-1, Bytes.indexOf(data, at + 1, length, (byte) 7));
+            }
+        }
+    }
+
+    @Test
+    void indexOf__byte__borrow_does_not_precede_match() {
+        // 0x01 right above the match is a false positive of the word test
+        byte[] data = { 9, 9, 0, 1, 9, 9, 9, 9, 9 };
+        assertEquals(2, Bytes.indexOf(data, 0, data.length, (byte) 0));
+        byte[] high = { (byte) 0x80, (byte) 0xFF, 1, 0x7F, 3, 3, 3, 3 };
+        assertEquals(1, Bytes.indexOf(high, 0, high.length, (byte) 0xFF));
+    }
+
+    @Test
+    void indexOf__pattern() {
+        byte[] data = "aaaab aab".getBytes(StandardCharsets.UTF_8);
+        assertEquals(2, Bytes.indexOf(data, "aab".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(4, Bytes.indexOf(data, "b".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(5, Bytes.indexOf(data, " a".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(-1, Bytes.indexOf(data, "bb".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(-1, Bytes.indexOf(data, "aaaab aab!".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0, Bytes.indexOf(new byte[0], new byte[0]));
+    }
+
+    @Test
+    void matches_scalar__random() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            byte[] data = new byte[random.nextInt(100)];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) random.nextInt(4);
+            }
+            byte target = (byte) random.nextInt(4);
+            assertEquals(scalarIndexOf(data, target), Bytes.indexOf(data, 0, data.length, target));
+            assertEquals(scalarCount(data, target), Bytes.count(data, target));
+
+            byte[] pattern = new byte[1 + random.nextInt(3)];
+            for (int i = 0; i < pattern.length; i++) {
+                pattern[i] = (byte) random.nextInt(4);
+            }
+            assertEquals(scalarIndexOf(data, pattern), Bytes.indexOf(data, pattern));
+        }
+    }
+
+    @Test
+    void count__all_bytes() {
+        byte[] data = new byte[256 * 3 + 5];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        for (int b = 0; b < 256; b++) {
+            assertEquals(b < 5 ? 4 : 3, Bytes.count(data, (byte) b));
+        }
+    }
+
+    private static int scalarIndexOf(byte[] data, byte target) {
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long scalarCount(byte[] data, byte target) {
+        long count = 0;
+        for (byte b : data) {
+            if (b == target) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int scalarIndexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i + pattern.length <= data.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
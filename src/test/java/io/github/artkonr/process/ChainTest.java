@@ -145,6 +145,79 @@ class ChainTest {
         assertTrue(result.value().stdout().encode().get().indexOf('/') > -1);
     }
 
+    @Test
+    void invoke__pipeline_merged_last_stage() {
+        Chain pipeline = Chain.from("printf", "a/b")
+                .pipeTo(Cmd.from("sh", "-c", "tr -d /; echo err >&2").mergeStderr());
+        Result<Output, CmdException> result = pipeline.invoke();
+        assertTrue(result.isOk());
+        assertTrue(result.value().merged());
+        assertEquals("aberr", result.value().stdout().encode().orElseThrow());
+        assertTrue(result.value().stderr().isEmpty());
+    }
+
+    @Test
+    void invoke__pipeline_stackless() {
+        Result<Output, CmdException> result = Chain.from("curl")
+                .pipeTo("tr", "-d", "/")
+                .stackless()
+                .invoke();
+        assertTrue(result.isErr());
+        assertEquals(0, result.err().getStackTrace().length);
+        assertEquals("curl", result.err().output().orElseThrow().command());
+    }
+
+    @Test
+    void invoke__pipeline_account() {
+        Result<Output, CmdException> result = Chain.from("echo", "a")
+                .pipeTo("cat")
+                .account()
+                .invoke();
+        assertTrue(result.isOk());
+        Chain.Output output = (Chain.Output) result.value();
+        assertEquals(2, output.stages().size());
+        assertTrue(output.stages().stream().allMatch(stage -> stage.usage().isPresent()));
+        Usage combined = output.stages().stream()
+                .map(stage -> stage.usage().orElseThrow())
+                .reduce(Usage::combine)
+                .orElseThrow();
+        assertEquals(combined, output.usage().orElseThrow());
+    }
+
+    @Test
+    void status__ok() {
+        Result<Integer, CmdException> result = Chain.from("pwd")
+                .pipeTo("tr", "-d", "/")
+                .status();
+        assertTrue(result.isOk());
+        assertEquals(0, result.value());
+    }
+
+    @Test
+    void status__after_pipe_to() {
+        Chain chain = Chain.from("echo", "a").pipeTo("cat");
+        assertEquals(0, chain.status().unwrap());
+        chain.pipeTo("sh", "-c", "cat; exit 4");
+        assertEquals(4, chain.status().unwrap());
+    }
+
+    @Test
+    void status__first_non_zero() {
+        Result<Integer, CmdException> result = Chain.from("sh", "-c", "exit 2")
+                .pipeTo("sh", "-c", "cat; exit 3")
+                .status();
+        assertTrue(result.isOk());
+        assertEquals(2, result.value());
+    }
+
+    @Test
+    void status__spawn_err() {
+        Result<Integer, CmdException> result = Chain.from("pwd")
+                .pipeTo("definitely-not-a-program")
+                .status();
+        assertTrue(result.isErr());
+    }
+
     @Test
     void output__attributes() {
         Output out = newOutput(
@@ -161,6 +234,17 @@ class ChainTest {
         assertTrue(out.error().isEmpty());
     }
 
+    @Test
+    void output__stages() {
+        Output out = newOutput(
+                new ProcessCompletion("curl", true),
+                new ProcessCompletion("tr -d '-'", true)
+        );
+        List<Output> stages = ((Chain.Output) out).stages();
+        assertEquals(List.of("curl", "tr -d '-'"), stages.stream().map(Output::command).toList());
+        assertTrue(out.usage().isEmpty());
+    }
+
     @Test
     void output__exitedNormally__yes() {
         Output out = newOutput(
@@ -213,6 +297,46 @@ class ChainTest {
         assertEquals("tr -d '-'", err.get().command());
     }
 
+    @Test
+    void invoke__fail_fast() {
+        long startedAt = System.nanoTime();
+        Result<Output, CmdException> result = Chain.from("sleep", "30")
+                .pipeTo("sh", "-c", "echo boom >&2; exit 3")
+                .pipeTo("cat")
+                .failFast()
+                .invoke();
+        assertTrue(System.nanoTime() - startedAt < 10_000_000_000L);
+        assertTrue(result.isErr());
+        Output failed = result.err().output().orElseThrow();
+        assertEquals(3, failed.exitcode());
+        assertEquals("sh -c echo boom >&2; exit 3", failed.command());
+        assertEquals("boom", failed.stderr().encode().orElseThrow());
+    }
+
+    @Test
+    void invoke__fail_fast_reactor() {
+        long startedAt = System.nanoTime();
+        Result<Output, CmdException> result = Chain.from("sh", "-c", "echo early >&2; exit 5")
+                .pipeTo("sleep", "30")
+                .failFast()
+                .invoke(Reactor.shared());
+        assertTrue(System.nanoTime() - startedAt < 10_000_000_000L);
+        Output failed = result.err().output().orElseThrow();
+        assertEquals(5, failed.exitcode());
+        assertEquals("early", failed.stderr().encode().orElseThrow());
+    }
+
+    @Test
+    void invoke__fail_fast_ok() {
+        Output output = Chain.from("printf", "b\\na\\n")
+                .pipeTo("sort")
+                .failFast()
+                .invoke()
+                .unwrap();
+        assertEquals("a\nb", output.stdout().encode().orElseThrow());
+        assertEquals(2, ((Chain.Output) output).stages().size());
+    }
+
     private Output newOutput(ProcessCompletion... processes) {
         List<Output> converted = Arrays.stream(processes)
                 .map(item -> {
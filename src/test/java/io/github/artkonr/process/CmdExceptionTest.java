@@ -2,6 +2,11 @@ package io.github.artkonr.process;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class CmdExceptionTest {
@@ -18,6 +23,76 @@ class CmdExceptionTest {
         assertEquals(expected, cx.getMessage());
     }
 
+    @Test
+    void errorExitCode__lazy() {
+        String expected =
+           """
+           command failed with unexpected exitcode: \
+           cmd='grep' expected=0 actual=1 message='some failure'\
+           """;
+
+        Output output = Cmd.Output.from(1, "grep", 1, null, "some failure".getBytes());
+        CmdException cx = CmdException.errorExitCode(0, output);
+        assertEquals(expected, cx.getMessage());
+        assertSame(cx.getMessage(), cx.getMessage());
+        assertSame(output, cx.output().orElseThrow());
+        assertTrue(cx.getStackTrace().length > 0);
+    }
+
+    @Test
+    void errorExitCode__lazy__no_output() {
+        Output output = Cmd.Output.from(1, "grep", 1, null, null);
+        CmdException cx = CmdException.errorExitCode(0, output);
+        assertTrue(cx.getMessage().endsWith("message='n/a'"));
+    }
+
+    @Test
+    void errorExitCode__lazy__merged_quotes_stdout() {
+        Output output = Cmd.Output.from(1, "grep", 1, "merged".getBytes(), null, true);
+        CmdException cx = CmdException.errorExitCode(0, output);
+        assertTrue(cx.getMessage().endsWith("message='merged'"));
+    }
+
+    @Test
+    void errorExitCode__lazy__truncated() {
+        byte[] stderr = "x".repeat(CmdException.EXCERPT * 4).getBytes();
+        Output output = Cmd.Output.from(1, "grep", 1, null, stderr);
+        CmdException cx = CmdException.errorExitCode(0, output);
+        String expected = "message='" + "x".repeat(CmdException.EXCERPT) + "...'";
+        assertTrue(cx.getMessage().endsWith(expected));
+    }
+
+    @Test
+    void errorExitCode__stackless() {
+        Output output = Cmd.Output.from(1, "grep", 1, null, null);
+        CmdException cx = CmdException.errorExitCode(0, output, true);
+        assertEquals(0, cx.getStackTrace().length);
+        assertTrue(cx.getMessage().contains("actual=1"));
+    }
+
+    @Test
+    void errorExitCode__lazy__serializable() throws Exception {
+        Output output = Cmd.Output.from(1, "grep", 1, null, "some failure".getBytes());
+        CmdException cx = CmdException.errorExitCode(0, output);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(cx);
+        }
+        CmdException read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+            read = (CmdException) in.readObject();
+        }
+
+        assertTrue(read.output().isEmpty());
+        assertEquals(cx.getMessage(), read.getMessage());
+    }
+
+    @Test
+    void output__absent() {
+        assertTrue(new CmdException("generic").output().isEmpty());
+    }
+
     @Test
     void wrap_same_type() {
         Exception source = new CmdException("generic");
@@ -175,6 +175,179 @@ class CmdTest {
         assertTrue(result.isErr());
     }
 
+    @Test
+    void handle__merged__stderr_not_read() {
+        Process process = TestProcess.builder()
+                .stdout("abc")
+                .stderr("def")
+                .build();
+        Result<Process, Exception> invoke = new Ok<>(process);
+        Result<Output, CmdException> result = Cmd.handle(invoke, new Cmd.Spec("pwd", true, false, true, false, null));
+        assertTrue(result.isOk());
+        assertTrue(result.value().merged());
+        assertEquals("abc", result.value().stdout().encode().orElseThrow());
+        assertTrue(result.value().stderr().isEmpty());
+    }
+
+    @Test
+    void handle__merged__err_message_from_stdout() {
+        Process process = TestProcess.builder()
+                .exitcode(2)
+                .stdout("fail")
+                .build();
+        Result<Process, Exception> invoke = new Ok<>(process);
+        Result<Output, CmdException> result = Cmd.handle(invoke, new Cmd.Spec("pwd", true, false, true, false, null));
+        assertTrue(result.isErr());
+        assertTrue(result.err().getMessage().contains("message='fail'"));
+    }
+
+    @Test
+    void mergeStderr__sets_redirect() {
+        Cmd sh = Cmd.from("pwd").mergeStderr();
+        assertTrue(sh.handle.redirectErrorStream());
+    }
+
+    @Test
+    void invoke__merged__interleaved_in_write_order() {
+        Cmd sh = Cmd.from("sh", "-c", "echo 1; echo 2 >&2; echo 3").mergeStderr();
+        Result<Output, CmdException> result = sh.invoke();
+        assertTrue(result.isOk());
+        assertTrue(result.value().merged());
+        assertEquals("1\n2\n3", result.value().stdout().encode().orElseThrow());
+        assertTrue(result.value().stderr().isEmpty());
+    }
+
+    @Test
+    void invoke__merged__reactor() {
+        try (Reactor reactor = Reactor.create(1)) {
+            Cmd sh = Cmd.from("sh", "-c", "echo 1; echo 2 >&2; exit 5").mergeStderr();
+            Result<Output, CmdException> result = sh.invoke(reactor);
+            assertTrue(result.isErr());
+            assertTrue(result.err().getMessage().contains("message='1\n2'"));
+        }
+    }
+
+    @Test
+    void handle__stream_not_captured__not_read() {
+        Process process = TestProcess.builder()
+                .stdout("abc")
+                .stderr("def")
+                .failure(TestProcess.Failure.STREAM_READ_ERR)
+                .build();
+        Result<Process, Exception> invoke = new Ok<>(process);
+        Result<Output, CmdException> result = Cmd.handle(invoke, new Cmd.Spec("pwd", false, false, false, false, null));
+        assertTrue(result.isOk());
+        assertTrue(result.value().isEmpty());
+    }
+
+    @Test
+    void stdout__discard() {
+        Cmd sh = Cmd.from("sh", "-c", "echo out; echo err >&2").stdout(Capture.DISCARD);
+        assertEquals(ProcessBuilder.Redirect.DISCARD, sh.handle.redirectOutput());
+
+        Result<Output, CmdException> result = sh.invoke();
+        assertTrue(result.isOk());
+        assertTrue(result.value().stdout().isEmpty());
+        assertEquals("err", result.value().stderr().encode().orElseThrow());
+    }
+
+    @Test
+    void stderr__discard__reactor() {
+        try (Reactor reactor = Reactor.create(1)) {
+            Cmd sh = Cmd.from("sh", "-c", "echo out; echo err >&2").stderr(Capture.DISCARD);
+            Result<Output, CmdException> result = sh.invoke(reactor);
+            assertTrue(result.isOk());
+            assertEquals("out", result.value().stdout().encode().orElseThrow());
+            assertTrue(result.value().stderr().isEmpty());
+        }
+    }
+
+    @Test
+    void stderr__inherit() {
+        Cmd sh = Cmd.from("pwd").stderr(Capture.INHERIT);
+        assertEquals(ProcessBuilder.Redirect.INHERIT, sh.handle.redirectError());
+    }
+
+    @Test
+    void capture__null_arg() {
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("pwd").stdout(null));
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("pwd").stderr(null));
+    }
+
+    @Test
+    void status__ok() {
+        Cmd sh = Cmd.from("sh", "-c", "echo out; echo err >&2");
+        Result<Integer, CmdException> result = sh.status();
+        assertTrue(result.isOk());
+        assertEquals(0, result.value());
+        assertEquals(ProcessBuilder.Redirect.PIPE, sh.handle.redirectOutput());
+    }
+
+    @Test
+    void status__non_zero_is_not_err() {
+        Result<Integer, CmdException> result = Cmd.from("sh", "-c", "exit 3").status();
+        assertTrue(result.isOk());
+        assertEquals(3, result.value());
+    }
+
+    @Test
+    void status__custom_environment() {
+        ProcessBuilder pb = new ProcessBuilder("sh", "-c", "exit $PROCESS_TEST");
+        pb.environment().put("PROCESS_TEST", "4");
+        Cmd cmd = Cmd.from(pb);
+        assertEquals(4, cmd.status().unwrap());
+        assertEquals(4, cmd.status().unwrap());
+    }
+
+    @Test
+    void status__spawn_err() {
+        Result<Integer, CmdException> result = Cmd.from("definitely-not-a-program").status();
+        assertTrue(result.isErr());
+        assertInstanceOf(IOException.class, result.err().getCause());
+    }
+
+    @Test
+    void invoke__err__references_output() {
+        Result<Output, CmdException> result = Cmd.from("sh", "-c", "echo out; exit 1").invoke();
+        assertTrue(result.isErr());
+        Output output = result.err().output().orElseThrow();
+        assertEquals(1, output.exitcode());
+        assertEquals("out", output.stdout().encode().orElseThrow());
+        assertTrue(result.err().getStackTrace().length > 0);
+    }
+
+    @Test
+    void invoke__err__stackless() {
+        Result<Output, CmdException> result = Cmd.from("sh", "-c", "exit 1").stackless().invoke();
+        assertTrue(result.isErr());
+        assertEquals(0, result.err().getStackTrace().length);
+    }
+
+    @Test
+    void invoke__account() {
+        Result<Output, CmdException> result = Cmd.from("sh", "-c", "sleep 0.1").account().invoke();
+        assertTrue(result.isOk());
+        Usage usage = result.value().usage().orElseThrow();
+        assertTrue(usage.wall().toMillis() >= 100);
+        assertTrue(result.value().devnull().usage().isPresent());
+    }
+
+    @Test
+    void invoke__account__reactor() {
+        try (Reactor reactor = Reactor.create(1)) {
+            Result<Output, CmdException> result = Cmd.from("pwd").account().invoke(reactor);
+            assertTrue(result.isOk());
+            assertTrue(result.value().usage().isPresent());
+        }
+    }
+
+    @Test
+    void invoke__no_account() {
+        Result<Output, CmdException> result = Cmd.from("pwd").invoke();
+        assertTrue(result.isOk());
+        assertTrue(result.value().usage().isEmpty());
+    }
+
     @Test
     void output__attributes() {
         Output out = newOutput(true);
@@ -185,6 +358,7 @@ class CmdTest {
         assertEquals("a", out.stdout().encode().orElseThrow());
         assertEquals("b", out.stderr().encode().orElseThrow());
         assertFalse(out.isEmpty());
+        assertFalse(out.merged());
         assertTrue(out.error().isEmpty());
     }
 
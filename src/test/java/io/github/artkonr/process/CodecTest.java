@@ -0,0 +1,205 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodecTest {
+
+    private static final Output SINGLE = Cmd.Output.from(
+            42,
+            "sh -c echo hi",
+            3,
+            "hi".getBytes(StandardCharsets.UTF_8),
+            "oops".getBytes(StandardCharsets.UTF_8),
+            false,
+            new Usage(Duration.ofMillis(12), Duration.ofMillis(5), Duration.ofMillis(1), 4096),
+            Placement.any().cpus(0, 2).policy(Placement.Policy.FIFO, 10)
+    );
+
+    @Test
+    void roundtrip__single() {
+        Output decoded = Codec.decode(Codec.plain().encode(SINGLE)).unwrap();
+        assertSame(decoded.getClass(), Cmd.Output.class);
+        assertSameOutput(SINGLE, decoded);
+    }
+
+    @Test
+    void roundtrip__empty_streams() {
+        Output empty = Cmd.Output.from(1, "true", 0, null, null, true);
+        Output decoded = Codec.decode(Codec.deflate().encode(empty)).unwrap();
+        assertSameOutput(empty, decoded);
+        assertTrue(decoded.isEmpty());
+        assertTrue(decoded.merged());
+        assertTrue(decoded.usage().isEmpty());
+        assertTrue(decoded.placement().isEmpty());
+    }
+
+    @Test
+    void roundtrip__pipeline() {
+        Output pipeline = Chain.Output.from(
+                Cmd.Output.from(2, "wc -l", 0, "3".getBytes(StandardCharsets.UTF_8), null),
+                List.of(Cmd.Output.from(1, "grep x", 1, null, "err".getBytes(StandardCharsets.UTF_8)))
+        );
+        Output decoded = Codec.decode(Codec.deflate(9).encode(pipeline)).unwrap();
+        assertInstanceOf(Chain.Output.class, decoded);
+        assertEquals("grep x | wc -l", decoded.command());
+        List<Output> stages = ((Chain.Output) decoded).stages();
+        assertEquals(2, stages.size());
+        assertSameOutput(((Chain.Output) pipeline).stages().get(0), stages.get(0));
+        assertSameOutput(((Chain.Output) pipeline).stages().get(1), stages.get(1));
+        assertFalse(decoded.exitedNormally());
+    }
+
+    @Test
+    void deflate__compresses_payloads() {
+        byte[] large = "line of a log\n".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+        Output output = Cmd.Output.from(1, "cat log", 0, large, null);
+
+        byte[] plain = Codec.plain().encode(output);
+        byte[] deflated = Codec.deflate().encode(output);
+        assertTrue(plain.length > large.length);
+        assertTrue(deflated.length < large.length / 10);
+        assertArrayEquals(large, Codec.decode(deflated).unwrap().stdout().get().orElseThrow());
+    }
+
+    @Test
+    void deflate__incompressible_stored_raw() {
+        byte[] noise = new byte[4096];
+        new Random(7).nextBytes(noise);
+        Output output = Cmd.Output.from(1, "head -c 4096 /dev/urandom", 0, noise, null);
+        assertEquals(Codec.plain().encode(output).length, Codec.deflate().encode(output).length);
+        assertArrayEquals(noise, Codec.decode(Codec.deflate().encode(output)).unwrap().stdout().get().orElseThrow());
+    }
+
+    @Test
+    void channel__several_outputs(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("outputs.bin");
+        Output concatenated = Cmd.Output.from(7, "echo", 0, null, null);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertTrue(Codec.deflate().write(SINGLE, channel).isSuccess());
+            assertTrue(Codec.plain().write(concatenated, channel).isSuccess());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertSameOutput(SINGLE, Codec.read(channel).unwrap());
+            assertSameOutput(concatenated, Codec.read(channel).unwrap());
+            Result<Output, IOException> none = Codec.read(channel);
+            assertTrue(none.isErr());
+            assertEquals("channel has ended before the output", none.err().getMessage());
+        }
+    }
+
+    @Test
+    void write__concatenated_data() {
+        Data stdout = Data.concat(
+                new Data("abc".getBytes(StandardCharsets.UTF_8)),
+                new Data("def".getBytes(StandardCharsets.UTF_8))
+        );
+        Output output = new Output() {
+            @Override
+            public Output devnull() {
+                return this;
+            }
+
+            @Override
+            public long pid() {
+                return 1;
+            }
+
+            @Override
+            public String command() {
+                return "echo abc def";
+            }
+
+            @Override
+            public int exitcode() {
+                return 0;
+            }
+
+            @Override
+            public Data stdout() {
+                return stdout;
+            }
+
+            @Override
+            public Data stderr() {
+                return new Data(null);
+            }
+        };
+        Output decoded = Codec.decode(Codec.plain().encode(output)).unwrap();
+        assertEquals("abcdef", decoded.stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void decode__malformed() {
+        byte[] encoded = Codec.plain().encode(SINGLE);
+
+        byte[] magic = encoded.clone();
+        magic[0] = 0;
+        assertEquals("not an encoded output", Codec.decode(magic).err().getMessage());
+
+        byte[] version = encoded.clone();
+        version[4] = 99;
+        assertEquals("unsupported format version: 99", Codec.decode(version).err().getMessage());
+
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 1);
+        assertTrue(Codec.decode(truncated).isErr());
+    }
+
+    @Test
+    void decode__corrupt_size() {
+        byte[] raw = Codec.plain().encode(SINGLE);
+        int at = indexOf(raw, new byte[]{ 0, 0, 0, 2, 0, 'h', 'i' });
+        raw[at] = 0x7F;
+        assertTrue(Codec.decode(raw).isErr());
+
+        Output large = Cmd.Output.from(1, "yes", 0, "y".repeat(1000).getBytes(StandardCharsets.UTF_8), null);
+        byte[] deflated = Codec.deflate().encode(large);
+        at = indexOf(deflated, new byte[]{ 0, 0, 3, (byte) 0xE8, 1 });
+        deflated[at] = 0x7F;
+        assertEquals("malformed compressed data", Codec.decode(deflated).err().getMessage());
+    }
+
+    @Test
+    void encode__policy_code() {
+        byte[] encoded = Codec.plain().encode(SINGLE);
+        // two CPUs, 0 and 2, followed by FIFO and its priority
+        assertTrue(indexOf(encoded, new byte[]{ 0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 2, 3, 10 }) > 0);
+    }
+
+    @Test
+    void deflate__invalid_level() {
+        assertThrows(IllegalArgumentException.class, () -> Codec.deflate(0));
+        assertThrows(IllegalArgumentException.class, () -> Codec.deflate(10));
+        assertThrows(IllegalArgumentException.class, () -> Codec.plain().encode(null));
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        int at = Bytes.indexOf(data, pattern);
+        assertTrue(at >= 0, "pattern not found");
+        return at;
+    }
+
+    private static void assertSameOutput(Output expected, Output actual) {
+        assertEquals(expected.pid(), actual.pid());
+        assertEquals(expected.command(), actual.command());
+        assertEquals(expected.exitcode(), actual.exitcode());
+        assertEquals(expected.merged(), actual.merged());
+        assertEquals(expected.stdout(), actual.stdout());
+        assertEquals(expected.stderr(), actual.stderr());
+        assertEquals(expected.usage(), actual.usage());
+        assertEquals(expected.placement(), actual.placement());
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.artkonr.process;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
@@ -8,7 +9,11 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -139,4 +144,173 @@ class DataTest {
         assertTrue(result.isFailure());
     }
 
-}
\ No newline at end of file
+    @Test
+    void indexOf() {
+        Data text = new Data("one ERROR two ERROR".getBytes(StandardCharsets.UTF_8));
+        assertEquals(4, text.indexOf("ERROR"));
+        assertEquals(3, text.indexOf((byte) ' '));
+        assertEquals(0, text.indexOf(""));
+        assertEquals(-1, text.indexOf("WARN"));
+        assertEquals(-1, empty.indexOf((byte) 'a'));
+        assertEquals(-1, empty.indexOf("a"));
+        assertThrows(IllegalArgumentException.class, () -> data.indexOf((String) null));
+    }
+
+    @Test
+    void contains() {
+        assertTrue(data.contains("bc"));
+        assertTrue(data.contains(new byte[]{ 97 }));
+        assertFalse(data.contains("abcd"));
+        assertFalse(empty.contains("a"));
+    }
+
+    @Test
+    void count() {
+        Data text = new Data("a\nb\n\nc".getBytes(StandardCharsets.UTF_8));
+        assertEquals(3, text.count((byte) '\n'));
+        assertEquals(0, text.count((byte) 'z'));
+        assertEquals(0, empty.count((byte) 'a'));
+    }
+
+    @Test
+    void lines() {
+        assertEquals(1, data.lines());
+        assertEquals(3, new Data("a\nb\nc".getBytes(StandardCharsets.UTF_8)).lines());
+        assertEquals(2, new Data("a\nb\n".getBytes(StandardCharsets.UTF_8)).lines());
+        assertEquals(0, empty.lines());
+    }
+
+    @Test
+    void mismatch() {
+        assertEquals(-1, data.mismatch(new byte[]{ 97, 98, 99 }));
+        assertEquals(1, data.mismatch(new byte[]{ 97, 0, 99 }));
+        assertEquals(2, data.mismatch(new byte[]{ 97, 98 }));
+        assertEquals(0, empty.mismatch(data));
+        assertEquals(-1, empty.mismatch(new Data(new byte[0])));
+    }
+
+    @Test
+    void equals_and_hashCode() {
+        Data same = new Data(new byte[]{ 97, 98, 99 });
+        assertEquals(data, same);
+        assertEquals(data.hashCode(), same.hashCode());
+        assertNotEquals(data, empty);
+        assertEquals(empty, new Data(new byte[0]));
+        assertNotEquals(data, "abc");
+    }
+
+    @Test
+    void concat() {
+        Data joined = Data.concat(data, empty, new Data("\ndef".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(7, joined.size());
+        assertEquals("abc\ndef", joined.encode().orElseThrow());
+        assertEquals(new Data("abc\ndef".getBytes(StandardCharsets.UTF_8)), joined);
+        assertSame(joined.get().orElseThrow(), joined.get().orElseThrow());
+    }
+
+    @Test
+    void concat__shares_parts() {
+        byte[] part = { 97, 98, 99 };
+        assertSame(part, Data.concat(empty, new Data(part)).get().orElseThrow());
+        assertTrue(Data.concat(empty, empty).isEmpty());
+        assertTrue(Data.concat(List.of()).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> Data.concat(data, null));
+    }
+
+    @Test
+    void concat__nested() {
+        Data inner = Data.concat(data, data);
+        Data outer = Data.concat(inner, data, inner);
+        assertEquals("abcabcabcabcabc", outer.encode().orElseThrow());
+        assertEquals("abcabc", inner.encode().orElseThrow());
+    }
+
+    @Test
+    void concat__search_across_parts() {
+        Data joined = Data.concat(
+                new Data("one ER".getBytes(StandardCharsets.UTF_8)),
+                new Data("ROR\ntwo".getBytes(StandardCharsets.UTF_8)),
+                new Data("\n".getBytes(StandardCharsets.UTF_8))
+        );
+        assertEquals(4, joined.indexOf("ERROR"));
+        assertEquals(9, joined.indexOf((byte) '\n'));
+        assertEquals(2, joined.count((byte) '\n'));
+        assertEquals(2, joined.lines());
+        assertEquals(-1, joined.mismatch("one ERROR\ntwo\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void concat__spanning_several_parts() {
+        Data joined = Data.concat(
+                new Data("xxAB".getBytes(StandardCharsets.UTF_8)),
+                new Data("C".getBytes(StandardCharsets.UTF_8)),
+                new Data("D".getBytes(StandardCharsets.UTF_8)),
+                new Data("EFyy".getBytes(StandardCharsets.UTF_8))
+        );
+        assertEquals(2, joined.indexOf("ABCDEF"));
+        assertEquals(3, joined.indexOf("BCD"));
+        assertEquals(-1, joined.indexOf("ABCDEG"));
+        assertEquals(-1, joined.indexOf("xxABCDEFyyz"));
+        assertEquals(6, joined.mismatch("xxABCDxx".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(10, joined.mismatch("xxABCDEFyyz".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(4, joined.mismatch("xxAB".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void concat__agrees_with_joined() {
+        Random random = new Random(42);
+        for (int run = 0; run < 500; run++) {
+            byte[] bytes = new byte[random.nextInt(64)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) ('a' + random.nextInt(3));
+            }
+            Data joined = split(bytes, random);
+            Data flat = new Data(bytes.clone());
+            assertEquals(flat, joined);
+            assertEquals(joined, split(bytes, random));
+            assertEquals(Arrays.hashCode(bytes), joined.hashCode());
+
+            byte[] pattern = new byte[1 + random.nextInt(5)];
+            for (int i = 0; i < pattern.length; i++) {
+                pattern[i] = (byte) ('a' + random.nextInt(3));
+            }
+            assertEquals(Bytes.indexOf(bytes, pattern), joined.indexOf(pattern));
+
+            byte[] other = Arrays.copyOf(bytes, random.nextInt(bytes.length + 2));
+            if (other.length > 0 && random.nextBoolean()) {
+                other[random.nextInt(other.length)] = 'z';
+            }
+            assertEquals(Arrays.mismatch(bytes, other), joined.mismatch(other));
+            assertEquals(Arrays.mismatch(bytes, other), joined.mismatch(split(other, random)));
+        }
+    }
+
+    private static Data split(byte[] bytes, Random random) {
+        List<Data> parts = new ArrayList<>();
+        int from = 0;
+        while (from < bytes.length) {
+            int to = Math.min(bytes.length, from + 1 + random.nextInt(6));
+            parts.add(new Data(Arrays.copyOfRange(bytes, from, to)));
+            from = to;
+        }
+        return Data.concat(parts);
+    }
+
+    @Test
+    void dumpTo_concat(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("report");
+        Files.writeString(file, "previous text, longer than the data");
+        Data joined = Data.concat(data, new Data("def".getBytes(StandardCharsets.UTF_8)), data);
+
+        assertTrue(joined.dumpTo(file).isSuccess());
+        assertEquals("abcdefabc", Files.readString(file));
+    }
+
+    @Test
+    void dumpTo_empty(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("empty");
+        assertTrue(empty.dumpTo(file).isSuccess());
+        assertEquals(0, Files.size(file));
+    }
+
+}
@@ -0,0 +1,203 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedTest {
+
+    @Test
+    void publish__cmd__ok() throws Exception {
+        Feed feed = Cmd.from("printf", "abc").publish().unwrap();
+        Collector stdout = new Collector(1);
+        Collector stderr = new Collector(1);
+        feed.stdout().subscribe(stdout);
+        feed.stderr().subscribe(stderr);
+
+        assertTrue(stdout.done.await(5, TimeUnit.SECONDS));
+        assertTrue(stderr.done.await(5, TimeUnit.SECONDS));
+        assertNull(stdout.error);
+        assertEquals("abc", stdout.buf.toString(StandardCharsets.UTF_8));
+        assertEquals(0, stderr.buf.size());
+
+        Result<Output, CmdException> exit = feed.exit().get(5, TimeUnit.SECONDS);
+        assertTrue(exit.isOk());
+        assertEquals(0, exit.value().exitcode());
+        assertEquals("printf abc", exit.value().command());
+        assertTrue(exit.value().isEmpty());
+    }
+
+    @Test
+    void publish__cmd__err_signalled_to_subscriber() throws Exception {
+        Feed feed = Cmd.from("sh", "-c", "echo oops; exit 3").publish().unwrap();
+        Collector stdout = new Collector(Long.MAX_VALUE);
+        feed.stdout().subscribe(stdout);
+        feed.stderr().subscribe(new Collector(Long.MAX_VALUE));
+
+        assertTrue(stdout.done.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(CmdException.class, stdout.error);
+        assertTrue(stdout.error.getMessage().contains("actual=3"));
+        assertEquals("oops\n", stdout.buf.toString(StandardCharsets.UTF_8));
+        assertTrue(feed.exit().get(5, TimeUnit.SECONDS).isErr());
+    }
+
+    @Test
+    void publish__cmd__demand_applies_backpressure() throws Exception {
+        Feed feed = Cmd.from("yes").publish().unwrap();
+        Collector stdout = new Collector(0);
+        feed.stdout().subscribe(stdout);
+        feed.stderr().subscribe(new Collector(Long.MAX_VALUE));
+
+        stdout.subscription.request(2);
+        Thread.sleep(200);
+        assertEquals(2, stdout.chunks.get());
+        assertFalse(feed.exit().isDone());
+
+        stdout.subscription.cancel();
+        Result<Output, CmdException> exit = feed.exit().get(5, TimeUnit.SECONDS);
+        assertTrue(exit.isErr());
+        assertEquals(2, stdout.chunks.get());
+    }
+
+    @Test
+    void publish__chain__ok() throws Exception {
+        Feed feed = Chain.from("printf", "a/b/c")
+                .pipeTo("tr", "-d", "/")
+                .publish()
+                .unwrap();
+        Collector stdout = new Collector(1);
+        feed.stdout().subscribe(stdout);
+        feed.stderr().subscribe(new Collector(1));
+
+        assertTrue(stdout.done.await(5, TimeUnit.SECONDS));
+        assertNull(stdout.error);
+        assertEquals("abc", stdout.buf.toString(StandardCharsets.UTF_8));
+
+        Result<Output, CmdException> exit = feed.exit().get(5, TimeUnit.SECONDS);
+        assertTrue(exit.isOk());
+        assertEquals("printf a/b/c | tr -d /", exit.value().command());
+    }
+
+    @Test
+    void publish__chain__intermediate_err() throws Exception {
+        Feed feed = Chain.from("curl")
+                .pipeTo("tr", "-d", "/")
+                .publish()
+                .unwrap();
+        Collector stdout = new Collector(1);
+        feed.stdout().subscribe(stdout);
+        feed.stderr().subscribe(new Collector(1));
+
+        assertTrue(stdout.done.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(CmdException.class, stdout.error);
+        assertTrue(stdout.error.getMessage().contains("cmd='curl'"));
+    }
+
+    @Test
+    void publish__spawn_err() {
+        Result<Feed, CmdException> result = Cmd.from("definitely-not-a-program").publish();
+        assertTrue(result.isErr());
+        assertNotNull(result.err().getCause());
+    }
+
+    @Test
+    void publish__null_arg() {
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("pwd").publish(null));
+        assertThrows(IllegalArgumentException.class, () -> Chain.from("pwd").publish(null));
+    }
+
+    @Test
+    void pipe__second_subscriber_rejected() throws Exception {
+        Feed.Pipe pipe = new Feed.Pipe(
+                new ByteArrayInputStream(new byte[]{ 97 }),
+                new CompletableFuture<>(),
+                Runnable::run
+        );
+        pipe.subscribe(new Collector(0));
+        Collector second = new Collector(0);
+        pipe.subscribe(second);
+
+        assertTrue(second.done.await(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, second.error);
+    }
+
+    @Test
+    void pipe__non_positive_demand() throws Exception {
+        Feed.Pipe pipe = new Feed.Pipe(
+                new ByteArrayInputStream(new byte[]{ 97 }),
+                new CompletableFuture<>(),
+                Runnable::run
+        );
+        Collector collector = new Collector(0);
+        pipe.subscribe(collector);
+        collector.subscription.request(0);
+
+        assertTrue(collector.done.await(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, collector.error);
+    }
+
+    @Test
+    void pipe__null_subscriber() {
+        Feed.Pipe pipe = new Feed.Pipe(
+                new ByteArrayInputStream(new byte[0]),
+                new CompletableFuture<>(),
+                Runnable::run
+        );
+        assertThrows(NullPointerException.class, () -> pipe.subscribe(null));
+    }
+
+    private static class Collector implements Flow.Subscriber<ByteBuffer> {
+
+        private final long step;
+        private final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        private final AtomicInteger chunks = new AtomicInteger();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (step > 0) {
+                subscription.request(step);
+            }
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            byte[] bytes = new byte[item.remaining()];
+            item.get(bytes);
+            buf.writeBytes(bytes);
+            chunks.incrementAndGet();
+            if (step > 0 && step < Long.MAX_VALUE) {
+                subscription.request(step);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        private Collector(long step) {
+            this.step = step;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.artkonr.process;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightTest {
+
+    private static final String PREFIX = "io.github.artkonr.process.";
+
+    @Test
+    void invoke__emits_when_enabled(@TempDir Path dir) throws Exception {
+        List<RecordedEvent> events = record(dir, true, () -> {
+            Cmd.from("sh", "-c", "echo hello; exit 3").invoke(Reactor.shared());
+            Cmd.from("echo", "blocking").invoke();
+        });
+
+        RecordedEvent spawn = only(events, "Spawn", "sh -c echo hello; exit 3");
+        assertTrue(spawn.getLong("pid") > 0);
+        assertEquals(1, spawn.getInt("programs"));
+
+        RecordedEvent first = only(events, "FirstOutput", "sh -c echo hello; exit 3");
+        assertEquals("stdout", first.getString("stream"));
+
+        List<RecordedEvent> drains = of(events, "Drain", "sh -c echo hello; exit 3");
+        assertEquals(2, drains.size());
+        assertEquals(6, drains.stream().filter(e -> e.getString("stream").equals("stdout")).findFirst().orElseThrow().getLong("bytes"));
+
+        assertEquals(3, only(events, "Exit", "sh -c echo hello; exit 3").getInt("exitcode"));
+        assertEquals(3, only(events, "Failure", "sh -c echo hello; exit 3").getInt("exitcode"));
+
+        assertEquals(0, only(events, "Exit", "echo blocking").getInt("exitcode"));
+        assertEquals(8, of(events, "Drain", "echo blocking").stream()
+                .filter(e -> e.getString("stream").equals("stdout"))
+                .findFirst().orElseThrow()
+                .getLong("bytes"));
+        assertTrue(of(events, "Failure", "echo blocking").isEmpty());
+    }
+
+    @Test
+    void invoke__chain(@TempDir Path dir) throws Exception {
+        List<RecordedEvent> events = record(dir, true, () -> Chain.from("echo", "a").pipeTo("cat").invoke());
+
+        RecordedEvent spawn = only(events, "Spawn", "echo a | cat");
+        assertEquals(2, spawn.getInt("programs"));
+        assertEquals(1, of(events, "Exit", "echo a").size());
+        assertEquals(1, of(events, "Exit", "cat").size());
+    }
+
+    @Test
+    void invoke__disabled_by_default(@TempDir Path dir) throws Exception {
+        List<RecordedEvent> events = record(dir, false, () -> Cmd.from("sh", "-c", "exit 1").invoke());
+        assertTrue(events.stream().noneMatch(e -> e.getEventType().getName().startsWith(PREFIX)));
+    }
+
+    private static List<RecordedEvent> record(Path dir, boolean enabled, Runnable action) throws Exception {
+        Path file = dir.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            if (enabled) {
+                for (String name : List.of("Spawn", "FirstOutput", "Drain", "Exit", "Failure")) {
+                    recording.enable(PREFIX + name).withoutThreshold();
+                }
+            }
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> of(List<RecordedEvent> events, String name, String cmd) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(PREFIX + name))
+                .filter(e -> cmd.equals(e.getString("command")))
+                .toList();
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name, String cmd) {
+        List<RecordedEvent> matching = of(events, name, cmd);
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
@@ -0,0 +1,125 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphTest {
+
+    @Test
+    void invoke__data_flow() {
+        Graph.Report report = Graph.create()
+                .add("list", Cmd.from("printf", "b\\na\\nc"))
+                .pipe("list", "sort", Cmd.from("sort"))
+                .pipe("list", "count", Chain.from("cat").pipeTo("wc", "-l"))
+                .add(
+                        "first",
+                        outputs -> Cmd.from("echo", outputs.get("sort").stdout().encode().orElseThrow().split("\n")[0]),
+                        "sort", "count"
+                )
+                .invoke(2);
+
+        assertTrue(report.succeeded());
+        assertEquals("a\nb\nc", report.node("sort").result().value().stdout().encode().orElseThrow());
+        assertEquals("2", report.node("count").result().value().stdout().encode().orElseThrow());
+        assertEquals("a", report.node("first").result().value().stdout().encode().orElseThrow());
+        assertEquals(4, report.nodes().size());
+        assertEquals("list", report.nodes().keySet().iterator().next());
+        assertTrue(report.nodes().values().stream().allMatch(node -> node.status() == Graph.Status.SUCCEEDED));
+        assertTrue(report.toResult().isOk());
+    }
+
+    @Test
+    void invoke__pipe_untrimmed() {
+        Graph.Report report = Graph.create()
+                .add("list", Cmd.from("printf", "a\\nb\\n\\n"))
+                .pipe("list", "count", Cmd.from("wc", "-l"))
+                .pipe("list", "copy", Cmd.from("cat"))
+                .pipe("copy", "checksum", Cmd.from("cksum"))
+                .invoke(2);
+
+        assertTrue(report.succeeded());
+        String expected = Chain.from("printf", "a\\nb\\n\\n").pipeTo("cksum").invoke().unwrap().stdout().encode().orElseThrow();
+        assertEquals("a\nb", report.node("list").result().value().stdout().encode().orElseThrow());
+        assertEquals("3", report.node("count").result().value().stdout().encode().orElseThrow().trim());
+        assertEquals(expected, report.node("checksum").result().value().stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void invoke__parallel() {
+        Graph.Report report = Graph.create()
+                .add("a", Cmd.from("sleep", "0.5"))
+                .add("b", Cmd.from("sleep", "0.5"))
+                .add("c", Cmd.from("sleep", "0.5"))
+                .invoke(3);
+
+        assertTrue(report.succeeded());
+        Duration slowest = report.nodes().values().stream()
+                .map(node -> node.start().plus(node.elapsed()))
+                .max(Duration::compareTo)
+                .orElseThrow();
+        assertTrue(slowest.toMillis() < 1400);
+        assertTrue(report.node("a").elapsed().toMillis() >= 500);
+    }
+
+    @Test
+    void invoke__concurrency_limit() {
+        Graph.Report report = Graph.create()
+                .add("a", Cmd.from("sleep", "0.3"))
+                .add("b", Cmd.from("sleep", "0.3"))
+                .invoke(1);
+
+        assertTrue(report.succeeded());
+        Graph.Node a = report.node("a");
+        Graph.Node b = report.node("b");
+        Graph.Node later = a.start().compareTo(b.start()) > 0 ? a : b;
+        assertTrue(later.start().toMillis() >= 300);
+    }
+
+    @Test
+    void invoke__short_circuit() {
+        Graph.Report report = Graph.create()
+                .add("fail", Cmd.from("sh", "-c", "echo nope >&2; exit 2"))
+                .add("child", Cmd.from("pwd"), "fail")
+                .add("grandchild", Cmd.from("pwd"), "child")
+                .invoke(1);
+
+        assertFalse(report.succeeded());
+        assertEquals(Graph.Status.FAILED, report.node("fail").status());
+        assertEquals(Graph.Status.SKIPPED, report.node("child").status());
+        assertEquals(Graph.Status.SKIPPED, report.node("grandchild").status());
+        assertEquals(Duration.ZERO, report.node("child").elapsed());
+        assertEquals("fail", report.failure().orElseThrow().id());
+
+        Result<Graph.Report, CmdException> result = report.toResult();
+        assertTrue(result.isErr());
+        assertTrue(result.err().getMessage().contains("'nope'"));
+    }
+
+    @Test
+    void invoke__factory_err() {
+        Graph.Report report = Graph.create()
+                .add("a", outputs -> { throw new IllegalStateException("boom"); })
+                .add("b", outputs -> null)
+                .invoke(1);
+
+        assertEquals(Graph.Status.FAILED, report.node("a").status());
+        assertTrue(report.node("a").result().err().getCause() instanceof IllegalStateException);
+        assertNotEquals(Graph.Status.SUCCEEDED, report.node("b").status());
+    }
+
+    @Test
+    void declare__invalid() {
+        Graph graph = Graph.create().add("a", Cmd.from("pwd"));
+        assertThrows(IllegalArgumentException.class, () -> graph.add("a", Cmd.from("pwd")));
+        assertThrows(IllegalArgumentException.class, () -> graph.add("b", Cmd.from("pwd"), "missing"));
+        assertThrows(IllegalArgumentException.class, () -> graph.add(null, Cmd.from("pwd")));
+        assertThrows(IllegalArgumentException.class, () -> graph.add("b", (Shell) null));
+        assertThrows(IllegalArgumentException.class, () -> graph.pipe("missing", "b", Cmd.from("cat")));
+        assertThrows(IllegalArgumentException.class, () -> graph.invoke(0));
+        assertThrows(IllegalArgumentException.class, () -> graph.invoke().node("missing"));
+    }
+}
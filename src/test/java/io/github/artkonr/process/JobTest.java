@@ -0,0 +1,126 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobTest {
+
+    @Test
+    void start__cmd__ok() {
+        Job job = Cmd.from("sh", "-c", "printf abc; printf def >&2").start().unwrap();
+        assertTrue(job.pid() > 0);
+
+        Result<Output, CmdException> result = job.await();
+        assertTrue(result.isOk());
+        assertEquals("abc", result.value().stdout().encode().orElseThrow());
+        assertEquals("def", result.value().stderr().encode().orElseThrow());
+        assertEquals(job.pid(), result.value().pid());
+        assertEquals(3, job.stdoutBytes());
+        assertEquals(3, job.stderrBytes());
+        assertFalse(job.isAlive());
+        assertTrue(job.onExit().isDone());
+    }
+
+    @Test
+    void start__cmd__in_flight_stats() throws InterruptedException {
+        Job job = Cmd.from("sh", "-c", "echo first; sleep 5; echo second").start().unwrap();
+        try {
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (job.stdoutBytes() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertTrue(job.isAlive());
+            assertEquals(6, job.stdoutBytes());
+            assertEquals("first\n", job.stdout().encode().orElseThrow());
+            assertTrue(job.stderr().isEmpty());
+            assertTrue(job.elapsed().toNanos() > 0);
+            assertFalse(job.onExit().isDone());
+        } finally {
+            job.cancel();
+        }
+    }
+
+    @Test
+    void start__cmd__cancel() {
+        Job job = Cmd.from("sh", "-c", "echo partial; exec sleep 30").start().unwrap();
+        while (job.stdoutBytes() == 0) {
+            Thread.onSpinWait();
+        }
+        job.cancel(true);
+
+        Result<Output, CmdException> result = job.await();
+        assertTrue(result.isErr());
+        Output output = result.err().output().orElseThrow();
+        assertEquals(137, output.exitcode());
+        assertEquals("partial", output.stdout().encode().orElseThrow());
+        assertFalse(job.isAlive());
+        assertTrue(job.cpu().isEmpty());
+    }
+
+    @Test
+    void start__cmd__cancel_gracefully() {
+        Job job = Cmd.from("sh", "-c", "echo partial; exec sleep 30").start().unwrap();
+        while (job.stdoutBytes() == 0) {
+            Thread.onSpinWait();
+        }
+        job.cancel();
+
+        Result<Output, CmdException> result = job.await();
+        assertTrue(result.isErr());
+        Output output = result.err().output().orElseThrow();
+        assertEquals(143, output.exitcode());
+        assertEquals("partial", output.stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void start__cmd__err() {
+        Job job = Cmd.from("sh", "-c", "printf fail >&2; exit 2").start().unwrap();
+        Result<Output, CmdException> result = job.await();
+        assertTrue(result.isErr());
+        assertTrue(result.err().getMessage().contains("'fail'"));
+    }
+
+    @Test
+    void start__cmd__spawn_err() {
+        Result<Job, CmdException> result = Cmd.from("definitely-not-a-program").start();
+        assertTrue(result.isErr());
+        assertNotNull(result.err().getCause());
+    }
+
+    @Test
+    void start__null_arg() {
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("pwd").start(null));
+        assertThrows(IllegalArgumentException.class, () -> Chain.from("pwd").start(null));
+    }
+
+    @Test
+    void start__chain__ok() {
+        Job job = Chain.from("printf", "a/b/c")
+                .pipeTo("tr", "-d", "/")
+                .start()
+                .unwrap();
+
+        Result<Output, CmdException> result = job.await();
+        assertTrue(result.isOk());
+        assertEquals("abc", result.value().stdout().encode().orElseThrow());
+        assertEquals("printf a/b/c | tr -d /", result.value().command());
+        assertEquals(3, job.stdoutBytes());
+    }
+
+    @Test
+    void start__chain__intermediate_err() {
+        Job job = Chain.from("curl")
+                .pipeTo("tr", "-d", "/")
+                .start()
+                .unwrap();
+
+        Result<Output, CmdException> result = job.await();
+        assertTrue(result.isErr());
+        assertTrue(result.err().getMessage().contains("cmd='curl'"));
+    }
+}
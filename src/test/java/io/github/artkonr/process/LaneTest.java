@@ -0,0 +1,54 @@
+package io.github.artkonr.process;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaneTest {
+
+    @Test
+    void drain__until_all_writers_end() throws Exception {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        Lane lane = new Lane(sink, 1, 2);
+        Thread drainer = new Thread(lane::drain);
+        drainer.start();
+
+        lane.put("a".getBytes(StandardCharsets.UTF_8));
+        lane.end();
+        lane.put("b".getBytes(StandardCharsets.UTF_8));
+        assertTrue(drainer.isAlive());
+        lane.end();
+        drainer.join(5000);
+
+        assertFalse(drainer.isAlive());
+        assertEquals("ab", sink.toString(StandardCharsets.UTF_8));
+        assertFalse(lane.isBroken());
+    }
+
+    @Test
+    void drain__broken_sink_discards() throws Exception {
+        OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        Lane lane = new Lane(sink, 1, 1);
+        Thread drainer = new Thread(lane::drain);
+        drainer.start();
+
+        for (int i = 0; i < 100; i++) {
+            lane.put(new byte[] { 1 });
+        }
+        lane.end();
+        drainer.join(5000);
+
+        assertFalse(drainer.isAlive());
+        assertTrue(lane.isBroken());
+    }
+}
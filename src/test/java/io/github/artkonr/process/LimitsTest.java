@@ -0,0 +1,159 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitsTest {
+
+    @Test
+    void none__empty() {
+        Limits limits = Limits.none();
+        assertTrue(limits.isEmpty());
+        assertEquals(List.of(), limits.prefix(null));
+    }
+
+    @Test
+    void modifiers__immutable() {
+        Limits none = Limits.none();
+        Limits limited = none.openFiles(64);
+        assertTrue(none.isEmpty());
+        assertFalse(limited.isEmpty());
+    }
+
+    @Test
+    void prefix__rlimits() {
+        Limits limits = Limits.none()
+                .cpu(Duration.ofMillis(1500))
+                .addressSpace(1 << 30)
+                .openFiles(64);
+        assertEquals(
+                List.of("prlimit", "--cpu=2", "--as=1073741824", "--nofile=64", "--"),
+                limits.prefix(null)
+        );
+    }
+
+    @Test
+    void prefix__all() {
+        Limits limits = Limits.none()
+                .nice(10)
+                .openFiles(64);
+        assertEquals(
+                List.of(
+                        "sh", "-c", "echo $$ > \"$0/cgroup.procs\" && exec \"$@\"", "/cg/process-1",
+                        "nice", "-n", "10",
+                        "prlimit", "--nofile=64", "--"
+                ),
+                limits.prefix(Path.of("/cg/process-1"))
+        );
+    }
+
+    @Test
+    void modifiers__invalid() {
+        Limits limits = Limits.none();
+        assertThrows(IllegalArgumentException.class, () -> limits.cpu(null));
+        assertThrows(IllegalArgumentException.class, () -> limits.cpu(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> limits.addressSpace(0));
+        assertThrows(IllegalArgumentException.class, () -> limits.openFiles(-1));
+        assertThrows(IllegalArgumentException.class, () -> limits.nice(20));
+        assertThrows(IllegalArgumentException.class, () -> limits.nice(-21));
+        assertThrows(IllegalArgumentException.class, () -> limits.cgroup(null));
+        assertThrows(IllegalArgumentException.class, () -> limits.cpuMax(0));
+        assertThrows(IllegalArgumentException.class, () -> limits.memoryMax(0));
+    }
+
+    @Test
+    void modifiers__cgroup_controls_without_cgroup() {
+        Limits limits = Limits.none().nice(5);
+        assertThrows(IllegalStateException.class, () -> limits.cpuMax(0.5));
+        assertThrows(IllegalStateException.class, () -> limits.memoryMax(1 << 20));
+    }
+
+    @Test
+    void createCgroup__writes_controls(@TempDir Path parent) throws IOException {
+        Path cgroup = Limits.none()
+                .cgroup(parent)
+                .cpuMax(0.5)
+                .memoryMax(1 << 20)
+                .createCgroup();
+        assertEquals(parent, cgroup.getParent());
+        assertEquals("50000 100000", Files.readString(cgroup.resolve("cpu.max")));
+        assertEquals("1048576", Files.readString(cgroup.resolve("memory.max")));
+    }
+
+    @Test
+    void createCgroup__not_requested() throws IOException {
+        assertNull(Limits.none().openFiles(64).createCgroup());
+    }
+
+    @Test
+    void invoke__cmd__open_files() {
+        Result<Output, CmdException> result = Cmd.from("sh", "-c", "ulimit -n")
+                .limit(Limits.none().openFiles(64))
+                .invoke();
+        assertTrue(result.isOk());
+        assertEquals("64", result.value().stdout().encode().orElseThrow());
+        assertEquals("sh -c ulimit -n", result.value().command());
+    }
+
+    @Test
+    void invoke__cmd__nice() {
+        Result<Output, CmdException> result = Cmd.from("nice")
+                .limit(Limits.none().nice(7))
+                .invoke();
+        assertTrue(result.isOk());
+        assertEquals("7", result.value().stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void invoke__cmd__joins_cgroup(@TempDir Path parent) throws IOException {
+        // a plain directory stands in for a cgroup v2 parent: the shim still records its pid
+        Result<Output, CmdException> result = Cmd.from("sh", "-c", "echo $$")
+                .limit(Limits.none().cgroup(parent))
+                .invoke();
+        assertTrue(result.isOk());
+
+        try (Stream<Path> created = Files.list(parent)) {
+            Path cgroup = created.findFirst().orElseThrow();
+            assertEquals(
+                    result.value().stdout().encode().orElseThrow(),
+                    Files.readString(cgroup.resolve("cgroup.procs")).trim()
+            );
+            assertEquals(String.valueOf(result.value().pid()), Files.readString(cgroup.resolve("cgroup.procs")).trim());
+        }
+    }
+
+    @Test
+    void invoke__chain__limits_every_stage() {
+        Result<Output, CmdException> result = Chain.from("sh", "-c", "ulimit -n")
+                .pipeTo("sh", "-c", "cat; ulimit -n")
+                .limit(Limits.none().openFiles(32))
+                .invoke();
+        assertTrue(result.isOk());
+        assertEquals("32\n32", result.value().stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void status__cmd__cpu_exceeded() {
+        Result<Integer, CmdException> result = Cmd.from("sh", "-c", "while :; do :; done")
+                .limit(Limits.none().cpu(Duration.ofSeconds(1)))
+                .status();
+        assertTrue(result.isOk());
+        assertNotEquals(0, result.value());
+    }
+
+    @Test
+    void limit__null_arg() {
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("pwd").limit(null));
+        assertThrows(IllegalArgumentException.class, () -> Chain.from("pwd").limit(null));
+    }
+}
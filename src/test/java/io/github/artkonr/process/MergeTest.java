@@ -0,0 +1,130 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MergeTest {
+
+    @Test
+    void invoke__ok() {
+        Result<Output, CmdException> result = Chain
+                .merge(
+                        Cmd.from("printf", "b\\nd\\n"),
+                        Chain.from("printf", "c\\na\\n").pipeTo("cat")
+                )
+                .into(Cmd.from("sort"))
+                .invoke();
+        assertTrue(result.isOk());
+
+        Merge.Output output = (Merge.Output) result.value();
+        assertEquals("a\nb\nc\nd", output.stdout().encode().orElseThrow());
+        assertEquals(2, output.producers().size());
+        assertTrue(output.producers().stream().allMatch(producer -> producer.stdout().isEmpty()));
+        assertEquals("sort", output.consumer().command());
+        assertEquals("merge(printf b\\nd\\n, printf c\\na\\n | cat) | sort", output.command());
+        assertEquals(output.consumer().pid(), output.pid());
+    }
+
+    @Test
+    void invoke__executor() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Result<Output, CmdException> result = Chain
+                    .merge(Cmd.from("printf", "b\\n"), Cmd.from("printf", "a\\n"))
+                    .into(Cmd.from("sort"))
+                    .invoke(Reactor.shared(), executor);
+            assertTrue(result.isOk());
+            assertEquals("a\nb", result.value().stdout().encode().orElseThrow());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void invoke__records_keep_order() {
+        String script = "i=0; while [ $i -lt 2000 ]; do echo %s-$i-xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx; i=$((i+1)); done";
+        Result<Output, CmdException> result = Chain
+                .merge(
+                        Cmd.from("sh", "-c", script.formatted("a")),
+                        Cmd.from("sh", "-c", script.formatted("b"))
+                )
+                .records()
+                .buffer(2)
+                .into(Cmd.from("cat"))
+                .invoke();
+        assertTrue(result.isOk());
+
+        List<String> lines = Arrays.asList(result.value().stdout().encode().orElseThrow().split("\n"));
+        assertEquals(4000, lines.size());
+        for (String source : List.of("a", "b")) {
+            List<String> own = lines.stream().filter(line -> line.startsWith(source + "-")).toList();
+            assertEquals(2000, own.size());
+            for (int i = 0; i < own.size(); i++) {
+                assertEquals(source + "-" + i + "-xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx", own.get(i));
+            }
+        }
+    }
+
+    @Test
+    void invoke__records_trailing() {
+        Result<Output, CmdException> result = Chain
+                .merge(Cmd.from("printf", "a;b;c"))
+                .records((byte) ';')
+                .into(Cmd.from("tr", ";", "-"))
+                .invoke();
+        assertTrue(result.isOk());
+        assertEquals("a-b-c", result.value().stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void invoke__producer_err() {
+        Result<Output, CmdException> result = Chain
+                .merge(
+                        Cmd.from("printf", "a"),
+                        Cmd.from("sh", "-c", "echo broken >&2; exit 4")
+                )
+                .into(Cmd.from("cat"))
+                .invoke();
+        assertTrue(result.isErr());
+        assertEquals(4, result.err().output().orElseThrow().exitcode());
+        assertTrue(result.err().getMessage().contains("'broken'"));
+    }
+
+    @Test
+    void invoke__consumer_err() {
+        Result<Output, CmdException> result = Chain
+                .merge(Cmd.from("printf", "a"))
+                .into(Cmd.from("sh", "-c", "cat >/dev/null; exit 5"))
+                .invoke();
+        assertTrue(result.isErr());
+        assertEquals(5, result.err().output().orElseThrow().exitcode());
+    }
+
+    @Test
+    void invoke__spawn_err() {
+        Result<Output, CmdException> result = Chain
+                .merge(Cmd.from("printf", "a"), Cmd.from("definitely-not-a-program"))
+                .into(Cmd.from("cat"))
+                .invoke();
+        assertTrue(result.isErr());
+        assertNotNull(result.err().getCause());
+    }
+
+    @Test
+    void merge__invalid() {
+        assertThrows(IllegalArgumentException.class, Chain::merge);
+        assertThrows(IllegalArgumentException.class, () -> Chain.merge((Shell[]) null));
+        assertThrows(IllegalArgumentException.class, () -> Chain.merge(Cmd.from("pwd"), null));
+        assertThrows(IllegalArgumentException.class, () -> Chain.merge(Cmd.from("pwd").stdout(Capture.DISCARD)));
+        assertThrows(IllegalArgumentException.class, () -> Chain.merge(Cmd.from("pwd")).into(null));
+        assertThrows(IllegalArgumentException.class, () -> Chain.merge(Cmd.from("pwd")).buffer(0));
+        assertThrows(IllegalStateException.class, () -> Chain.merge(Cmd.from("pwd")).invoke());
+    }
+}
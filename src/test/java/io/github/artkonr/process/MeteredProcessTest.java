@@ -0,0 +1,54 @@
+package io.github.artkonr.process;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeteredProcessTest {
+
+    @Test
+    void parseStat() {
+        String stat = "4242 (my (odd) cmd) S 1 4242 4242 0 -1 4194560 120 0 0 0 37 12 0 0 20 0 1 0 100 1000 50";
+        long[] times = MeteredProcess.parseStat(stat);
+        assertArrayEquals(new long[]{ 37, 12 }, times);
+    }
+
+    @Test
+    void parseStatus() {
+        List<String> status = List.of(
+                "Name:\tsh",
+                "VmPeak:\t    9000 kB",
+                "VmHWM:\t    1536 kB",
+                "VmRSS:\t    1024 kB"
+        );
+        assertEquals(1536 * 1024, MeteredProcess.parseStatus(status));
+    }
+
+    @Test
+    void parseStatus__not_reported() {
+        assertEquals(0, MeteredProcess.parseStatus(List.of("Name:\tsh", "State:\tZ (zombie)")));
+    }
+
+    @Test
+    void usage__not_metered() {
+        assertNull(MeteredProcess.usage(io.github.artkonr.process.types.TestProcess.builder().build()));
+    }
+
+    @Test
+    void usage__sampled_while_running() throws Exception {
+        Process process = MeteredProcess.wrap(
+                new ProcessBuilder("sh", "-c", "i=0; while [ $i -lt 300000 ]; do i=$((i+1)); done").start()
+        );
+        assertEquals(0, process.waitFor());
+
+        Usage usage = MeteredProcess.usage(process);
+        assertNotNull(usage);
+        assertTrue(usage.cpu().compareTo(Duration.ZERO) > 0);
+        assertTrue(usage.peakRss() > 0);
+        assertTrue(usage.wall().compareTo(usage.user()) >= 0);
+        assertEquals(usage.wall(), MeteredProcess.usage(process).wall());
+    }
+}
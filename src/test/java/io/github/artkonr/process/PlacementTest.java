@@ -0,0 +1,114 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlacementTest {
+
+    @Test
+    void any__empty() {
+        Placement placement = Placement.any();
+        assertTrue(placement.isEmpty());
+        assertTrue(placement.cpus().isEmpty());
+        assertTrue(placement.policy().isEmpty());
+        assertEquals(List.of(), placement.prefix());
+        assertEquals("cpus=any", placement.toString());
+    }
+
+    @Test
+    void prefix__cpus_and_policy() {
+        Placement placement = Placement.any()
+                .cpus(8, 0, 1, 2, 3)
+                .policy(Placement.Policy.BATCH);
+        assertEquals(List.of("taskset", "-c", "0-3,8", "chrt", "--batch", "0"), placement.prefix());
+        assertEquals("cpus=0-3,8 policy=BATCH", placement.toString());
+    }
+
+    @Test
+    void prefix__realtime() {
+        Placement placement = Placement.any().policy(Placement.Policy.FIFO, 10);
+        assertEquals(List.of("chrt", "--fifo", "10"), placement.prefix());
+        assertEquals(10, placement.priority());
+        assertEquals("cpus=any policy=FIFO/10", placement.toString());
+    }
+
+    @Test
+    void modifiers__immutable_and_equal() {
+        Placement any = Placement.any();
+        Placement pinned = any.cpus(Set.of(1, 0));
+        assertTrue(any.isEmpty());
+        assertEquals(Placement.any().cpus(0, 1), pinned);
+        assertEquals(Placement.any().cpus(0, 1).hashCode(), pinned.hashCode());
+        assertNotEquals(pinned, pinned.policy(Placement.Policy.IDLE));
+    }
+
+    @Test
+    void modifiers__invalid() {
+        Placement placement = Placement.any();
+        assertThrows(IllegalArgumentException.class, () -> placement.cpus(new int[0]));
+        assertThrows(IllegalArgumentException.class, () -> placement.cpus(-1));
+        assertThrows(IllegalArgumentException.class, () -> placement.cpus((int[]) null));
+        assertThrows(IllegalArgumentException.class, () -> placement.policy(null));
+        assertThrows(IllegalArgumentException.class, () -> placement.policy(Placement.Policy.RR));
+        assertThrows(IllegalArgumentException.class, () -> placement.policy(Placement.Policy.BATCH, 1));
+        assertThrows(IllegalArgumentException.class, () -> placement.policy(Placement.Policy.RR, 100));
+    }
+
+    @Test
+    void invoke__cmd__placed() {
+        Placement placement = Placement.any()
+                .cpus(0)
+                .policy(Placement.Policy.IDLE);
+        Result<Output, CmdException> result = Cmd.from("sh", "-c", "taskset -cp $$; chrt -p $$")
+                .place(placement)
+                .invoke();
+        assertTrue(result.isOk());
+
+        String stdout = result.value().stdout().encode().orElseThrow();
+        assertTrue(stdout.contains("current affinity list: 0"));
+        assertTrue(stdout.contains("SCHED_IDLE"));
+        assertEquals(placement, result.value().placement().orElseThrow());
+        assertEquals("sh -c taskset -cp $$; chrt -p $$", result.value().command());
+    }
+
+    @Test
+    void invoke__cmd__not_placed() {
+        Result<Output, CmdException> result = Cmd.from("pwd").invoke();
+        assertTrue(result.isOk());
+        assertTrue(result.value().placement().isEmpty());
+    }
+
+    @Test
+    void invoke__cmd__unavailable_cpu() {
+        Result<Output, CmdException> result = Cmd.from("pwd")
+                .place(Placement.any().cpus(4095))
+                .invoke();
+        assertTrue(result.isErr());
+    }
+
+    @Test
+    void invoke__chain__placed() {
+        Placement placement = Placement.any().policy(Placement.Policy.BATCH);
+        Result<Output, CmdException> result = Chain.from("sh", "-c", "chrt -p $$")
+                .pipeTo("sh", "-c", "cat; chrt -p $$")
+                .place(placement)
+                .invoke();
+        assertTrue(result.isOk());
+
+        Chain.Output output = (Chain.Output) result.value();
+        assertEquals(2, output.stdout().encode().orElseThrow().split("SCHED_BATCH", -1).length - 1);
+        assertEquals(placement, output.placement().orElseThrow());
+        assertTrue(output.stages().stream().allMatch(stage -> stage.placement().isPresent()));
+    }
+
+    @Test
+    void place__null_arg() {
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("pwd").place(null));
+        assertThrows(IllegalArgumentException.class, () -> Chain.from("pwd").place(null));
+    }
+}
@@ -0,0 +1,202 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.process.types.TestProcess;
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactorTest {
+
+    @Test
+    void create__invalid_thread_count() {
+        assertThrows(IllegalArgumentException.class, () -> Reactor.create(0));
+    }
+
+    @Test
+    void shared__same_instance() {
+        assertSame(Reactor.shared(), Reactor.shared());
+        assertTrue(Reactor.shared().threads() >= 1);
+        assertTrue(Reactor.shared().threads() <= 4);
+    }
+
+    @Test
+    void invoke__cmd__ok() {
+        try (Reactor reactor = Reactor.create(1)) {
+            Result<Output, CmdException> result = Cmd.from("sh", "-c", "printf abc; printf def >&2")
+                    .invoke(reactor);
+            assertTrue(result.isOk());
+            assertEquals("abc", result.value().stdout().encode().orElseThrow());
+            assertEquals("def", result.value().stderr().encode().orElseThrow());
+        }
+    }
+
+    @Test
+    void invoke__cmd__output_larger_than_pipe_buffer() {
+        try (Reactor reactor = Reactor.create(1)) {
+            Result<Output, CmdException> result = Cmd.from("sh", "-c", "head -c 1000000 /dev/zero | tr '\\0' a")
+                    .invoke(reactor);
+            assertTrue(result.isOk());
+            assertEquals(1_000_000, result.value().stdout().get().orElseThrow().length);
+        }
+    }
+
+    @Test
+    void invoke__cmd__err() {
+        try (Reactor reactor = Reactor.create(1)) {
+            Result<Output, CmdException> result = Cmd.from("sh", "-c", "printf fail >&2; exit 4")
+                    .invoke(reactor);
+            assertTrue(result.isErr());
+            assertTrue(result.err().getMessage().contains("actual=4"));
+            assertTrue(result.err().getMessage().contains("'fail'"));
+        }
+    }
+
+    @Test
+    void invoke__cmd__spawn_err() {
+        try (Reactor reactor = Reactor.create(1)) {
+            Result<Output, CmdException> result = Cmd.from("definitely-not-a-program").invoke(reactor);
+            assertTrue(result.isErr());
+            assertNotNull(result.err().getCause());
+        }
+    }
+
+    @Test
+    void invoke__closed_reactor() {
+        Reactor reactor = Reactor.create(1);
+        reactor.close();
+        assertTrue(reactor.isClosed());
+
+        Result<Output, CmdException> result = Cmd.from("pwd").invoke(reactor);
+        assertTrue(result.isErr());
+        assertEquals("reactor is closed", result.err().getCause().getMessage());
+    }
+
+    @Test
+    void attach__racing_close__completes() throws Exception {
+        Process process = TestProcess.builder().build();
+        for (int i = 0; i < 200; i++) {
+            Reactor reactor = Reactor.create(1);
+            Thread closer = new Thread(reactor::close);
+            closer.start();
+            Reactor.Sink sink = reactor.attach(
+                    process,
+                    new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8))
+            );
+            closer.join();
+            sink.completion().handle((data, ex) -> null).get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void invoke__null_arg() {
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("pwd").invoke((Reactor) null));
+        assertThrows(IllegalArgumentException.class, () -> Chain.from("pwd").invoke((Reactor) null));
+    }
+
+    @Test
+    void invoke__chain__ok() {
+        try (Reactor reactor = Reactor.create(1)) {
+            Result<Output, CmdException> result = Chain.from("printf", "a/b/c")
+                    .pipeTo("tr", "-d", "/")
+                    .invoke(reactor);
+            assertTrue(result.isOk());
+            assertEquals("abc", result.value().stdout().encode().orElseThrow());
+        }
+    }
+
+    @Test
+    void invoke__chain__intermediate_err() {
+        try (Reactor reactor = Reactor.create(1)) {
+            Result<Output, CmdException> result = Chain.from("curl")
+                    .pipeTo("tr", "-d", "/")
+                    .invoke(reactor);
+            assertTrue(result.isErr());
+            assertTrue(result.err().getMessage().contains("cmd='curl'"));
+        }
+    }
+
+    @Test
+    void invoke__many_concurrent_on_fixed_threads() {
+        ExecutorService callers = Executors.newFixedThreadPool(32);
+        try (Reactor reactor = Reactor.create(2)) {
+            List<CompletableFuture<Result<Output, CmdException>>> running = IntStream.range(0, 64)
+                    .mapToObj(idx -> CompletableFuture.supplyAsync(
+                            () -> Cmd.from("sh", "-c", "head -c 100000 /dev/zero | tr '\\0' a; printf " + idx + " >&2")
+                                    .invoke(reactor),
+                            callers
+                    ))
+                    .toList();
+
+            for (int i = 0; i < running.size(); i++) {
+                Result<Output, CmdException> result = running.get(i).join();
+                assertTrue(result.isOk());
+                assertEquals(100_000, result.value().stdout().get().orElseThrow().length);
+                assertEquals(String.valueOf(i), result.value().stderr().encode().orElseThrow());
+            }
+            assertEquals(2, reactor.threads());
+            assertEquals(0, reactor.streams());
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    @Test
+    void sink__trims_and_completes() {
+        Reactor.Sink sink = new Reactor.Sink(
+                TestProcess.builder().build(),
+                new ByteArrayInputStream("abc\n".getBytes(StandardCharsets.UTF_8)),
+                () -> { }
+        );
+        byte[] scratch = new byte[2];
+        assertEquals(Reactor.Sink.State.PROGRESS, sink.pump(scratch));
+        assertEquals(Reactor.Sink.State.PROGRESS, sink.pump(scratch));
+        assertEquals(Reactor.Sink.State.DONE, sink.pump(scratch));
+        assertArrayEquals("abc".getBytes(StandardCharsets.UTF_8), sink.await().unwrap());
+    }
+
+    @Test
+    void sink__scan() throws InterruptedException {
+        Reactor.Sink sink = new Reactor.Sink(
+                TestProcess.builder().build(),
+                new ByteArrayInputStream("abcdef".getBytes(StandardCharsets.UTF_8)),
+                () -> { }
+        );
+        byte[] scratch = new byte[3];
+        sink.pump(scratch);
+        assertNull(sink.scan(Until.contains("cd").scanner(), 1_000_000));
+
+        sink.pump(scratch);
+        assertTrue(sink.scan(Until.contains("cd").scanner(), 1_000_000));
+
+        while (sink.pump(scratch) != Reactor.Sink.State.DONE) { }
+        assertFalse(sink.scan(Until.contains("x").scanner(), Long.MAX_VALUE));
+    }
+
+    @Test
+    void sink__ring_keeps_latest() {
+        Reactor.Sink sink = new Reactor.Sink(
+                TestProcess.builder().build(),
+                new ByteArrayInputStream("abcdefghij".getBytes(StandardCharsets.UTF_8)),
+                () -> { },
+                4
+        );
+        byte[] scratch = new byte[3];
+        assertEquals(Reactor.Sink.State.PROGRESS, sink.pump(scratch));
+        assertArrayEquals("abc".getBytes(StandardCharsets.UTF_8), sink.snapshot());
+        assertEquals(Reactor.Sink.State.PROGRESS, sink.pump(scratch));
+        assertArrayEquals("cdef".getBytes(StandardCharsets.UTF_8), sink.snapshot());
+        while (sink.pump(scratch) != Reactor.Sink.State.DONE) { }
+        assertArrayEquals("ghij".getBytes(StandardCharsets.UTF_8), sink.snapshot());
+        assertEquals(10, sink.bytes());
+    }
+}
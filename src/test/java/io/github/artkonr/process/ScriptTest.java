@@ -0,0 +1,122 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptTest {
+
+    @Test
+    void invoke__split() {
+        Script.Output output = Script.of(
+                Cmd.from("echo", "first"),
+                Cmd.from("sh", "-c", "printf 'no newline'; echo oops >&2"),
+                Cmd.from("true")
+        ).invoke().unwrap();
+
+        assertEquals(3, output.outputs().size());
+        assertEquals("first", output.output(0).stdout().encode().orElseThrow());
+        assertTrue(output.output(0).stderr().isEmpty());
+        assertEquals("no newline", output.output(1).stdout().encode().orElseThrow());
+        assertEquals("oops", output.output(1).stderr().encode().orElseThrow());
+        assertTrue(output.output(2).stdout().isEmpty());
+        assertEquals("echo first", output.output(0).command());
+        assertTrue(output.exitedNormally());
+    }
+
+    @Test
+    void invoke__exitcodes() {
+        Script.Output output = Script.of(
+                Cmd.from("sh", "-c", "exit 3"),
+                Cmd.from("echo", "after"),
+                Cmd.from("definitely-not-a-program")
+        ).invoke().unwrap();
+
+        assertEquals(3, output.output(0).exitcode());
+        assertEquals("after", output.output(1).stdout().encode().orElseThrow());
+        assertEquals(127, output.output(2).exitcode());
+        assertFalse(output.exitedNormally());
+        assertEquals(3, output.error().orElseThrow().exitcode());
+
+        List<Result<Output, CmdException>> results = output.results();
+        assertTrue(results.get(0).isErr());
+        assertTrue(results.get(1).isOk());
+        assertTrue(results.get(2).isErr());
+    }
+
+    @Test
+    void invoke__quoting() {
+        String tricky = "it's \"quoted\" $HOME `id` \\ ;|&";
+        Output output = Script.of(Cmd.from("printf", "%s", tricky)).invoke().unwrap().output(0);
+        assertEquals(tricky, output.stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void invoke__boundary_in_output() {
+        Script.Output output = Script.of(
+                Cmd.from("printf", "%s\\n", "--process- 0"),
+                Cmd.from("echo", "next")
+        ).invoke().unwrap();
+        assertEquals("--process- 0", output.output(0).stdout().encode().orElseThrow());
+        assertEquals("next", output.output(1).stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void invoke__directory_and_env(@TempDir Path dir) {
+        ProcessBuilder pwd = new ProcessBuilder("pwd").directory(dir.toFile());
+        ProcessBuilder env = new ProcessBuilder("sh", "-c", "echo \"$GREETING:${HOME:-unset}\"");
+        env.environment().put("GREETING", "hi there");
+        env.environment().remove("HOME");
+
+        Script.Output output = Script.of(Cmd.from(pwd), Cmd.from(env), Cmd.from("sh", "-c", "echo ${GREETING:-none}"))
+                .invoke()
+                .unwrap();
+        assertEquals(dir.toAbsolutePath().toString(), output.output(0).stdout().encode().orElseThrow());
+        assertEquals("hi there:unset", output.output(1).stdout().encode().orElseThrow());
+        assertEquals("none", output.output(2).stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void invoke__redirects(@TempDir Path dir) throws Exception {
+        Path in = Files.writeString(dir.resolve("in.txt"), "from file\n");
+        Path out = dir.resolve("out.txt");
+
+        Script.Output output = Script.of(
+                Cmd.from(new ProcessBuilder("cat").redirectInput(in.toFile())),
+                Cmd.from("cat"),
+                Cmd.from(new ProcessBuilder("echo", "to file").redirectOutput(out.toFile())),
+                Cmd.from("sh", "-c", "echo out; echo err >&2").mergeStderr(),
+                Cmd.from("sh", "-c", "echo out; echo err >&2").stdout(Capture.DISCARD)
+        ).invoke().unwrap();
+
+        assertEquals("from file", output.output(0).stdout().encode().orElseThrow());
+        assertTrue(output.output(1).stdout().isEmpty());
+        assertTrue(output.output(2).stdout().isEmpty());
+        assertEquals("to file\n", Files.readString(out));
+        assertEquals("out\nerr", output.output(3).stdout().encode().orElseThrow());
+        assertTrue(output.output(3).merged());
+        assertTrue(output.output(4).stdout().isEmpty());
+        assertEquals("err", output.output(4).stderr().encode().orElseThrow());
+    }
+
+    @Test
+    void render__quote() {
+        assertEquals("'a b'", Script.quote("a b"));
+        assertEquals("'it'\\''s'", Script.quote("it's"));
+    }
+
+    @Test
+    void of__rejected() {
+        assertThrows(IllegalArgumentException.class, () -> Script.of(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> Script.of(Cmd.from("true").limit(Limits.none().nice(5))));
+        assertThrows(IllegalArgumentException.class, () -> Script.of(Cmd.from("true").place(Placement.any().cpus(0))));
+        assertThrows(IllegalArgumentException.class,
+                () -> Script.of(Cmd.from(new ProcessBuilder("true").inheritIO())));
+    }
+}
@@ -0,0 +1,161 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceTest {
+
+    @Test
+    void spawnBackground__log() {
+        Result<Service, CmdException> started = Cmd
+                .from("sh", "-c", "echo starting; sleep 0.2; echo listening; exec sleep 30")
+                .spawnBackground(Readiness.log(Until.contains("listening")));
+        assertTrue(started.isOk());
+        try (Service service = started.unwrap()) {
+            assertTrue(service.isAlive());
+            assertEquals("starting\nlistening", service.stdout().encode().orElseThrow().trim());
+        }
+    }
+
+    @Test
+    void spawnBackground__log_on_stderr() {
+        Result<Service, CmdException> started = Cmd
+                .from("sh", "-c", "echo ready >&2; exec sleep 30")
+                .spawnBackground(Readiness.log(Until.contains("ready").onStderr()));
+        assertTrue(started.isOk());
+        started.unwrap().close();
+    }
+
+    @Test
+    void spawnBackground__port() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Result<Service, CmdException> started = Cmd
+                .from("python3", "-m", "http.server", "--bind", "127.0.0.1", String.valueOf(port))
+                .spawnBackground(Readiness.port(port).within(Duration.ofSeconds(10)));
+        assertTrue(started.isOk());
+        try (Service service = started.unwrap()) {
+            assertTrue(service.isAlive());
+        }
+    }
+
+    @Test
+    void spawnBackground__file(@TempDir Path dir) {
+        Path pid = dir.resolve("pid");
+        Result<Service, CmdException> started = Cmd
+                .from("sh", "-c", "sleep 0.2; echo $$ > '" + pid + "'; exec sleep 30")
+                .spawnBackground(Readiness.file(pid));
+        assertTrue(started.isOk());
+        try (Service service = started.unwrap()) {
+            assertTrue(Files.exists(pid));
+            assertTrue(service.isAlive());
+        }
+    }
+
+    @Test
+    void spawnBackground__not_ready_in_time() {
+        long startedAt = System.nanoTime();
+        Result<Service, CmdException> started = Cmd
+                .from("sleep", "30")
+                .spawnBackground(Readiness.log(Until.contains("never")).within(Duration.ofMillis(300)));
+        assertTrue(started.isErr());
+        assertTrue(started.err().getMessage().startsWith("program is not ready within"));
+        assertTrue(System.nanoTime() - startedAt < Duration.ofSeconds(10).toNanos());
+    }
+
+    @Test
+    void spawnBackground__exited_before_ready() {
+        Result<Service, CmdException> started = Cmd
+                .from("sh", "-c", "echo boom >&2; exit 3")
+                .spawnBackground(Readiness.port(1));
+        assertTrue(started.isErr());
+        Output output = started.err().output().orElseThrow();
+        assertEquals(3, output.exitcode());
+        assertEquals("boom", output.stderr().encode().orElseThrow());
+    }
+
+    @Test
+    void spawnBackground__exited_normally_before_ready() {
+        Result<Service, CmdException> started = Cmd
+                .from("echo", "done")
+                .spawnBackground(Readiness.log(Until.contains("never")));
+        assertTrue(started.isErr());
+        assertEquals("program has exited before it was ready: echo done", started.err().getMessage());
+    }
+
+    @Test
+    void spawnBackground__invalid_buffer() {
+        assertThrows(IllegalArgumentException.class, () -> Cmd
+                .from("true")
+                .spawnBackground(Readiness.immediate(), 0, Reactor.shared()));
+    }
+
+    @Test
+    void stdout__ring_keeps_latest() throws Exception {
+        Result<Service, CmdException> started = Cmd
+                .from("sh", "-c", "for i in $(seq 1 1000); do echo line-$i; done; echo ready; exec sleep 30")
+                .spawnBackground(Readiness.log(Until.contains("ready")), 64, Reactor.shared());
+        assertTrue(started.isOk());
+        try (Service service = started.unwrap()) {
+            String stdout = service.stdout().encode().orElseThrow();
+            assertTrue(stdout.length() <= 64);
+            assertTrue(stdout.endsWith("line-1000\nready"));
+        }
+    }
+
+    @Test
+    void stop__terminates() {
+        Service service = Cmd
+                .from("sleep", "30")
+                .spawnBackground(Readiness.immediate())
+                .unwrap();
+        Result<Output, CmdException> stopped = service.stop();
+        assertTrue(stopped.isOk());
+        assertEquals(143, stopped.unwrap().exitcode());
+        assertFalse(service.isAlive());
+    }
+
+    @Test
+    void stop__kills_after_deadline() {
+        Service service = Cmd
+                .from("sh", "-c", "trap '' TERM; echo ready; while true; do sleep 0.1; done")
+                .spawnBackground(Readiness.log(Until.contains("ready")))
+                .unwrap();
+        long startedAt = System.nanoTime();
+        Result<Output, CmdException> stopped = service.stop(Duration.ofMillis(300));
+        assertTrue(stopped.isOk());
+        assertEquals(137, stopped.unwrap().exitcode());
+        assertEquals("ready", stopped.unwrap().stdout().encode().orElseThrow());
+        assertTrue(System.nanoTime() - startedAt < Duration.ofSeconds(5).toNanos());
+    }
+
+    @Test
+    void stop__already_exited() throws Exception {
+        Service service = Cmd
+                .from("sh", "-c", "echo bye")
+                .spawnBackground(Readiness.immediate())
+                .unwrap();
+        while (service.isAlive()) {
+            Thread.sleep(10);
+        }
+        Output output = service.stop().unwrap();
+        assertEquals(0, output.exitcode());
+        assertEquals("bye", output.stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void within__invalid() {
+        assertThrows(IllegalArgumentException.class, () -> Readiness.immediate().within(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> Readiness.port(0));
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionTest {
+
+    @Test
+    void invoke__outputs() {
+        try (Session session = Session.open().unwrap()) {
+            Output first = session.invoke(Cmd.from("echo", "hello")).unwrap();
+            assertEquals("hello", first.stdout().encode().orElseThrow());
+            assertTrue(first.stderr().isEmpty());
+            assertEquals(session.pid(), first.pid());
+
+            Output second = session.invoke(Cmd.from("sh", "-c", "printf 'no newline'; echo oops >&2")).unwrap();
+            assertEquals("no newline", second.stdout().encode().orElseThrow());
+            assertEquals("oops", second.stderr().encode().orElseThrow());
+        }
+    }
+
+    @Test
+    void invoke__exitcodes() {
+        try (Session session = Session.open().unwrap()) {
+            Result<Output, CmdException> failed = session.invoke(Cmd.from("sh", "-c", "echo bad >&2; exit 3"));
+            assertTrue(failed.isErr());
+            assertEquals(3, failed.err().output().orElseThrow().exitcode());
+
+            Result<Output, CmdException> missing = session.invoke(Cmd.from("definitely-not-a-program"));
+            assertEquals(127, missing.err().output().orElseThrow().exitcode());
+
+            assertTrue(session.invoke(Cmd.from("true")).isOk());
+        }
+    }
+
+    @Test
+    void invoke__keeps_state(@TempDir Path dir) {
+        try (Session session = Session.open().unwrap()) {
+            session.invoke(Cmd.from("cd", dir.toString())).unwrap();
+            session.invoke(Cmd.from("export", "GREETING=hi there")).unwrap();
+
+            assertEquals(dir.toString(), session.invoke(Cmd.from("pwd")).unwrap().stdout().encode().orElseThrow());
+            assertEquals(
+                    "hi there",
+                    session.invoke(Cmd.from("sh", "-c", "echo $GREETING")).unwrap().stdout().encode().orElseThrow()
+            );
+        }
+    }
+
+    @Test
+    void invoke__own_directory(@TempDir Path dir) {
+        try (Session session = Session.open().unwrap()) {
+            String before = session.invoke(Cmd.from("pwd")).unwrap().stdout().encode().orElseThrow();
+            Output isolated = session
+                    .invoke(Cmd.from(new ProcessBuilder("pwd").directory(dir.toFile())))
+                    .unwrap();
+            assertEquals(dir.toString(), isolated.stdout().encode().orElseThrow());
+            assertEquals(before, session.invoke(Cmd.from("pwd")).unwrap().stdout().encode().orElseThrow());
+        }
+    }
+
+    @Test
+    void invoke__large_output() {
+        try (Session session = Session.open().unwrap()) {
+            Output output = session
+                    .invoke(Cmd.from("sh", "-c", "head -c 300000 /dev/zero | tr '\\0' a; head -c 300000 /dev/zero | tr '\\0' b >&2"))
+                    .unwrap();
+            assertEquals(300000, output.stdout().get().orElseThrow().length);
+            assertEquals(300000, output.stderr().get().orElseThrow().length);
+            assertEquals("ok", session.invoke(Cmd.from("echo", "ok")).unwrap().stdout().encode().orElseThrow());
+        }
+    }
+
+    @Test
+    void invoke__ended() {
+        Session session = Session.open().unwrap();
+        assertTrue(session.isAlive());
+        assertTrue(session.invoke(Cmd.from("exit", "0")).isErr());
+        assertFalse(session.isAlive());
+        assertTrue(session.invoke(Cmd.from("true")).isErr());
+        session.close();
+    }
+
+    @Test
+    void close__idempotent() {
+        Session session = Session.open("bash").unwrap();
+        session.invoke(Cmd.from("true")).unwrap();
+        session.close();
+        session.close();
+        assertFalse(session.isAlive());
+        assertTrue(session.invoke(Cmd.from("true")).isErr());
+    }
+
+    @Test
+    void open__unknown_shell() {
+        assertTrue(Session.open("definitely-not-a-shell").isErr());
+    }
+}
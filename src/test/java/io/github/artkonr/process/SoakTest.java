@@ -0,0 +1,217 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives tens of thousands of invocations, including failures,
+ *  timeouts and large outputs, and checks that none of them leaks
+ *  file descriptors, threads, zombie children or heap.
+ * <p>Excluded from the default build; run with {@code mvn test -Psoak}.
+ *  The amount of invocations is set by {@code -Dsoak.iterations}.
+ */
+@Tag("soak")
+class SoakTest {
+
+    private static final int ITERATIONS = Integer.getInteger("soak.iterations", 20_000);
+    private static final int CONCURRENCY = 8;
+    private static final int WARMUP = 200;
+    private static final long LARGE = 256 * 1024;
+
+    @Test
+    void churn__sequential() throws Exception {
+        run(1);
+    }
+
+    @Test
+    void churn__concurrent() throws Exception {
+        run(CONCURRENCY);
+    }
+
+    private static void run(int concurrency) throws Exception {
+        long jdkLeak = pipelineLeak();
+        try (Reactor reactor = Reactor.create(2)) {
+            drive(WARMUP, concurrency, reactor);
+            Snapshot before = Snapshot.take();
+
+            long startedAt = System.nanoTime();
+            drive(ITERATIONS, concurrency, reactor);
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+            System.out.printf(
+                    "soak: %d invocations on %d thread(s) in %.1f s, %.0f invocations/s%n",
+                    ITERATIONS, concurrency, seconds, ITERATIONS / seconds
+            );
+
+            long fds = before.fds() + 16 + jdkLeak * pipelines(ITERATIONS);
+            Snapshot after = settle(before, fds, concurrency);
+            assertTrue(after.fds() <= fds, "file descriptors: " + before.fds() + " -> " + after.fds());
+            assertTrue(after.threads() <= before.threads() + concurrency + 8, "threads: " + before.threads() + " -> " + after.threads());
+            assertEquals(0, after.zombies(), "zombie children");
+            assertTrue(after.heap() <= before.heap() + 64 * 1024 * 1024, "heap: " + before.heap() + " -> " + after.heap());
+        }
+    }
+
+    private static void drive(int iterations, int concurrency, Reactor reactor) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> lanes = new ArrayList<>();
+            for (int lane = 0; lane < concurrency; lane++) {
+                int offset = lane;
+                lanes.add(callers.submit(() -> {
+                    for (int i = offset; i < iterations; i += concurrency) {
+                        invoke(i, reactor);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> lane : lanes) {
+                lane.get();
+            }
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    private static void invoke(int i, Reactor reactor) throws Exception {
+        switch (i % 8) {
+            case 0 -> assertTrue(Cmd.from("true").invoke().isOk());
+            case 1 -> assertTrue(Cmd.from("sh", "-c", "echo oops >&2; exit 3").invoke().isErr());
+            case 2 -> assertTrue(Cmd.from("/nonexistent/program").invoke(reactor).isErr());
+            case 3 -> assertTrue(Chain.from("echo", "a").pipeTo("cat").invoke().isOk());
+            case 4 -> {
+                Result<Output, CmdException> large = Cmd.from("head", "-c", String.valueOf(LARGE), "/dev/zero")
+                        .invoke(reactor);
+                assertEquals(LARGE, large.unwrap().stdout().get().orElseThrow().length);
+            }
+            case 5 -> assertTrue(Chain.from("sh", "-c", "exit 1").pipeTo("cat").failFast().invoke(reactor).isErr());
+            case 6 -> {
+                Job job = Cmd.from("sleep", "10").start(reactor).unwrap();
+                try {
+                    job.onExit().get(1, TimeUnit.MILLISECONDS);
+                    fail("sleep has exited before the timeout");
+                } catch (TimeoutException ex) {
+                    job.cancel(true);
+                }
+                assertTrue(job.await().isErr());
+            }
+            default -> assertTrue(Cmd.from("yes").invokeUntil(Until.contains("y\ny\n"), reactor).isOk());
+        }
+    }
+
+    /**
+     * Counts the pipelines among a number of invocations.
+     */
+    private static long pipelines(int iterations) {
+        return IntStream.range(0, iterations).filter(i -> i % 8 == 3 || i % 8 == 5).count();
+    }
+
+    /**
+     * Measures the descriptors that {@link ProcessBuilder#startPipeline(List)}
+     *  itself leaks per pipeline on the running JDK, with every stream of
+     *  every program closed: one on JDK 17, where the inter-stage pipe is
+     *  never closed. The library cannot close it either, so it is allowed
+     *  for. A JDK that does not leak measures zero and gets no allowance.
+     */
+    private static long pipelineLeak() throws Exception {
+        int runs = 100;
+        long before = Snapshot.countFds();
+        for (int i = 0; i < runs; i++) {
+            List<Process> processes = ProcessBuilder.startPipeline(List.of(
+                    new ProcessBuilder("echo", "a"),
+                    new ProcessBuilder("cat")
+            ));
+            for (Process process : processes) {
+                process.getOutputStream().close();
+                process.getInputStream().close();
+                process.getErrorStream().close();
+                process.waitFor();
+            }
+        }
+        return Math.round((double) (Snapshot.countFds() - before) / runs);
+    }
+
+    /**
+     * Waits for asynchronous cleanup, e.g. reaping of exited
+     *  children, to catch up before taking the final snapshot.
+     */
+    private static Snapshot settle(Snapshot before, long fds, int concurrency) throws Exception {
+        Snapshot after = Snapshot.take();
+        for (int attempt = 0; attempt < 50; attempt++) {
+            if (after.fds() <= fds
+                    && after.threads() <= before.threads() + concurrency + 8
+                    && after.zombies() == 0) {
+                break;
+            }
+            Thread.sleep(100);
+            after = Snapshot.take();
+        }
+        return after;
+    }
+
+    private record Snapshot(long fds, int threads, long zombies, long heap) {
+
+        static Snapshot take() throws IOException {
+            return new Snapshot(countFds(), countThreads(), countZombies(), usedHeap());
+        }
+
+        private static long countFds() throws IOException {
+            try (Stream<Path> fds = Files.list(Path.of("/proc/self/fd"))) {
+                return fds.count();
+            }
+        }
+
+        /**
+         * Live threads, except for the process reapers the JDK
+         *  caches for a while after the programs have exited.
+         */
+        private static int countThreads() {
+            return (int) Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> !thread.getName().startsWith("process reaper"))
+                    .count();
+        }
+
+        private static long countZombies() {
+            long self = ProcessHandle.current().pid();
+            return ProcessHandle.current().children()
+                    .mapToLong(ProcessHandle::pid)
+                    .filter(pid -> state(pid, self, ch -> ch == 'Z'))
+                    .count();
+        }
+
+        private static long usedHeap() {
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+            }
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+
+        private static boolean state(long pid, long parent, IntPredicate test) {
+            try {
+                // comm may contain spaces, so the fields are counted from its closing parenthesis
+                String stat = Files.readString(Path.of("/proc", String.valueOf(pid), "stat"));
+                String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                return Long.parseLong(fields[1]) == parent && test.test(fields[0].charAt(0));
+            } catch (IOException | RuntimeException ex) {
+                return false;
+            }
+        }
+    }
+}
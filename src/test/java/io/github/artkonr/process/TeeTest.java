@@ -0,0 +1,125 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TeeTest {
+
+    @Test
+    void invoke__ok() throws Exception {
+        Result<Tee.Output, CmdException> result = Cmd.from("printf", "a\\nb\\nc\\n")
+                .teeTo(
+                        Cmd.from("sha256sum"),
+                        Cmd.from("wc", "-l"),
+                        Chain.from("tr", "-d", "\\n").pipeTo("rev")
+                )
+                .invoke();
+        assertTrue(result.isOk());
+
+        Tee.Output output = result.value();
+        assertTrue(output.exitedNormally());
+        assertTrue(output.source().stdout().isEmpty());
+        assertEquals(3, output.branches().size());
+
+        String sha = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest("a\nb\nc\n".getBytes()));
+        assertTrue(output.branch(0).stdout().encode().orElseThrow().startsWith(sha));
+        assertEquals("3", output.branch(1).stdout().encode().orElseThrow());
+        assertEquals("cba", output.branch(2).stdout().encode().orElseThrow());
+        assertEquals("tr -d \\n | rev", output.branch(2).command());
+    }
+
+    @Test
+    void invoke__executor() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Result<Tee.Output, CmdException> result = Cmd.from("printf", "a\\nb\\n")
+                    .teeTo(Cmd.from("wc", "-l"), Cmd.from("cat"))
+                    .invoke(Reactor.shared(), executor);
+            assertTrue(result.isOk());
+            assertEquals("2", result.value().branch(0).stdout().encode().orElseThrow());
+            assertEquals("a\nb", result.value().branch(1).stdout().encode().orElseThrow());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void invoke__null_executor() {
+        Tee tee = Cmd.from("pwd").teeTo(Cmd.from("cat"));
+        assertThrows(IllegalArgumentException.class, () -> tee.invoke(Reactor.shared(), null));
+    }
+
+    @Test
+    void invoke__backpressure() {
+        Result<Tee.Output, CmdException> result = Chain.from("head", "-c", "4000000", "/dev/zero")
+                .teeTo(
+                        Cmd.from("wc", "-c"),
+                        Cmd.from("sh", "-c", "sleep 0.5; wc -c")
+                )
+                .buffer(2)
+                .invoke();
+        assertTrue(result.isOk());
+        assertEquals("4000000", result.value().branch(0).stdout().encode().orElseThrow());
+        assertEquals("4000000", result.value().branch(1).stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void invoke__branch_exits_early() {
+        Result<Tee.Output, CmdException> result = Cmd.from("head", "-c", "1000000", "/dev/zero")
+                .teeTo(
+                        Cmd.from("head", "-c", "10"),
+                        Cmd.from("wc", "-c")
+                )
+                .invoke();
+        assertTrue(result.isOk());
+        assertEquals(10, result.value().branch(0).stdout().get().orElseThrow().length);
+        assertEquals("1000000", result.value().branch(1).stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void invoke__branch_err() {
+        Result<Tee.Output, CmdException> result = Cmd.from("printf", "abc")
+                .teeTo(
+                        Cmd.from("cat"),
+                        Cmd.from("sh", "-c", "cat >/dev/null; echo nope >&2; exit 3")
+                )
+                .invoke();
+        assertTrue(result.isErr());
+        assertEquals(3, result.err().output().orElseThrow().exitcode());
+        assertTrue(result.err().getMessage().contains("'nope'"));
+    }
+
+    @Test
+    void invoke__source_err() {
+        Result<Tee.Output, CmdException> result = Cmd.from("sh", "-c", "printf abc; exit 1")
+                .teeTo(Cmd.from("cat"))
+                .invoke();
+        assertTrue(result.isErr());
+        assertEquals("sh -c printf abc; exit 1", result.err().output().orElseThrow().command());
+    }
+
+    @Test
+    void invoke__spawn_err() {
+        Result<Tee.Output, CmdException> result = Cmd.from("printf", "abc")
+                .teeTo(Cmd.from("cat"), Cmd.from("definitely-not-a-program"))
+                .invoke();
+        assertTrue(result.isErr());
+        assertNotNull(result.err().getCause());
+    }
+
+    @Test
+    void teeTo__invalid() {
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("pwd").teeTo());
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("pwd").teeTo((Shell[]) null));
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("pwd").teeTo(Cmd.from("cat"), null));
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("pwd").stdout(Capture.DISCARD).teeTo(Cmd.from("cat")));
+        assertThrows(IllegalArgumentException.class, () -> Cmd.from("pwd").teeTo(Cmd.from("cat")).buffer(0));
+    }
+}
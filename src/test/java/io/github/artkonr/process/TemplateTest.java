@@ -0,0 +1,127 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateTest {
+
+    @Test
+    void parse__pieces() {
+        assertArrayEquals(new String[]{ "plain" }, Template.parse("plain"));
+        assertArrayEquals(new String[]{ "", "file", "" }, Template.parse("{file}"));
+        assertArrayEquals(new String[]{ "--size=", "w", "x", "h", "" }, Template.parse("--size={w}x{h}"));
+        assertArrayEquals(new String[]{ "{not a placeholder}" }, Template.parse("{not a placeholder}"));
+    }
+
+    @Test
+    void parse__escaped() {
+        assertArrayEquals(new String[]{ "{id}" }, Template.parse("{{id}}"));
+        assertArrayEquals(new String[]{ "{print $1}" }, Template.parse("{{print $1}}"));
+        assertArrayEquals(new String[]{ "{", "id", "}" }, Template.parse("{{{id}}}"));
+        assertArrayEquals(new String[]{ "a}b" }, Template.parse("a}}b"));
+    }
+
+    @Test
+    void substitute__values() {
+        Map<String, String> values = Map.of("w", "10", "h", "20", "file", "a b");
+        assertEquals("plain", Template.substitute(Template.parse("plain"), values));
+        assertEquals("a b", Template.substitute(Template.parse("{file}"), values));
+        assertEquals("--size=10x20", Template.substitute(Template.parse("--size={w}x{h}"), values));
+        assertThrows(IllegalArgumentException.class, () -> Template.substitute(Template.parse("{missing}"), values));
+    }
+
+    @Test
+    void bind__cmd() {
+        Template template = Template.of("printf", "%s-%s", "{a}", "x{b}x");
+        Shell shell = template.bind(Map.of("a", "1", "b", "2", "unused", "3"));
+        assertInstanceOf(Cmd.class, shell);
+
+        Result<Output, CmdException> result = shell.invoke();
+        assertTrue(result.isOk());
+        assertEquals("1-x2x", result.value().stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void bind__env_and_directory() {
+        Template template = Template.of("sh", "-c", "echo \"$GREETING\" \"$HOME\"; pwd")
+                .env("GREETING", "hello, {name}")
+                .unsetEnv("HOME")
+                .directory("{dir}");
+        Result<Output, CmdException> result = template.invoke(Map.of("name", "world", "dir", "/tmp"));
+        assertTrue(result.isOk());
+        assertEquals("hello, world \n/tmp", result.value().stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void bind__escaped() {
+        Template template = Template.of("echo", "a b")
+                .pipeTo(Template.of("awk", "{{print $1 \"{suffix}\"}}"));
+        Output awk = template.invoke(Map.of("suffix", "!")).unwrap();
+        assertEquals("a!", awk.stdout().encode().orElseThrow());
+        assertEquals("echo a b | awk {{print $1 \"{suffix}\"}}", template.toString());
+
+        Output jq = Template.of("printf", "%s", "{{id}}").invoke(Map.of()).unwrap();
+        assertEquals("{id}", jq.stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void bind__env_literal_and_placeholder() {
+        Template template = Template.of("sh", "-c", "echo \"$A $B\"")
+                .env("A", "static")
+                .env("B", "{b}");
+        assertEquals("static 1", template.invoke(Map.of("b", "1")).unwrap().stdout().encode().orElseThrow());
+        assertEquals("static 2", template.invoke(Map.of("b", "2")).unwrap().stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void bind__chain() {
+        Template template = Template.of("printf", "{text}")
+                .pipeTo(Template.of("tr", "-d", "{drop}"));
+        Shell shell = template.bind(Map.of("text", "a/b/c", "drop", "/"));
+        assertInstanceOf(Chain.class, shell);
+        assertEquals("abc", shell.invoke().unwrap().stdout().encode().orElseThrow());
+        assertEquals("printf {text} | tr -d {drop}", template.toString());
+    }
+
+    @Test
+    void bind__immutable() {
+        Template base = Template.of("sh", "-c", "echo ${X:-unset}");
+        Template derived = base.env("X", "set");
+        assertEquals("unset", base.invoke(Map.of()).unwrap().stdout().encode().orElseThrow());
+        assertEquals("set", derived.invoke(Map.of()).unwrap().stdout().encode().orElseThrow());
+    }
+
+    @Test
+    void bind__concurrent() {
+        Template template = Template.of("echo", "{n}");
+        List<CompletableFuture<String>> pending = IntStream.range(0, 32)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> template
+                        .invoke(Map.of("n", String.valueOf(i)))
+                        .unwrap()
+                        .stdout()
+                        .encode()
+                        .orElseThrow()))
+                .toList();
+        for (int i = 0; i < pending.size(); i++) {
+            assertEquals(String.valueOf(i), pending.get(i).join());
+        }
+    }
+
+    @Test
+    void bind__invalid() {
+        Template template = Template.of("echo", "{n}");
+        assertThrows(IllegalArgumentException.class, () -> template.bind(Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> template.bind(null));
+        assertThrows(IllegalArgumentException.class, () -> Template.of(null));
+        assertThrows(IllegalArgumentException.class, () -> Template.of("echo", "a", null));
+        assertThrows(IllegalArgumentException.class, () -> template.env("A", null));
+        assertThrows(IllegalArgumentException.class, () -> template.pipeTo(null));
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.artkonr.process;
+
+import io.github.artkonr.result.Result;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UntilTest {
+
+    @Test
+    void contains__across_chunks() {
+        Until.Scanner scanner = Until.contains("abcab").scanner();
+        assertFalse(scan(scanner, "xxabc"));
+        assertFalse(scan(scanner, "aXab"));
+        assertFalse(scan(scanner, "ca"));
+        assertTrue(scan(scanner, "bz"));
+    }
+
+    @Test
+    void contains__overlapping_prefix() {
+        Until.Scanner scanner = Until.contains("aab").scanner();
+        assertTrue(scan(scanner, "aaaab"));
+        assertFalse(Until.contains("aab").scanner().end());
+    }
+
+    @Test
+    void contains__empty() {
+        assertThrows(IllegalArgumentException.class, () -> Until.contains(new byte[0]));
+    }
+
+    @Test
+    void fallback__kmp() {
+        assertArrayEquals(new int[]{ 0, 0, 1, 2, 0 }, Until.fallback("abab!".getBytes(StandardCharsets.UTF_8)));
+        assertArrayEquals(new int[]{ 0, 1, 2 }, Until.fallback("aaa".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void line__across_chunks() {
+        List<String> seen = new ArrayList<>();
+        Until.Scanner scanner = Until.line(line -> seen.add(line) && line.equals("ready")).scanner();
+        assertFalse(scan(scanner, "start"));
+        assertFalse(scan(scanner, "ing\r\nre"));
+        assertTrue(scan(scanner, "ady\nignored\n"));
+        assertEquals(List.of("starting", "ready"), seen);
+    }
+
+    @Test
+    void line__unterminated() {
+        Until.Scanner scanner = Until.line("done"::equals).scanner();
+        assertFalse(scan(scanner, "done"));
+        assertTrue(scanner.end());
+    }
+
+    @Test
+    void invokeUntil__kills() throws Exception {
+        long startedAt = System.nanoTime();
+        Result<Until.Match, CmdException> result = Cmd
+                .from("sh", "-c", "echo booting; sleep 0.2; echo listening on 8080; exec sleep 30")
+                .invokeUntil(Until.contains("listening on"));
+        assertTrue(System.nanoTime() - startedAt < 10_000_000_000L);
+
+        Until.Match match = result.unwrap();
+        assertTrue(match.stdout().encode().orElseThrow().startsWith("booting\nlistening on"));
+        assertFalse(match.detached());
+
+        Result<Output, CmdException> exit = match.job().onExit().get(10, TimeUnit.SECONDS);
+        Output output = exit.err().output().orElseThrow();
+        assertEquals(137, output.exitcode());
+        assertEquals(match.pid(), output.pid());
+        assertTrue(output.stdout().encode().orElseThrow().startsWith("booting\nlistening on"));
+    }
+
+    @Test
+    void invokeUntil__detaches() {
+        Until.Match match = Cmd.from("sh", "-c", "echo ready >&2; sleep 30")
+                .invokeUntil(Until.line("ready"::equals).onStderr().detach())
+                .unwrap();
+        assertEquals("ready", match.stderr().encode().orElseThrow());
+        assertTrue(match.detached());
+        assertTrue(match.job().isAlive());
+        match.job().cancel(true);
+    }
+
+    @Test
+    void invokeUntil__chain() {
+        Until.Match match = Chain.from("sh", "-c", "seq 1 100000; sleep 30")
+                .pipeTo("grep", "--line-buffered", "777")
+                .invokeUntil(Until.line(line -> line.endsWith("777")))
+                .unwrap();
+        assertEquals("777", match.stdout().encode().orElseThrow().lines().findFirst().orElseThrow());
+        assertEquals("sh -c seq 1 100000; sleep 30 | grep --line-buffered 777", match.command());
+    }
+
+    @Test
+    void invokeUntil__scans_on_caller() {
+        Set<Thread> scanners = ConcurrentHashMap.newKeySet();
+        Until.Match match = Cmd.from("sh", "-c", "echo a; echo b; exec sleep 30")
+                .invokeUntil(Until.line(line -> {
+                    scanners.add(Thread.currentThread());
+                    return line.equals("b");
+                }))
+                .unwrap();
+        assertEquals("a\nb", match.stdout().encode().orElseThrow());
+        assertEquals(Set.of(Thread.currentThread()), scanners);
+    }
+
+    @Test
+    void invokeUntil__no_match() {
+        Result<Until.Match, CmdException> exited = Cmd.from("echo", "nothing").invokeUntil(Until.contains("ready"));
+        assertTrue(exited.isErr());
+        assertTrue(exited.err().output().isEmpty());
+
+        Result<Until.Match, CmdException> failed = Cmd.from("sh", "-c", "exit 4").invokeUntil(Until.contains("ready"));
+        assertEquals(4, failed.err().output().orElseThrow().exitcode());
+    }
+
+    @Test
+    void invokeUntil__predicate_fails() {
+        Result<Until.Match, CmdException> result = Cmd.from("echo", "boom")
+                .invokeUntil(Until.line(line -> {
+                    throw new IllegalStateException(line);
+                }));
+        assertTrue(result.isErr());
+        assertInstanceOf(IllegalStateException.class, result.err().getCause());
+    }
+
+    @Test
+    void await__predicate_fails__kills() throws Exception {
+        Job job = Cmd.from("sh", "-c", "echo boom; sleep 30").start(Reactor.shared()).unwrap();
+        Result<Until.Match, CmdException> result = job.await(Until.line(line -> {
+            throw new IllegalStateException(line);
+        }));
+        assertTrue(result.isErr());
+        assertInstanceOf(IllegalStateException.class, result.err().getCause());
+        job.onExit().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void await__concurrent() throws Exception {
+        Job job = Cmd.from("sh", "-c", "sleep 0.2; echo first; sleep 0.2; echo second; sleep 30")
+                .start(Reactor.shared())
+                .unwrap();
+        CompletableFuture<Result<Until.Match, CmdException>> second = CompletableFuture
+                .supplyAsync(() -> job.await(Until.contains("second")));
+        CompletableFuture<Result<Until.Match, CmdException>> first = CompletableFuture
+                .supplyAsync(() -> job.await(Until.contains("first").detach()));
+
+        assertEquals("first", first.get(10, TimeUnit.SECONDS).unwrap().stdout().encode().orElseThrow().lines().findFirst().orElseThrow());
+        assertTrue(second.get(10, TimeUnit.SECONDS).unwrap().stdout().encode().orElseThrow().endsWith("second"));
+        job.onExit().get(10, TimeUnit.SECONDS);
+    }
+
+    private static boolean scan(Until.Scanner scanner, String chunk) {
+        byte[] bytes = ("#" + chunk).getBytes(StandardCharsets.UTF_8);
+        return scanner.scan(bytes, 1, bytes.length - 1);
+    }
+}
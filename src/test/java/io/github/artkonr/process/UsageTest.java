@@ -0,0 +1,27 @@
+package io.github.artkonr.process;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsageTest {
+
+    @Test
+    void cpu() {
+        Usage usage = new Usage(Duration.ofSeconds(5), Duration.ofSeconds(2), Duration.ofSeconds(1), 10);
+        assertEquals(Duration.ofSeconds(3), usage.cpu());
+    }
+
+    @Test
+    void combine() {
+        Usage left = new Usage(Duration.ofSeconds(5), Duration.ofSeconds(2), Duration.ofSeconds(1), 10);
+        Usage right = new Usage(Duration.ofSeconds(7), Duration.ofSeconds(1), Duration.ofSeconds(1), 20);
+        Usage combined = left.combine(right);
+        assertEquals(Duration.ofSeconds(7), combined.wall());
+        assertEquals(Duration.ofSeconds(3), combined.user());
+        assertEquals(Duration.ofSeconds(2), combined.system());
+        assertEquals(30, combined.peakRss());
+    }
+}
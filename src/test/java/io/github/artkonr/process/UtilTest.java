@@ -93,6 +93,64 @@ class UtilTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    void copy__independent() {
+        ProcessBuilder source = new ProcessBuilder("tr", "-d", "a")
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .redirectErrorStream(true);
+        source.environment().put("PROCESS_TEST", "1");
+
+        ProcessBuilder copy = Util.copy(source);
+        assertEquals(source.command(), copy.command());
+        assertEquals(ProcessBuilder.Redirect.DISCARD, copy.redirectError());
+        assertTrue(copy.redirectErrorStream());
+        assertEquals("1", copy.environment().get("PROCESS_TEST"));
+
+        copy.command().add("b");
+        copy.environment().remove("PROCESS_TEST");
+        assertEquals(List.of("tr", "-d", "a"), source.command());
+        assertEquals("1", source.environment().get("PROCESS_TEST"));
+    }
+
+    @Test
+    void probe__shares_command() {
+        ProcessBuilder source = new ProcessBuilder("tr", "-d", "a")
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectErrorStream(true);
+
+        ProcessBuilder probe = Util.probe(source);
+        assertSame(source.command(), probe.command());
+        assertEquals(ProcessBuilder.Redirect.DISCARD, probe.redirectOutput());
+        assertEquals(ProcessBuilder.Redirect.DISCARD, probe.redirectError());
+        assertFalse(probe.redirectErrorStream());
+    }
+
+    @Test
+    void probe__custom_environment() {
+        ProcessBuilder source = new ProcessBuilder("env");
+        source.environment().put("PROCESS_TEST", "1");
+
+        ProcessBuilder probe = Util.probe(source);
+        assertEquals("1", probe.environment().get("PROCESS_TEST"));
+    }
+
+    @Test
+    void derive__keeps_setting() {
+        ProcessBuilder source = new ProcessBuilder("tr", "-d", "a")
+                .directory(new File("/tmp"))
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .redirectErrorStream(true);
+        source.environment().put("PROCESS_TEST", "1");
+
+        List<String> command = List.of("nice", "tr", "-d", "a");
+        ProcessBuilder derived = Util.derive(source, command);
+        assertSame(command, derived.command());
+        assertEquals(source.directory(), derived.directory());
+        assertEquals(ProcessBuilder.Redirect.DISCARD, derived.redirectError());
+        assertTrue(derived.redirectErrorStream());
+        assertEquals(source.environment(), derived.environment());
+    }
+
     @Test
     void formulate__single_part() {
         ProcessBuilder expected = new ProcessBuilder("pwd");
@@ -72,6 +72,11 @@ public class TestProcess extends Process {
         return exitcode;
     }
 
+    @Override
+    public boolean isAlive() {
+        return false;
+    }
+
     @Override
     public long pid() {
         return 914;